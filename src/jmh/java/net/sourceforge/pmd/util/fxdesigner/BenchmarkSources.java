@@ -0,0 +1,150 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner;
+
+import java.util.concurrent.CountDownLatch;
+
+import javafx.application.Platform;
+
+
+/**
+ * Generates the inputs of the benchmarks. The sources are synthetic but
+ * exercise most of the grammar, and their size is controlled by the number
+ * of repetitions of a member template.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class BenchmarkSources {
+
+    private static final String JAVA_MEMBER =
+        "    /**\n"
+            + "     * Doc comment of method %1$d.\n"
+            + "     */\n"
+            + "    @SuppressWarnings(\"unchecked\")\n"
+            + "    public <T extends Comparable<T>> List<T> method%1$d(final List<? extends T> input, int threshold) {\n"
+            + "        // line comment\n"
+            + "        List<T> result = new ArrayList<>(input.size());\n"
+            + "        for (int i = 0; i < input.size(); i++) {\n"
+            + "            T t = input.get(i);\n"
+            + "            if (i > threshold && t != null || \"foo\".equals(String.valueOf(t))) {\n"
+            + "                result.add(t);\n"
+            + "            }\n"
+            + "        }\n"
+            + "        Runnable r = () -> System.out.println(\"done %1$d\" + 'c' + 0x1F + 2.5e3);\n"
+            + "        r.run();\n"
+            + "        return result.isEmpty() ? Collections.emptyList() : result;\n"
+            + "    }\n\n";
+
+    private static final String XML_ELEMENT =
+        "    <!-- comment %1$d -->\n"
+            + "    <element id=\"e%1$d\" kind='leaf'>\n"
+            + "        <child attr=\"value\">text &amp; more text</child>\n"
+            + "        <![CDATA[ some <cdata> %1$d ]]>\n"
+            + "        <empty/>\n"
+            + "    </element>\n";
+
+    private static final String APEX_MEMBER =
+        "    /* Block comment of method %1$d */\n"
+            + "    @AuraEnabled\n"
+            + "    public static List<Account> method%1$d(String name, Integer threshold) {\n"
+            + "        // line comment\n"
+            + "        List<Account> result = [SELECT Id, Name FROM Account WHERE Name = :name LIMIT 10];\n"
+            + "        for (Integer i = 0; i < threshold; i++) {\n"
+            + "            System.debug('value ' + i + ' of %1$d');\n"
+            + "        }\n"
+            + "        return result.isEmpty() ? null : result;\n"
+            + "    }\n\n";
+
+    private static final String SCALA_MEMBER =
+        "  /** Doc comment of method %1$d. */\n"
+            + "  def method%1$d[T <: Comparable[T]](input: List[T], threshold: Int): List[T] = {\n"
+            + "    // line comment\n"
+            + "    val result = input.zipWithIndex.filter { case (t, i) => i > threshold && t != null }\n"
+            + "    println(s\"done %1$d ${result.size}\" + 'c' + 0x1F + 2.5e3)\n"
+            + "    result.map(_._1)\n"
+            + "  }\n\n";
+
+    private static final String MODELICA_MEMBER =
+        "  /* Block comment of model %1$d */\n"
+            + "  model Component%1$d \"A component\"\n"
+            + "    parameter Real k = 2.5e3 \"gain\";\n"
+            + "    Real x(start = 0);\n"
+            + "  equation\n"
+            + "    // line comment\n"
+            + "    der(x) = -k * x + sin(time);\n"
+            + "  end Component%1$d;\n\n";
+
+    private static final String XPATH_UNION_BRANCH =
+        "//MethodDeclaration[@Name = 'foo%1$d' and count(.//ForStatement) > 2]\n"
+            + "  | //ClassOrInterfaceType[pmd-java:typeIs('java.util.List')] (: comment :)\n";
+
+    private BenchmarkSources() {
+        // util
+    }
+
+
+    /** A Java compilation unit with the given number of methods. */
+    public static String javaSource(int numMethods) {
+        return repeat("package foo.bar;\n\nimport java.util.*;\n\npublic class Big {\n\n", JAVA_MEMBER, numMethods, "}\n");
+    }
+
+
+    /** An XML document with the given number of elements. */
+    public static String xmlSource(int numElements) {
+        return repeat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root xmlns=\"http://example.com\">\n", XML_ELEMENT, numElements, "</root>\n");
+    }
+
+
+    /**
+     * A source of the given language with approximately the given number
+     * of lines, to benchmark syntax highlighters.
+     *
+     * @param languageTerseName Terse name of the language, as returned by
+     *                          {@code SyntaxHighlighter#getLanguageTerseName()}
+     */
+    public static String highlightingSource(String languageTerseName, int numLines) {
+        switch (languageTerseName) {
+        case "java":
+            return javaSource(numLines / 17);
+        case "apex":
+            return repeat("public class Big {\n\n", APEX_MEMBER, numLines / 11, "}\n");
+        case "scala":
+            return repeat("package foo.bar\n\nobject Big {\n\n", SCALA_MEMBER, numLines / 8, "}\n");
+        case "modelica":
+            return repeat("package Big\n\n", MODELICA_MEMBER, numLines / 9, "end Big;\n");
+        case "xml":
+            return xmlSource(numLines / 6);
+        case "xpath":
+            return repeat("", XPATH_UNION_BRANCH, numLines / 2, "");
+        default:
+            throw new IllegalArgumentException("No benchmark source for " + languageTerseName);
+        }
+    }
+
+
+    private static String repeat(String header, String template, int times, String footer) {
+        StringBuilder sb = new StringBuilder(header);
+        for (int i = 0; i < times; i++) {
+            sb.append(String.format(template, i));
+        }
+        return sb.append(footer).toString();
+    }
+
+
+    /**
+     * Starts the JavaFX toolkit, which is needed to instantiate controls.
+     * Does nothing if it's already started.
+     */
+    public static void startFxToolkit() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            Platform.startup(latch::countDown);
+        } catch (IllegalStateException alreadyStarted) {
+            return;
+        }
+        latch.await();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.fxdesigner.BenchmarkSources;
+
+
+/**
+ * Measures what the AST manager does each time the source changes:
+ * parsing, then running the analysis passes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"50", "500"})
+    public int numMethods;
+
+    private String source;
+    private LanguageVersion java;
+
+
+    @Setup
+    public void setup() {
+        source = BenchmarkSources.javaSource(numMethods);
+        java = LanguageRegistry.getLanguage("Java").getDefaultVersion();
+    }
+
+
+    @Benchmark
+    public Node parse() throws ParseAbortedException {
+        return ParseUtil.parse(source, java);
+    }
+
+
+    @Benchmark
+    public Node parseAndAnalyse() throws ParseAbortedException {
+        Node root = ParseUtil.parse(source, java);
+        ParseUtil.analyse(root, java, null, () -> false, (e, cat) -> { });
+        return root;
+    }
+}
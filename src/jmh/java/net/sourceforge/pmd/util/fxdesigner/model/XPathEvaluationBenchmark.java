@@ -0,0 +1,70 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery;
+import net.sourceforge.pmd.util.fxdesigner.BenchmarkSources;
+
+
+/**
+ * Compares the XPath 1.0 and 2.0 engines on the queries typed in the
+ * designer. Query preparation is cached by {@link XPathEvaluator}, so
+ * this mostly measures evaluation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XPathEvaluationBenchmark {
+
+    @Param({XPathRuleQuery.XPATH_1_0, XPathRuleQuery.XPATH_2_0})
+    public String xpathVersion;
+
+    @Param({
+        "//MethodDeclaration",
+        "//MethodDeclaration[@Public = true()]//ForStatement",
+        "//PrimaryExpression[PrimaryPrefix/Literal[@StringLiteral = true()]]",
+        "//ClassOrInterfaceType[@Image = 'List'][ancestor::MethodDeclaration]",
+    })
+    public String query;
+
+    private Node root;
+    private LanguageVersion java;
+
+
+    @Setup
+    public void setup() throws ParseAbortedException {
+        java = LanguageRegistry.getLanguage("Java").getDefaultVersion();
+        root = ParseUtil.parse(BenchmarkSources.javaSource(200), java);
+        ParseUtil.analyse(root, java, null, () -> false, (e, cat) -> { });
+    }
+
+
+    @Benchmark
+    public List<Node> evaluate() throws XPathEvaluationException {
+        return XPathEvaluator.evaluateQuery(root, java, xpathVersion, query, Collections.emptyMap(), Collections.emptyList(), XPathEvaluationLimits.NONE);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.autocomplete;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.util.fxdesigner.BenchmarkSources;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchResult;
+
+
+/**
+ * Measures the computation of the suggestions of the XPath autocompletion
+ * popup, which happens on each keystroke. The node names are loaded in the
+ * setup, so only the matching and sorting is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+
+    @Param({"m", "MethDecl", "cOIT", "PrimaryPrefix"})
+    public String input;
+
+    @Param({"5", "20"})
+    public int limit;
+
+    private XPathCompletionSource source;
+
+
+    @Setup
+    public void setup() throws InterruptedException {
+        // match results are rendered into text flows
+        BenchmarkSources.startFxToolkit();
+        source = XPathCompletionSource.forLanguage(LanguageRegistry.getLanguage("Java"));
+        source.getSortedMatches("warmup", 1).count();
+    }
+
+
+    @Benchmark
+    public List<MatchResult<String>> getSortedMatches() {
+        // the popup renders the text flow of each displayed result
+        return source.getSortedMatches(input, limit).peek(MatchResult::getTextFlow).collect(Collectors.toList());
+    }
+}
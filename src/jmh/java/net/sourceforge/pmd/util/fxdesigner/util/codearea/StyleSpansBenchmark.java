@@ -0,0 +1,76 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.fxmisc.richtext.model.StyleSpans;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery;
+import net.sourceforge.pmd.util.fxdesigner.BenchmarkSources;
+import net.sourceforge.pmd.util.fxdesigner.model.ParseUtil;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluator;
+
+
+/**
+ * Measures the overlaying of the nodes of a style layer into style spans,
+ * eg to highlight XPath results. The queries select disjoint and deeply
+ * nested nodes respectively.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StyleSpansBenchmark {
+
+    @Param({"//MethodDeclaration", "//Expression"})
+    public String query;
+
+    private UniformStyleCollection collection;
+
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSources.startFxToolkit();
+
+        LanguageVersion java = LanguageRegistry.getLanguage("Java").getDefaultVersion();
+        String source = BenchmarkSources.javaSource(300);
+        Node root = ParseUtil.parse(source, java);
+        List<Node> nodes = XPathEvaluator.evaluateQuery(root, java, XPathRuleQuery.XPATH_2_0, query, Collections.emptyMap(), Collections.emptyList(), XPathEvaluationLimits.NONE);
+
+        SyntaxHighlightingCodeArea codeArea = new SyntaxHighlightingCodeArea();
+        codeArea.replaceText(source);
+
+        List<NodeStyleSpan> spans = nodes.stream().map(n -> NodeStyleSpan.fromNode(n, codeArea)).collect(Collectors.toList());
+        collection = new UniformStyleCollection(Collections.singleton("xpath-result"), spans);
+    }
+
+
+    @Benchmark
+    public StyleSpans<Collection<String>> buildSpans() {
+        return collection.buildSpans();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.fxmisc.richtext.model.StyleSpans;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.util.fxdesigner.BenchmarkSources;
+
+
+/**
+ * Measures a full re-highlighting of a large text, which is what the
+ * editor does on each keystroke, without the incremental updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntaxHighlightingBenchmark {
+
+    @Param({"JAVA", "APEX", "SCALA", "MODELICA", "XML", "XPATH"})
+    public AvailableSyntaxHighlighters highlighter;
+
+    /** Approximate number of lines of the text. */
+    @Param({"1000", "10000"})
+    public int numLines;
+
+    private String text;
+
+
+    @Setup
+    public void setup() {
+        text = BenchmarkSources.highlightingSource(highlighter.getLanguageTerseName(), numLines);
+    }
+
+
+    @Benchmark
+    public StyleSpans<Collection<String>> computeHighlighting() {
+        return highlighter.computeHighlighting(text);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.fxmisc.richtext.model.StyleSpans;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.util.fxdesigner.BenchmarkSources;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.SyntaxHighlighter;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.RegexSyntaxHighlighters.RegexApexHighlighter;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.RegexSyntaxHighlighters.RegexJavaHighlighter;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.RegexSyntaxHighlighters.RegexModelicaHighlighter;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.RegexSyntaxHighlighters.RegexXPathHighlighter;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.RegexSyntaxHighlighters.RegexXmlHighlighter;
+
+
+/**
+ * Compares the JFlex lexers with the regex highlighters they replaced,
+ * on a full highlighting of the same text, written in the language of
+ * the highlighter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HighlighterComparisonBenchmark {
+
+    @Param({"java", "apex", "modelica", "xml", "xpath"})
+    public String language;
+
+    @Param({"regex", "jflex"})
+    public String implementation;
+
+    /** Approximate number of lines of the text. */
+    @Param({"1000", "10000"})
+    public int numLines;
+
+    private SyntaxHighlighter highlighter;
+    private String text;
+
+
+    @Setup
+    public void setup() {
+        boolean regex = "regex".equals(implementation);
+        switch (language) {
+        case "java":
+            highlighter = regex ? new RegexJavaHighlighter() : new JavaSyntaxHighlighter();
+            break;
+        case "apex":
+            highlighter = regex ? new RegexApexHighlighter() : new ApexSyntaxHighlighter();
+            break;
+        case "modelica":
+            highlighter = regex ? new RegexModelicaHighlighter() : new ModelicaSyntaxHighlighter();
+            break;
+        case "xml":
+            highlighter = regex ? new RegexXmlHighlighter() : new XmlSyntaxHighlighter();
+            break;
+        case "xpath":
+            highlighter = regex ? new RegexXPathHighlighter() : new XPathSyntaxHighlighter();
+            break;
+        default:
+            throw new IllegalArgumentException(language);
+        }
+
+        text = BenchmarkSources.highlightingSource(language, numLines);
+    }
+
+
+    @Benchmark
+    public StyleSpans<Collection<String>> computeHighlighting() {
+        return highlighter.computeHighlighting(text);
+    }
+}
@@ -22,6 +22,7 @@ import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRootImpl;
 import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.ResourceUtil;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.AstNodeNameIndex;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -106,6 +107,8 @@ public class Designer extends Application {
 
         Logger.getLogger(Attribute.class.getName()).setLevel(Level.OFF);
 
+        AstNodeNameIndex.warmUpAsync();
+
         System.out.println(stage.getTitle() + " initializing... ");
 
         FXMLLoader loader = new FXMLLoader(DesignerUtil.getFxml("designer"));
@@ -124,7 +127,7 @@ public class Designer extends Application {
         ));
 
         stage.setOnCloseRequest(e -> {
-            owner.getService(DesignerRoot.PERSISTENCE_MANAGER).persistSettings(mainController);
+            owner.getService(DesignerRoot.PERSISTENCE_MANAGER).flushSettings(mainController);
             Platform.exit();
             // VM sometimes fails to exit for no apparent reason
             // all our threads are killed so it's not our fault
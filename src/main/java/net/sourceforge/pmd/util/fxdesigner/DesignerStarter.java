@@ -6,6 +6,9 @@ package net.sourceforge.pmd.util.fxdesigner;
 
 import javax.swing.JOptionPane;
 
+import net.sourceforge.pmd.util.fxdesigner.app.DesignerParams;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits;
+
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 import javafx.application.Application;
@@ -41,6 +44,8 @@ public final class DesignerStarter {
         MainCliArgs argsObj = new MainCliArgs();
         JCommander jCommander = new JCommander(argsObj);
         jCommander.setProgramName("designer");
+        // the named parameters of the app (--name=value) are parsed by DesignerParams
+        jCommander.setAcceptUnknownOptions(true);
 
         try {
             jCommander.parse(argv);
@@ -66,7 +71,13 @@ public final class DesignerStarter {
 
     public static void main(String[] args) {
 
-        readParameters(args);
+        MainCliArgs cliArgs = readParameters(args);
+
+        if (cliArgs.ruleFile != null) {
+            // an incomplete evaluation fails the test, so there are no limits unless they're set
+            XPathEvaluationLimits limits = new DesignerParams(args).getXPathLimits(XPathEvaluationLimits.NONE);
+            System.exit(HeadlessTestRunner.run(cliArgs, limits));
+        }
 
         launchGui(args);
     }
@@ -0,0 +1,139 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FilenameUtils;
+
+import net.sourceforge.pmd.util.fxdesigner.model.ObservableXPathRuleBuilder;
+import net.sourceforge.pmd.util.fxdesigner.model.RuleXmlParser;
+import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluator;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestReport;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestReport.TestOutcome;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestRunner;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.LiveTestCase;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.TestCollection;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.TestStatus;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.TestXmlParser;
+
+
+/**
+ * Runs the tests of an XPath rule from the command line, without
+ * starting the JavaFX toolkit. Used by {@link DesignerStarter} when
+ * the {@code --run-tests} option is given.
+ *
+ * <p>An incomplete evaluation makes a test fail, so by default XPath
+ * evaluations are not limited. Limits may be set with the same parameters
+ * as in the GUI, e.g. {@code --xpath-timeout-ms=10000}.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class HeadlessTestRunner {
+
+    static final int ALL_PASSED = 0;
+    static final int SOME_FAILED = 1;
+    static final int BAD_INPUT = 2;
+
+    private final PrintStream out;
+    private final boolean verbose;
+    private final XPathEvaluationLimits limits;
+
+
+    HeadlessTestRunner(PrintStream out, boolean verbose, XPathEvaluationLimits limits) {
+        this.out = out;
+        this.verbose = verbose;
+        this.limits = limits;
+    }
+
+
+    HeadlessTestRunner(PrintStream out, boolean verbose) {
+        this(out, verbose, XPathEvaluationLimits.NONE);
+    }
+
+
+    /**
+     * Runs the tests and returns the exit code of the process.
+     */
+    int run(Path ruleFile, Path testFile) {
+
+        ObservableXPathRuleBuilder rule;
+        TestCollection tests;
+        try {
+            rule = findRule(ruleFile, testFile);
+            tests = TestXmlParser.parseXmlTests(testFile, rule);
+        } catch (Exception e) {
+            out.println("Cannot load the tests: " + e.getMessage());
+            if (verbose) {
+                e.printStackTrace(out);
+            }
+            return BAD_INPUT;
+        }
+
+        List<LiveTestCase> enabled = tests.getStash().stream().filter(it -> !it.isIgnored()).collect(Collectors.toList());
+        VersionedXPathQuery query = new VersionedXPathQuery(rule.getXpathVersion(), rule.getXpathExpression(), rule.getRuleProperties());
+
+        BatchTestReport report = new BatchTestRunner(ForkJoinPool.commonPool(), limits).run(
+            BatchTestRunner.snapshot(enabled, query, rule.getLanguage().getDefaultVersion(), null),
+            () -> false
+        );
+
+        for (TestOutcome outcome : report.getOutcomes()) {
+            if (verbose || outcome.getResult().getStatus() != TestStatus.PASS) {
+                out.println(outcome);
+            }
+        }
+
+        int skipped = tests.getStash().size() - enabled.size();
+        long millis = Math.max(1, report.getWallTime().toMillis());
+        out.println("Rule " + rule.getName() + ": " + report.summary()
+                        + (skipped > 0 ? ", " + skipped + " skipped" : ""));
+        out.printf("Throughput: %.1f tests/s%n", enabled.size() * 1000.0 / millis);
+        if (verbose) {
+            out.println("XPath query cache: " + XPathEvaluator.getQueryCache());
+        }
+
+        boolean success = report.count(TestStatus.PASS) == enabled.size();
+        return success ? ALL_PASSED : SOME_FAILED;
+    }
+
+
+    /**
+     * Picks the rule to test. If the file declares several XPath rules,
+     * the one named like the test file is used, which is the convention
+     * of PMD's test files.
+     */
+    private static ObservableXPathRuleBuilder findRule(Path ruleFile, Path testFile) throws Exception {
+        List<ObservableXPathRuleBuilder> rules = RuleXmlParser.parseXPathRules(ruleFile);
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("No XPath rule in " + ruleFile);
+        } else if (rules.size() == 1) {
+            return rules.get(0);
+        }
+
+        String testName = FilenameUtils.getBaseName(testFile.toString());
+        Optional<ObservableXPathRuleBuilder> named = rules.stream().filter(it -> testName.equals(it.getName())).findFirst();
+        return named.orElseThrow(() -> new IllegalArgumentException(
+            "Several XPath rules in " + ruleFile + ", and none is named " + testName));
+    }
+
+
+    static int run(MainCliArgs args, XPathEvaluationLimits limits) {
+        if (args.testFile == null) {
+            System.out.println("The --run-tests option requires a test file, use --tests");
+            return BAD_INPUT;
+        }
+        return new HeadlessTestRunner(System.out, args.verbose, limits).run(Paths.get(args.ruleFile), Paths.get(args.testFile));
+    }
+}
@@ -21,5 +21,15 @@ final class MainCliArgs {
                description = "Display this help text")
     boolean help;
 
+    @Parameter(names = "--run-tests",
+               description = "Run the tests of the XPath rule defined in the given ruleset file, "
+                   + "without starting the GUI. The process exits with a non-zero "
+                   + "status if a test does not pass. Requires --tests.")
+    String ruleFile;
+
+    @Parameter(names = "--tests",
+               description = "Test file (in PMD's rule test format) to use with --run-tests")
+    String testFile;
+
 
 }
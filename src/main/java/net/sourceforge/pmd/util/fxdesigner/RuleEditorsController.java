@@ -7,6 +7,7 @@ package net.sourceforge.pmd.util.fxdesigner;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import org.reactfx.Subscription;
 import org.reactfx.collection.LiveArrayList;
@@ -37,6 +38,10 @@ import javafx.fxml.FXML;
  * the individual editors. Also handles persisting the editors (under
  * the form of rule builders).
  *
+ * <p>When the app state is restored, only the editor of the selected tab
+ * is loaded. The other editors are loaded when their tab is first shown,
+ * and their test cases when they're first accessed.
+ *
  * <p>Each {@link XPathRuleEditorController} has its own {@link DesignerRoot}
  * with scopes some services down to it (see {@link #newScope()}).
  * This allows keeping several rule editors independent, this class being
@@ -87,13 +92,13 @@ public class RuleEditorsController extends AbstractController {
                 // add at least one tab
                 mutableTabPane.addTabWithNewController();
             } else {
-                for (ObservableXPathRuleBuilder builder : ruleSpecs) {
-                    mutableTabPane.addTabWithController(new XPathRuleEditorController(newScope(), builder));
-                }
+                // only the selected editor is loaded, the others are loaded when their tab is first shown
+                List<XPathRuleEditorController> editors = ruleSpecs.stream()
+                                                                   .map(builder -> new XPathRuleEditorController(newScope(), builder))
+                                                                   .collect(Collectors.toList());
+                mutableTabPane.addTabsLazily(editors, restoredTabIndex);
             }
 
-            mutableTabPane.getSelectionModel().select(restoredTabIndex);
-
             // after restoration they're read-only and got for persistence on closing
             xpathRuleBuilders = mutableTabPane.getControllers().map(XPathRuleEditorController::getRuleBuilder);
 
@@ -36,6 +36,7 @@ import net.sourceforge.pmd.util.ClasspathClassLoader;
 import net.sourceforge.pmd.util.fxdesigner.app.AbstractController;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
 import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager;
+import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager.AnalysisStage;
 import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManagerImpl;
 import net.sourceforge.pmd.util.fxdesigner.app.services.TestCreatorService;
 import net.sourceforge.pmd.util.fxdesigner.model.ObservableRuleBuilder;
@@ -474,7 +475,8 @@ public class SourceEditorController extends AbstractController {
                    }
                });
 
-        manager.compilationUnitProperty()
+        // the tree view only needs the syntactic structure
+        manager.compilationUnitProperty(AnalysisStage.PARSED)
                .values()
                .filter(Objects::nonNull)
                .subscribe(node -> {
@@ -5,20 +5,33 @@
 package net.sourceforge.pmd.util.fxdesigner;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.reactfx.EventStreams;
+import org.reactfx.Subscription;
 import org.reactfx.value.Val;
 
 import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.util.fxdesigner.app.AbstractController;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
+import net.sourceforge.pmd.util.fxdesigner.app.MessageChannel;
+import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager;
 import net.sourceforge.pmd.util.fxdesigner.app.services.LogEntry.Category;
 import net.sourceforge.pmd.util.fxdesigner.model.ObservableXPathRuleBuilder;
+import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestReport;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestRunner;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestRunner.TestJob;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.LiveTestCase;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.TestCollection;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.TestXmlParser;
 import net.sourceforge.pmd.util.fxdesigner.popups.SimplePopups;
 import net.sourceforge.pmd.util.fxdesigner.popups.TestExportWizardController;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.SoftReferenceCache;
 import net.sourceforge.pmd.util.fxdesigner.util.controls.ControlUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.controls.HelpfulPlaceholder;
@@ -26,6 +39,7 @@ import net.sourceforge.pmd.util.fxdesigner.util.controls.TestCaseListCell;
 import net.sourceforge.pmd.util.fxdesigner.util.controls.ToolbarTitledPane;
 
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
@@ -37,6 +51,16 @@ import javafx.stage.FileChooser;
 
 public class TestCollectionController extends AbstractController {
 
+    /** Delay after the last change before the tests are run again. */
+    private static final Duration TEST_RUN_DELAY = Duration.ofMillis(200);
+
+    /**
+     * Batches are coordinated on those threads, the tests themselves
+     * are run on the common fork-join pool.
+     */
+    private static final ExecutorService BATCH_EXECUTOR =
+        Executors.newCachedThreadPool(DesignerUtil.daemonThreadFactory("designer-test-batch"));
+
     @FXML
     private MenuButton addTestMenuButton;
     @FXML
@@ -56,6 +80,8 @@ public class TestCollectionController extends AbstractController {
     private ToggleGroup loadedToggleGroup = new ToggleGroup();
 
     private final ObservableXPathRuleBuilder builder;
+    private final BatchTestRunner testRunner = new BatchTestRunner();
+    private Subscription testRunSubscription = Subscription.EMPTY;
 
     protected TestCollectionController(DesignerRoot root, ObservableXPathRuleBuilder builder) {
         super(root);
@@ -148,6 +174,57 @@ public class TestCollectionController extends AbstractController {
     public void afterParentInit() {
         super.afterParentInit();
         getTestCollection().initOwner();
+        testRunSubscription = subscribeTestRuns();
+    }
+
+    @Override
+    public void shutdown() {
+        testRunSubscription.unsubscribe();
+        super.shutdown();
+    }
+
+    /**
+     * Runs all the tests in a batch anytime the XPath query, a test case,
+     * or the parameters of the parser change. A new batch cancels the
+     * one in flight.
+     */
+    private Subscription subscribeTestRuns() {
+        MessageChannel<VersionedXPathQuery> xpathChannel = getService(DesignerRoot.LATEST_XPATH);
+        ASTManager astManager = getService(DesignerRoot.AST_MANAGER);
+
+        return EventStreams.merge(
+            xpathChannel.messageStream(true, this),
+            getTestCollection().modificationTicks(),
+            getDefaultLanguageVersion().values(),
+            astManager.classLoaderProperty().values()
+        )
+                           .successionEnds(TEST_RUN_DELAY)
+                           .mapToTask(tick -> runTestsAsync(xpathChannel.latestMessage().getValue(),
+                                                            astManager.classLoaderProperty().getValue()))
+                           .awaitLatest()
+                           .subscribe(result -> {
+                               result.ifFailure(this::logInternalException);
+                               result.ifSuccess(report -> {
+                                   report.applyStatuses();
+                                   logInternalDebugInfo(report::summary, report::details);
+                               });
+                           });
+    }
+
+    private Task<BatchTestReport> runTestsAsync(VersionedXPathQuery query, ClassLoader auxclasspath) {
+        // snapshot on the FX thread
+        List<TestJob> jobs = BatchTestRunner.snapshot(getTestCollection().getStash(),
+                                                      query,
+                                                      getDefaultLanguageVersion().getValue(),
+                                                      auxclasspath);
+        Task<BatchTestReport> task = new Task<BatchTestReport>() {
+            @Override
+            protected BatchTestReport call() {
+                return testRunner.run(jobs, this::isCancelled);
+            }
+        };
+        BATCH_EXECUTOR.execute(task);
+        return task;
     }
 
     private TestCollection getTestCollection() {
@@ -18,7 +18,6 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.controlsfx.validation.ValidationSupport;
 import org.controlsfx.validation.Validator;
@@ -26,8 +25,6 @@ import org.kordamp.ikonli.javafx.FontIcon;
 import org.reactfx.EventStreams;
 import org.reactfx.Subscription;
 import org.reactfx.SuspendableEventStream;
-import org.reactfx.collection.LiveArrayList;
-import org.reactfx.util.FxTimer;
 import org.reactfx.value.Val;
 import org.reactfx.value.Var;
 
@@ -43,12 +40,12 @@ import net.sourceforge.pmd.util.fxdesigner.app.services.LogEntry.Category;
 import net.sourceforge.pmd.util.fxdesigner.model.ObservableRuleBuilder;
 import net.sourceforge.pmd.util.fxdesigner.model.ObservableXPathRuleBuilder;
 import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathResults;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.LiveTestCase;
 import net.sourceforge.pmd.util.fxdesigner.popups.ExportXPathWizardController;
 import net.sourceforge.pmd.util.fxdesigner.util.DataHolder;
 import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.SoftReferenceCache;
-import net.sourceforge.pmd.util.fxdesigner.util.TextAwareNodeWrapper;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.CompletionResultSource;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.XPathAutocompleteProvider;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.XPathCompletionSource;
@@ -62,6 +59,7 @@ import net.sourceforge.pmd.util.fxdesigner.util.controls.ToolbarTitledPane;
 import net.sourceforge.pmd.util.fxdesigner.util.controls.XpathViolationListCell;
 import net.sourceforge.pmd.util.fxdesigner.util.reactfx.ReactfxUtil;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -121,10 +119,10 @@ public final class XPathRuleEditorController extends AbstractController implemen
     @FXML
     private ToolbarTitledPane violationsTitledPane;
     @FXML
-    private ListView<TextAwareNodeWrapper> xpathResultListView;
+    private ListView<Node> xpathResultListView;
     // ui property
     private Var<String> xpathVersionUIProperty = Var.newSimpleVar(XPathRuleQuery.XPATH_2_0);
-    private SuspendableEventStream<TextAwareNodeWrapper> selectionEvents;
+    private SuspendableEventStream<Node> selectionEvents;
 
     public XPathRuleEditorController(DesignerRoot root) {
         this(root, new ObservableXPathRuleBuilder());
@@ -174,10 +172,10 @@ public final class XPathRuleEditorController extends AbstractController implemen
         selectionEvents = EventStreams.valuesOf(xpathResultListView.getSelectionModel().selectedItemProperty()).suppressible();
 
         initNodeSelectionHandling(getDesignerRoot(),
-                                  selectionEvents.filter(Objects::nonNull).map(TextAwareNodeWrapper::getNode).map(NodeSelectionEvent::of),
+                                  selectionEvents.filter(Objects::nonNull).map(NodeSelectionEvent::of),
                                   false);
 
-        violationsTitledPane.titleProperty().bind(currentResults.map(List::size).map(n -> "Matched nodes (" + n + ")"));
+        violationsTitledPane.titleProperty().bind(currentResults.map(XPathRuleEditorController::resultsTitle));
 
 
         showPropertiesButton.setOnAction(e -> propertiesPopover.showOrFocus(p -> p.show(showPropertiesButton)));
@@ -190,13 +188,10 @@ public final class XPathRuleEditorController extends AbstractController implemen
 
     @Override
     public void setFocusNode(Node node, DataHolder options) {
-        Optional<TextAwareNodeWrapper> firstResult = xpathResultListView.getItems().stream()
-                                                                        .filter(wrapper -> wrapper.getNode().equals(node))
-                                                                        .findFirst();
+        int resultIndex = xpathResultListView.getItems().indexOf(node);
 
-        // with Java 9, Optional#ifPresentOrElse can be used
-        if (firstResult.isPresent()) {
-            selectionEvents.suspendWhile(() -> xpathResultListView.getSelectionModel().select(firstResult.get()));
+        if (resultIndex >= 0) {
+            selectionEvents.suspendWhile(() -> xpathResultListView.getSelectionModel().select(resultIndex));
         } else {
             xpathResultListView.getSelectionModel().clearSelection();
         }
@@ -364,14 +359,21 @@ public final class XPathRuleEditorController extends AbstractController implemen
 
         xpathResultListView.setPlaceholder(emptyLabel);
 
-        // we wait a bit to do that, so that the rich text is up to date
-        FxTimer.runLater(Duration.ofMillis(100), () -> xpathResultListView.setItems(results.stream().map(getDesignerRoot().getService(DesignerRoot.RICH_TEXT_MAPPER)::wrapNode).collect(Collectors.toCollection(LiveArrayList::new))));
+        // the list is not copied, the cells wrap the nodes they display
+        xpathResultListView.setItems(FXCollections.unmodifiableObservableList(FXCollections.observableList(results)));
 
         this.currentResults.setValue(results);
         // only show the error label here when it's an xpath error
         expressionTitledPane.errorMessageProperty().setValue(xpathError ? emptyResultsPlaceholder : "");
     }
 
+    private static String resultsTitle(List<Node> results) {
+        if (results instanceof XPathResults && !((XPathResults) results).isComplete()) {
+            return "Matched nodes (" + results.size() + ", " + ((XPathResults) results).getStopReason() + ")";
+        }
+        return "Matched nodes (" + results.size() + ")";
+    }
+
     private void addProperty(String name) {
         propertiesPopover.showOrFocus(pop -> pop.show(showPropertiesButton));
         propertiesPopover.getUserData().map(it -> (PropertyCollectionView) it).ifPresent(it -> it.addNewProperty(name));
@@ -425,8 +427,10 @@ public final class XPathRuleEditorController extends AbstractController implemen
         }
 
         @Override
-        public void handleXPathSuccess(List<Node> results) {
-            updateResults(false, false, results, NO_MATCH_MESSAGE);
+        public void handleXPathSuccess(XPathResults results) {
+            // e.g. abandoned evaluations have no result
+            String placeholder = results.isComplete() ? NO_MATCH_MESSAGE : "XPath evaluation " + results.getStopReason();
+            updateResults(false, false, results, placeholder);
             // Notify that everything went OK so we can avoid logging very recent exceptions
             raiseParsableXPathFlag();
         }
@@ -6,7 +6,13 @@ package net.sourceforge.pmd.util.fxdesigner.app;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits;
 
 import com.sun.javafx.application.ParametersImpl;
 import javafx.application.Application.Parameters;
@@ -20,16 +26,22 @@ import javafx.application.Application.Parameters;
  */
 public final class DesignerParams {
 
+    private static final Logger LOGGER = Logger.getLogger(DesignerParams.class.getName());
+
     private static final Path PMD_SETTINGS_DIR = Paths.get(System.getProperty("user.home"), ".pmd");
     private static final Path THIS_DESIGNER_SETTINGS_DIR = PMD_SETTINGS_DIR.resolve("rule-designer");
 
     private static final String SETTINGS_INPUT = "load-from";
     private static final String SETTINGS_OUTPUT = "persist-to";
+    private static final String XPATH_MAX_RESULTS = "xpath-max-results";
+    private static final String XPATH_TIMEOUT_MILLIS = "xpath-timeout-ms";
 
 
     private boolean isDeveloperMode;
     private Path persistedInputFile;
     private Path persistedOutputFile;
+    /** Changes to the default limits, set by the parameters. */
+    private UnaryOperator<XPathEvaluationLimits> xpathLimitsOverrides = UnaryOperator.identity();
 
 
     public DesignerParams(String... args) {
@@ -55,6 +67,12 @@ public final class DesignerParams {
                 case SETTINGS_OUTPUT:
                     persistedOutputFile = Paths.get(value);
                     break;
+                case XPATH_MAX_RESULTS:
+                    overrideLimits(name, value, v -> limits -> limits.withMaxResults(Integer.parseInt(v)));
+                    break;
+                case XPATH_TIMEOUT_MILLIS:
+                    overrideLimits(name, value, v -> limits -> limits.withTimeout(Duration.ofMillis(Long.parseLong(v))));
+                    break;
                 default:
                     break;
                 }
@@ -63,14 +81,32 @@ public final class DesignerParams {
 
     }
 
+    /**
+     * Adds an override of the limits, if the value is valid. Otherwise,
+     * reports it and keeps the limits as they are.
+     */
+    private void overrideLimits(String name, String value, Function<String, UnaryOperator<XPathEvaluationLimits>> parser) {
+        UnaryOperator<XPathEvaluationLimits> override = parser.apply(value.trim());
+        try {
+            // check that it's valid
+            override.apply(XPathEvaluationLimits.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            // this includes NumberFormatException
+            LOGGER.warning("Ignoring invalid parameter --" + name + "=" + value + ": " + e.getMessage());
+            return;
+        }
+        UnaryOperator<XPathEvaluationLimits> previous = xpathLimitsOverrides;
+        xpathLimitsOverrides = limits -> override.apply(previous.apply(limits));
+    }
+
     public Path getSettingsDirectory() {
         return THIS_DESIGNER_SETTINGS_DIR;
     }
 
-    void processDefaults(Path defaultAppStateFile) {
+    void processDefaults(Path defaultAppStateInput, Path defaultAppStateOutput) {
         if (persistedInputFile == null && persistedOutputFile == null) {
-            persistedInputFile = defaultAppStateFile;
-            persistedOutputFile = defaultAppStateFile;
+            persistedInputFile = defaultAppStateInput;
+            persistedOutputFile = defaultAppStateOutput;
         }
     }
 
@@ -85,4 +121,22 @@ public final class DesignerParams {
     public Path getPersistedOutputFile() {
         return persistedOutputFile;
     }
+
+    /**
+     * Limits of the XPath evaluations, set with the parameters
+     * {@code --xpath-max-results} and {@code --xpath-timeout-ms}.
+     * The limits that are not set are those of {@link XPathEvaluationLimits#DEFAULT}.
+     */
+    public XPathEvaluationLimits getXPathLimits() {
+        return getXPathLimits(XPathEvaluationLimits.DEFAULT);
+    }
+
+    /**
+     * Limits of the XPath evaluations, set with the parameters
+     * {@code --xpath-max-results} and {@code --xpath-timeout-ms}.
+     * The limits that are not set are taken from the given defaults.
+     */
+    public XPathEvaluationLimits getXPathLimits(XPathEvaluationLimits defaults) {
+        return xpathLimitsOverrides.apply(defaults);
+    }
 }
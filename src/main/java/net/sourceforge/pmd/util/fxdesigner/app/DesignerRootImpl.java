@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.util.fxdesigner.app;
 
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,6 +19,7 @@ import net.sourceforge.pmd.util.fxdesigner.app.services.LogEntry;
 import net.sourceforge.pmd.util.fxdesigner.app.services.LogEntry.Category;
 import net.sourceforge.pmd.util.fxdesigner.app.services.OnDiskPersistenceManager;
 import net.sourceforge.pmd.util.fxdesigner.app.services.TestCreatorService;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluator;
 import net.sourceforge.pmd.util.fxdesigner.model.export.TreeRendererRegistry;
 
 import javafx.application.HostServices;
@@ -47,6 +49,8 @@ public final class DesignerRootImpl implements DesignerRoot {
         this.mainStage = mainStage;
         this.developerMode = params.isDeveloperMode();
 
+        XPathEvaluator.setDefaultLimits(params.getXPathLimits());
+
         registerService(LOGGER, new EventLoggerImpl(this));
 
         // vetoed by any other key press, so that eg CTRL+V repeatedly vetoes it
@@ -58,10 +62,16 @@ public final class DesignerRootImpl implements DesignerRoot {
         GlobalDiskManagerImpl diskManager = new GlobalDiskManagerImpl(this, params.getSettingsDirectory());
         registerService(DISK_MANAGER, diskManager);
 
-        params.processDefaults(diskManager.defaultAppStateFile());
+        params.processDefaults(diskManager.defaultAppStateInput(), diskManager.defaultAppStateFile());
 
         registerService(HOST_SERVICES, hostServices);
-        registerService(PERSISTENCE_MANAGER, new OnDiskPersistenceManager(this, params.getPersistedInputFile(), params.getPersistedOutputFile()));
+        Path persistedInput = params.getPersistedInputFile();
+        // only fall back on the legacy app state if the input is the default one
+        Path fallbackInput = diskManager.defaultAppStateFile().equals(persistedInput)
+                             ? diskManager.legacyAppStateFile()
+                             : null;
+        registerService(PERSISTENCE_MANAGER,
+                        new OnDiskPersistenceManager(this, persistedInput, fallbackInput, params.getPersistedOutputFile()));
         registerService(NODE_SELECTION_CHANNEL, new MessageChannel<>(Category.SELECTION_EVENT_TRACING));
         registerService(LATEST_XPATH, new MessageChannel<>(Category.SELECTION_EVENT_TRACING));
         registerService(TEST_LOADER, new MessageChannel<>(Category.TEST_LOADING_EVENT));
@@ -5,22 +5,39 @@
 package net.sourceforge.pmd.util.fxdesigner.app;
 
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reactfx.EventStream;
 import org.reactfx.EventStreams;
 import org.reactfx.Subscription;
+import org.reactfx.value.Val;
 
+import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager;
+import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager.AnalysisStage;
 import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery;
 import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationException;
 import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluator;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathResults;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
+
+import javafx.concurrent.Task;
 
 public abstract class XPathUpdateSubscriber implements ApplicationComponent {
 
+    /**
+     * Waits for the evaluations, which may be abandoned if the engine
+     * takes too long, see {@link XPathEvaluator#evaluateQueryWithDeadline}.
+     */
+    private static final ExecutorService EVALUATION_EXECUTOR =
+        Executors.newCachedThreadPool(DesignerUtil.daemonThreadFactory("designer-xpath-subscriber"));
+
     private final DesignerRoot root;
     private Subscription subscription = () -> {};
 
@@ -31,48 +48,84 @@ public abstract class XPathUpdateSubscriber implements ApplicationComponent {
     public Subscription init(ASTManager astManager) {
         MessageChannel<VersionedXPathQuery> service = root.getService(DesignerRoot.LATEST_XPATH);
 
+        AnalysisStage stage = requiredStage();
+        Val<Node> compilationUnit = astManager.compilationUnitProperty(stage);
 
         EventStream<?> merged = EventStreams.merge(
-            astManager.compilationUnitProperty().values(),
+            compilationUnit.values(),
             additionalTicks(),
             service.messageStream(true, this),
             astManager.ruleProperties().values().withDefaultEvent(Collections.emptyMap())
         );
 
-        subscription = merged.subscribe(
-            tick -> {
-                Node compil = astManager.compilationUnitProperty().getOrElse(null);
-                VersionedXPathQuery query = service.latestMessage().getOrElse(null);
-                Map<String, String> props = astManager.ruleProperties().getOrElse(Collections.emptyMap());
-
-                if (compil == null) {
-                    handleNoCompilationUnit();
-                    return;
-                }
-                if (query == null || StringUtils.isBlank(query.getExpression())) {
-                    handleNoXPath();
-                    return;
-                }
-
-
-                try {
-                    List<Node> results = XPathEvaluator.evaluateQuery(compil,
-                                                                      astManager.languageVersionProperty().getValue(),
-                                                                      query.getVersion(),
-                                                                      query.getExpression(),
-                                                                      props,
-                                                                      query.getDefinedProperties());
-
-                    handleXPathSuccess(results);
-                } catch (XPathEvaluationException e) {
-                    handleXPathError(e);
-                }
-
-            });
+        // The query is evaluated on another thread, so that a runaway query
+        // doesn't freeze the app. A new tick cancels the in-flight evaluation
+        // and only the outcome of the latest one is handled.
+        subscription = merged.map(tick -> prepareEvaluation(astManager,
+                                                            compilationUnit.getOrElse(null),
+                                                            service.latestMessage().getOrElse(null)))
+                             .mapToTask(XPathUpdateSubscriber::evaluateAsync)
+                             .awaitLatest()
+                             .subscribe(outcome -> {
+                                 if (outcome.isSuccess()) {
+                                     outcome.get().run();
+                                 } else {
+                                     logInternalException(outcome.getFailure());
+                                 }
+                             });
 
         return this::unsubscribe;
     }
 
+
+    /**
+     * Snapshots the parameters of the evaluation on the FX thread. The
+     * returned evaluation runs on another thread, and returns the handler
+     * to call on the FX thread with its outcome.
+     */
+    private Callable<Runnable> prepareEvaluation(ASTManager astManager,
+                                                 @Nullable Node compil,
+                                                 @Nullable VersionedXPathQuery query) {
+        Map<String, String> props = astManager.ruleProperties().getOrElse(Collections.emptyMap());
+        LanguageVersion languageVersion = astManager.languageVersionProperty().getValue();
+
+        if (compil == null) {
+            Runnable handler = this::handleNoCompilationUnit;
+            return () -> handler;
+        }
+        if (query == null || StringUtils.isBlank(query.getExpression())) {
+            Runnable handler = this::handleNoXPath;
+            return () -> handler;
+        }
+
+        return () -> {
+            try {
+                XPathResults results = XPathEvaluator.evaluateQueryWithDeadline(compil,
+                                                                                languageVersion,
+                                                                                query.getVersion(),
+                                                                                query.getExpression(),
+                                                                                props,
+                                                                                query.getDefinedProperties());
+
+                return () -> handleXPathSuccess(results);
+            } catch (XPathEvaluationException e) {
+                return () -> handleXPathError(e);
+            }
+        };
+    }
+
+
+    private static Task<Runnable> evaluateAsync(Callable<Runnable> evaluation) {
+        Task<Runnable> task = new Task<Runnable>() {
+            @Override
+            protected Runnable call() throws Exception {
+                return evaluation.call();
+            }
+        };
+        EVALUATION_EXECUTOR.execute(task);
+        return task;
+    }
+
     /**
      * Additional refresh ticks. By default, the changes of
      * {@link ASTManager#compilationUnitProperty()}, of the local XPath
@@ -84,6 +137,18 @@ public abstract class XPathUpdateSubscriber implements ApplicationComponent {
     }
 
 
+    /**
+     * Stage the compilation unit must have reached before the query
+     * is evaluated. By default, the query is only evaluated on fully
+     * analysed trees. Both stages are currently published at the same
+     * time, see {@link ASTManager#compilationUnitProperty(AnalysisStage)},
+     * so either way the query is evaluated once per tree.
+     */
+    public AnalysisStage requiredStage() {
+        return AnalysisStage.ANALYSED;
+    }
+
+
     @Override
     public DesignerRoot getDesignerRoot() {
         return root;
@@ -95,7 +160,13 @@ public abstract class XPathUpdateSubscriber implements ApplicationComponent {
     public abstract void handleNoCompilationUnit();
 
 
-    public abstract void handleXPathSuccess(List<Node> results);
+    /**
+     * Handles the results of a successful evaluation. The evaluation
+     * may have been stopped early if it hit the limits of the evaluator,
+     * or abandoned if the engine didn't return shortly after the deadline,
+     * see {@link XPathResults#isComplete()}.
+     */
+    public abstract void handleXPathSuccess(XPathResults results);
 
 
     public abstract void handleXPathError(Exception e);
@@ -16,6 +16,7 @@ import net.sourceforge.pmd.util.fxdesigner.SourceEditorController;
 import net.sourceforge.pmd.util.fxdesigner.app.ApplicationComponent;
 import net.sourceforge.pmd.util.fxdesigner.model.ParseAbortedException;
 import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsOwner;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.NodeIntervalIndex;
 
 
 /**
@@ -39,9 +40,33 @@ public interface ASTManager extends ApplicationComponent, SettingsOwner {
     Val<LanguageVersion> languageVersionProperty();
 
 
+    /**
+     * The latest compilation unit that was fully analysed, i.e. for which
+     * the symbol table, qualified names and types are available. This is
+     * equivalent to {@code compilationUnitProperty(AnalysisStage.ANALYSED)}.
+     */
     Val<Node> compilationUnitProperty();
 
 
+    /**
+     * The latest compilation unit that reached the given stage. Components
+     * that only need the syntactic structure (e.g. the AST tree view) use
+     * the {@link AnalysisStage#PARSED} stage. Since the analysis passes
+     * mutate the tree, it's only published once they're done, at both
+     * stages at the same time, so that each tree is handled once by the
+     * subscribers of either stage.
+     */
+    Val<Node> compilationUnitProperty(AnalysisStage stage);
+
+
+    /**
+     * The index of the text ranges of the nodes of the latest parsed
+     * compilation unit, i.e. {@code compilationUnitProperty(AnalysisStage.PARSED)}.
+     * Use it to find the node at an offset of the source text.
+     */
+    Val<NodeIntervalIndex> nodeIndexProperty();
+
+
     Val<ClassLoader> classLoaderProperty();
 
 
@@ -50,4 +75,19 @@ public interface ASTManager extends ApplicationComponent, SettingsOwner {
 
     Var<Map<String, String>> ruleProperties();
 
+
+    /**
+     * Stages through which a compilation unit goes before being published
+     * by {@link #compilationUnitProperty(AnalysisStage)}.
+     */
+    enum AnalysisStage {
+        /**
+         * The tree is parsed, but the symbol table, qualified name and
+         * type resolution passes may not have run yet.
+         */
+        PARSED,
+        /** All the analysis passes have run on the tree. */
+        ANALYSED
+    }
+
 }
@@ -7,31 +7,39 @@ package net.sourceforge.pmd.util.fxdesigner.app.services;
 import static net.sourceforge.pmd.util.fxdesigner.util.reactfx.ReactfxUtil.latestValue;
 import static net.sourceforge.pmd.util.fxdesigner.util.reactfx.VetoableEventStream.vetoableNull;
 
-import java.io.StringReader;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactfx.util.Try;
 import org.reactfx.value.SuspendableVar;
 import org.reactfx.value.Val;
 import org.reactfx.value.Var;
 
 import net.sourceforge.pmd.lang.LanguageVersion;
-import net.sourceforge.pmd.lang.LanguageVersionHandler;
-import net.sourceforge.pmd.lang.Parser;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.util.fxdesigner.SourceEditorController;
 import net.sourceforge.pmd.util.fxdesigner.app.ApplicationComponent;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
 import net.sourceforge.pmd.util.fxdesigner.app.services.LogEntry.Category;
 import net.sourceforge.pmd.util.fxdesigner.model.ParseAbortedException;
+import net.sourceforge.pmd.util.fxdesigner.model.ParseUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.AuxLanguageRegistry;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.Tuple3;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.NodeIntervalIndex;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 
 
 /**
@@ -42,14 +50,30 @@ import net.sourceforge.pmd.util.fxdesigner.util.Tuple3;
  */
 public class ASTManagerImpl implements ASTManager {
 
+    /**
+     * Parses are performed on this pool, which is shared by all the AST
+     * managers of the app (the main editor and one per test case).
+     */
+    private static final ExecutorService PARSE_EXECUTOR =
+        Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                                     DesignerUtil.daemonThreadFactory("designer-parser"));
+
     private final DesignerRoot designerRoot;
 
     private final Var<ClassLoader> auxclasspathClassLoader = Var.newSimpleVar(null);
 
     /**
-     * Most up-to-date compilation unit. Is null if the current source cannot be parsed.
+     * Most up-to-date analysed compilation unit. Is null if the current source cannot be parsed.
      */
     private final SuspendableVar<Node> compilationUnit = Var.<Node>newSimpleVar(null).suspendable();
+    /**
+     * Most up-to-date parsed compilation unit. The analysis passes mutate
+     * the tree, so it's only published once they're done, at the same time
+     * as {@link #compilationUnit}, which is the same tree.
+     */
+    private final Var<Node> parsedCompilationUnit = Var.newSimpleVar(null);
+    /** Index of {@link #parsedCompilationUnit}, which is built with it on the parser thread. */
+    private final Val<NodeIntervalIndex> nodeIndex = parsedCompilationUnit.map(NodeIntervalIndex::forRoot);
     /**
      * Selected language version.
      */
@@ -63,45 +87,22 @@ public class ASTManagerImpl implements ASTManager {
 
     private Var<Map<String, String>> ruleProperties = Var.newSimpleVar(Collections.emptyMap());
 
+    private final Var<Duration> parseLatency = Var.newSimpleVar(null);
+
     public ASTManagerImpl(DesignerRoot owner) {
         this.designerRoot = owner;
 
         // Refresh the AST anytime the text, classloader, or language version changes
+        // Parsing is done in the background, a new request cancels the in-flight
+        // parse and only the result of the latest one is published
         sourceCode.values()
                   .or(auxclasspathClassLoader.values())
                   .or(languageVersionProperty().values())
                   .map(tick -> new Tuple3<>(getSourceCode(), getLanguageVersion(), classLoaderProperty().getValue()))
                   .distinct()
-                  .subscribe(tick -> {
-
-                      String source = tick.first;
-                      LanguageVersion version = tick.second;
-                      ClassLoader classLoader = tick.third;
-
-
-                      if (StringUtils.isBlank(source) || version == null) {
-                          compilationUnit.setValue(null);
-                          currentException.setValue(null);
-                          return;
-                      }
-
-                      if (classLoader == null) {
-                          classLoader = ASTManagerImpl.class.getClassLoader();
-                      }
-
-                      Node updated;
-                      try {
-                          updated = refreshAST(this, source, version, classLoader).orElse(null);
-                          currentException.setValue(null);
-                      } catch (ParseAbortedException e) {
-                          updated = null;
-                          currentException.setValue(e);
-                      } catch (LinkageError e) {
-                          updated = null;
-                      }
-
-                      compilationUnit.setValue(updated);
-                  });
+                  .mapToTask(this::parseAsync)
+                  .awaitLatest()
+                  .subscribe(this::publishResult);
     }
 
     public ASTManagerImpl(ASTManagerImpl base, Function<LanguageVersion, LanguageVersion> languageVersionMap) {
@@ -164,63 +165,177 @@ public class ASTManagerImpl implements ASTManager {
 
     @Override
     public Val<Node> compilationUnitProperty() {
+        return compilationUnitProperty(AnalysisStage.ANALYSED);
+    }
+
+    @Override
+    public Val<Node> compilationUnitProperty(AnalysisStage stage) {
+        Val<Node> base = stage == AnalysisStage.PARSED ? parsedCompilationUnit : compilationUnit;
         // veto null events to ignore null compilation units if they're
         // followed by a valid one quickly
-        Val<Node> nodeVal = latestValue(vetoableNull(compilationUnit.values(), Duration.ofMillis(500)));
+        Val<Node> nodeVal = latestValue(vetoableNull(base.values(), Duration.ofMillis(500)));
         nodeVal.pin();
         return nodeVal;
     }
 
+    @Override
+    public Val<NodeIntervalIndex> nodeIndexProperty() {
+        return nodeIndex;
+    }
+
     @Override
     public Var<ParseAbortedException> currentExceptionProperty() {
         return currentException;
     }
 
     /**
-     * Refreshes the compilation unit given the current state of the model.
-     *
-     * @throws ParseAbortedException if parsing fails and cannot recover
+     * Time elapsed between the last change of the parameters (source,
+     * language version, classloader) and the publication of the
+     * corresponding compilation unit. Empty until the first parse
+     * completes.
      */
-    private static Optional<Node> refreshAST(ApplicationComponent component,
-                                             String source,
-                                             LanguageVersion version,
-                                             ClassLoader classLoader) throws ParseAbortedException {
+    public Val<Duration> parseLatencyProperty() {
+        return parseLatency;
+    }
 
-        LanguageVersionHandler languageVersionHandler = version.getLanguageVersionHandler();
-        Parser parser = languageVersionHandler.getParser(languageVersionHandler.getDefaultParserOptions());
 
-        Node node;
-        try {
-            node = parser.parse(null, new StringReader(source));
-        } catch (Exception e) {
-            component.logUserException(e, Category.PARSE_EXCEPTION);
-            throw new ParseAbortedException(e);
+    private Task<ParseResult> parseAsync(Tuple3<String, LanguageVersion, ClassLoader> params) {
+        long requestTime = System.nanoTime();
+        Task<ParseResult> task = new Task<ParseResult>() {
+            @Override
+            protected ParseResult call() throws ParseAbortedException {
+                long start = System.nanoTime();
+                Node node = parse(ASTManagerImpl.this, params.first, params.second).orElse(null);
+                long parsed = System.nanoTime();
+
+                if (node == null || isCancelled()) {
+                    return new ParseResult(null, requestTime, start, parsed, parsed);
+                }
+
+                NodeIntervalIndex.build(node, params.first);
+                // The FX thread only gets the tree once it's analysed, since
+                // the analysis passes mutate the nodes. Parsing a second tree
+                // to publish earlier would double the work on every edit.
+                analyse(ASTManagerImpl.this, node, params.second, params.third, this::isCancelled);
+                return new ParseResult(node, requestTime, start, parsed, System.nanoTime());
+            }
+        };
+        PARSE_EXECUTOR.execute(task);
+        return task;
+    }
+
+
+    /** Called on the FX thread with the result of the latest request, once analysis is done. */
+    private void publishResult(Try<ParseResult> result) {
+        if (result.isSuccess()) {
+            ParseResult parse = result.get();
+            currentException.setValue(null);
+            parsedCompilationUnit.setValue(parse.node);
+            compilationUnit.setValue(parse.node);
+            recordLatency(parse);
+            return;
         }
 
+        Throwable failure = result.getFailure();
+        if (failure instanceof ParseAbortedException) {
+            currentException.setValue((ParseAbortedException) failure);
+        } else if (!(failure instanceof LinkageError)) {
+            logInternalException(failure);
+        }
+        parsedCompilationUnit.setValue(null);
+        compilationUnit.setValue(null);
+    }
 
-        try {
-            languageVersionHandler.getSymbolFacade().start(node);
-        } catch (Exception e) {
-            component.logUserException(e, Category.SYMBOL_FACADE_EXCEPTION);
+
+    private void recordLatency(ParseResult parse) {
+        if (parse.node == null) {
+            // nothing was parsed
+            return;
         }
-        try {
-            languageVersionHandler.getQualifiedNameResolutionFacade(classLoader).start(node);
-        } catch (Exception e) {
-            component.logUserException(e, Category.QNAME_RESOLUTION_EXCEPTION);
+
+        Duration latency = Duration.ofNanos(System.nanoTime() - parse.requestTime);
+        Duration parseTime = Duration.ofNanos(parse.parsedTime - parse.startTime);
+        Duration analysisTime = Duration.ofNanos(parse.endTime - parse.parsedTime);
+        parseLatency.setValue(latency);
+
+        logInternalDebugInfo(
+            () -> "AST published in " + latency.toMillis() + " ms",
+            () -> "Parsing took " + parseTime.toMillis() + " ms, analysis took " + analysisTime.toMillis() + " ms, "
+                + "the rest was spent waiting for a parser thread and for the FX thread"
+        );
+    }
+
+    /**
+     * Parses the source. This runs on a parser thread, so exceptions are
+     * forwarded to the logger on the FX thread.
+     *
+     * @return The new compilation unit, empty if there's nothing to parse
+     *
+     * @throws ParseAbortedException if parsing fails and cannot recover
+     */
+    private static Optional<Node> parse(ApplicationComponent component,
+                                        String source,
+                                        LanguageVersion version) throws ParseAbortedException {
+
+        if (StringUtils.isBlank(source) || version == null) {
+            return Optional.empty();
         }
 
+        Node node;
         try {
-            languageVersionHandler.getTypeResolutionFacade(classLoader).start(node);
-        } catch (Exception e) {
-            component.logUserException(e, Category.TYPERESOLUTION_EXCEPTION);
+            node = ParseUtil.parse(source, version);
+        } catch (ParseAbortedException e) {
+            logLater(component, e.getCause(), Category.PARSE_EXCEPTION);
+            throw e;
         }
 
         // Notify that the parse went OK so we can avoid logging very recent exceptions
 
-        component.raiseParsableSourceFlag(() -> "Param hash: " + Objects.hash(source, version, classLoader));
+        int paramHash = Objects.hash(source, version);
+        Platform.runLater(() -> component.raiseParsableSourceFlag(() -> "Param hash: " + paramHash));
 
         return Optional.of(node);
     }
 
 
+    /**
+     * Runs the analysis passes on a parsed node. The node must not have been
+     * published to the FX thread yet.
+     */
+    private static void analyse(ApplicationComponent component,
+                                Node node,
+                                LanguageVersion version,
+                                ClassLoader classLoader,
+                                BooleanSupplier isCancelled) {
+        ParseUtil.analyse(node, version, classLoader, isCancelled, (e, category) -> logLater(component, e, category));
+    }
+
+
+    private static void logLater(ApplicationComponent component, Throwable e, Category category) {
+        Platform.runLater(() -> component.logUserException(e, category));
+    }
+
+
+    /** Result of a background parse, with some timing info (nanoseconds). */
+    private static final class ParseResult {
+
+        private final @Nullable Node node;
+        /** Time at which the parse was requested. */
+        private final long requestTime;
+        /** Time at which a parser thread started processing the request. */
+        private final long startTime;
+        /** Time at which the parse was done, before the analysis. */
+        private final long parsedTime;
+        private final long endTime;
+
+
+        ParseResult(@Nullable Node node, long requestTime, long startTime, long parsedTime, long endTime) {
+            this.node = node;
+            this.requestTime = requestTime;
+            this.startTime = startTime;
+            this.parsedTime = parsedTime;
+            this.endTime = endTime;
+        }
+    }
+
 }
@@ -0,0 +1,231 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.app.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Append-only history of the snapshots of the app state, kept in a
+ * single file. Each entry is a header line {@code <epoch millis> <designer version> <length>},
+ * followed by the bytes of the snapshot and a line feed. When the file
+ * grows past a size budget, it's compacted to the most recent entries.
+ *
+ * <p>This replaces committing the app state file into a git repository,
+ * which needed external processes.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class AppStateHistory {
+
+    /** Size past which the history is compacted. */
+    private static final long MAX_HISTORY_BYTES = 2 * 1024 * 1024;
+
+    private final Path file;
+    private final long maxBytes;
+
+
+    AppStateHistory(Path file) {
+        this(file, MAX_HISTORY_BYTES);
+    }
+
+
+    AppStateHistory(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+
+    Path getFile() {
+        return file;
+    }
+
+
+    /**
+     * Appends a snapshot to the history. If the end of the file is
+     * corrupted, it's truncated first, so that the new entry directly
+     * follows the last valid one and stays readable.
+     *
+     * @param timestamp Time of the snapshot, in epoch millis
+     * @param version   Version of the designer that wrote the snapshot
+     * @param snapshot  Contents of the app state file
+     */
+    synchronized void append(long timestamp, String version, byte[] snapshot) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        truncateCorruptedTail();
+        Files.write(file,
+                    encode(new Entry(timestamp, version, snapshot)),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        if (Files.size(file) > maxBytes) {
+            compact();
+        }
+    }
+
+
+    /**
+     * Returns the entries of the history, oldest first. If the end of
+     * the file is corrupted, e.g. because the app was killed during an
+     * append, the entries before it are still returned.
+     */
+    synchronized List<Entry> readEntries() throws IOException {
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        parse(Files.readAllBytes(file), entries);
+        return entries;
+    }
+
+
+    /**
+     * Cuts the file at the end of its last valid entry, dropping a
+     * partial entry left by an interrupted append.
+     */
+    private void truncateCorruptedTail() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        int validEnd = parse(Files.readAllBytes(file), new ArrayList<>());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > validEnd) {
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+
+    /**
+     * Adds the valid entries of the bytes to the list, stopping at the
+     * first corrupted one. Returns the offset of the end of the last
+     * valid entry.
+     */
+    private static int parse(byte[] bytes, List<Entry> entries) {
+        int pos = 0;
+        while (pos < bytes.length) {
+            int headerEnd = indexOf(bytes, (byte) '\n', pos);
+            if (headerEnd < 0) {
+                break;
+            }
+            String[] header = new String(bytes, pos, headerEnd - pos, StandardCharsets.UTF_8).split(" ");
+            int length;
+            long timestamp;
+            try {
+                timestamp = Long.parseLong(header[0]);
+                length = Integer.parseInt(header[2]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                break;
+            }
+            int start = headerEnd + 1;
+            // the trailing line feed is part of the entry
+            if (length < 0 || start + length >= bytes.length || bytes[start + length] != '\n') {
+                break;
+            }
+            byte[] snapshot = new byte[length];
+            System.arraycopy(bytes, start, snapshot, 0, length);
+            entries.add(new Entry(timestamp, header[1], snapshot));
+            pos = start + length + 1;
+        }
+        return pos;
+    }
+
+
+    /** Keeps the most recent entries that fit in half the size budget. */
+    private void compact() throws IOException {
+        List<Entry> entries = readEntries();
+        List<byte[]> kept = new ArrayList<>();
+        long size = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            byte[] encoded = encode(entries.get(i));
+            // always keep the latest one
+            if (!kept.isEmpty() && size + encoded.length > maxBytes / 2) {
+                break;
+            }
+            kept.add(encoded);
+            size += encoded.length;
+        }
+        Collections.reverse(kept);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) size);
+        for (byte[] encoded : kept) {
+            out.write(encoded);
+        }
+        writeAtomically(file, out.toByteArray());
+    }
+
+
+    private static byte[] encode(Entry entry) {
+        byte[] header = (entry.timestamp + " " + entry.version.replace(' ', '_') + " " + entry.snapshot.length + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[header.length + entry.snapshot.length + 1];
+        System.arraycopy(header, 0, result, 0, header.length);
+        System.arraycopy(entry.snapshot, 0, result, header.length, entry.snapshot.length);
+        result[result.length - 1] = '\n';
+        return result;
+    }
+
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Replaces the contents of the file with the given bytes, by writing
+     * them to a temp file in the same directory and then renaming it.
+     * Readers either see the old contents or the new ones, never a
+     * partially written file.
+     */
+    static void writeAtomically(Path target, byte[] contents) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, contents);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+
+    /** An entry of the history. */
+    static final class Entry {
+
+        final long timestamp;
+        final String version;
+        final byte[] snapshot;
+
+
+        Entry(long timestamp, String version, byte[] snapshot) {
+            this.timestamp = timestamp;
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -23,7 +23,9 @@ import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
 public class GlobalDiskManagerImpl implements GlobalDiskManager, ApplicationComponent {
 
 
-    public static final String APPSTATE_NAME = "appstate.xml";
+    public static final String APPSTATE_NAME = "appstate.bin";
+    /** Name of the app state file before it was saved in binary. */
+    private static final String LEGACY_APPSTATE_NAME = "appstate.xml";
     private static final String STAMP_PREFIX = "version-";
     private final DesignerRoot root;
     private final Path settingsDirectory;
@@ -71,6 +73,28 @@ public class GlobalDiskManagerImpl implements GlobalDiskManager, ApplicationComp
         return settingsDirectory.resolve(APPSTATE_NAME);
     }
 
+    /**
+     * Returns the file from which to restore the app state by default.
+     * This is the {@linkplain #defaultAppStateFile() default app state file},
+     * or the legacy XML app state if the former doesn't exist yet, so
+     * that the settings are migrated on the first save.
+     */
+    public Path defaultAppStateInput() {
+        Path appState = defaultAppStateFile();
+        Path legacy = legacyAppStateFile();
+        return !Files.exists(appState) && Files.exists(legacy) ? legacy : appState;
+    }
+
+    /**
+     * Returns the XML app state of older versions. It's left in place
+     * after the migration, so the app state can still be restored from
+     * it if the {@linkplain #defaultAppStateFile() default app state file}
+     * is corrupted.
+     */
+    public Path legacyAppStateFile() {
+        return settingsDirectory.resolve(LEGACY_APPSTATE_NAME);
+    }
+
     @Override
     public Path getSettingsDirectory() {
         return settingsDirectory;
@@ -7,28 +7,82 @@ package net.sourceforge.pmd.util.fxdesigner.app.services;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.reactfx.util.FxTimer;
+import org.reactfx.util.Timer;
 
 import net.sourceforge.pmd.util.fxdesigner.Designer;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsOwner;
 import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.SettingsFormat;
+
+import javafx.application.Platform;
 
 /**
  * Default persistence manager.
  *
+ * <p>Once the settings have been restored, a snapshot of the settings
+ * is taken periodically on the FX thread. Snapshots are written on a
+ * background thread, and a write only happens if the snapshot differs
+ * from the last one that was written, so rapid saves are coalesced.
+ * The output file is replaced atomically, and each written snapshot is
+ * appended to an {@link AppStateHistory} next to the output file.
+ *
+ * <p>The format of the output is chosen with {@link SettingsFormat#forFile(Path)}:
+ * the app state is saved in binary, unless XML was asked for explicitly.
+ * The input may be in any format. If it can't be read, the settings
+ * are restored from the fallback input instead, if there is one.
+ *
  * @author Clément Fournier
  */
-public class OnDiskPersistenceManager implements PersistenceManager {
+public class OnDiskPersistenceManager implements PersistenceManager, CloseableService {
+
+    private static final Duration AUTO_SAVE_PERIOD = Duration.ofSeconds(30);
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
 
     private final DesignerRoot root;
     private final Path input;
+    private final Path fallbackInput;
     private final Path output;
+    private final AppStateHistory history;
+    private final SettingsFormat format;
+
+    private final ExecutorService writer =
+        Executors.newSingleThreadExecutor(DesignerUtil.daemonThreadFactory("designer-persistence"));
+    /** Latest snapshot that's not been written yet, null if there is none. */
+    private final AtomicReference<byte[]> pendingSnapshot = new AtomicReference<>();
+    /** Contents of the output file, only accessed by the writer thread. */
+    private byte[] lastWritten;
+    private Timer autoSave;
 
     public OnDiskPersistenceManager(DesignerRoot root, Path input, Path output) {
+        this(root, input, null, output);
+    }
+
+    /**
+     * Creates a manager.
+     *
+     * @param input         File from which the settings are restored
+     * @param fallbackInput File from which the settings are restored if the input
+     *                      is corrupted, may be null
+     * @param output        File to which the settings are saved, may be null
+     */
+    public OnDiskPersistenceManager(DesignerRoot root, Path input, Path fallbackInput, Path output) {
         this.root = root;
         this.input = input;
+        this.fallbackInput = fallbackInput;
         this.output = output;
+        this.history = output == null ? null : new AppStateHistory(output.resolveSibling(output.getFileName() + ".history"));
+        this.format = output == null ? null : SettingsFormat.forFile(output);
     }
 
 
@@ -51,10 +105,32 @@ public class OnDiskPersistenceManager implements PersistenceManager {
             Path realInput = extraction != null ? extraction.get() : input;
 
             SettingsPersistenceUtil.restoreProperties(settingsOwner, realInput.toFile());
+
+            if (realInput.equals(output) && Files.exists(realInput)) {
+                byte[] restored = Files.readAllBytes(realInput);
+                writer.execute(() -> lastWritten = restored);
+            }
         } catch (Exception e) {
             // shouldn't prevent the app from opening
             // in case the file is corrupted, it will be overwritten on shutdown
             logInternalException(e);
+            restoreFallback(settingsOwner);
+        }
+
+        if (output != null && autoSave == null) {
+            autoSave = FxTimer.runPeriodically(AUTO_SAVE_PERIOD, () -> persistSettings(settingsOwner));
+        }
+    }
+
+    private void restoreFallback(SettingsOwner settingsOwner) {
+        if (fallbackInput == null || fallbackInput.equals(input) || !Files.isRegularFile(fallbackInput)) {
+            return;
+        }
+
+        try {
+            SettingsPersistenceUtil.restoreProperties(settingsOwner, fallbackInput.toFile());
+        } catch (Exception e) {
+            logInternalException(e);
         }
     }
 
@@ -65,8 +141,26 @@ public class OnDiskPersistenceManager implements PersistenceManager {
         }
 
         try {
-            SettingsPersistenceUtil.persistProperties(settingsOwner, output.toFile());
-            commitAppState();
+            byte[] snapshot = SettingsPersistenceUtil.serializeProperties(settingsOwner, format);
+            if (pendingSnapshot.getAndSet(snapshot) == null) {
+                // otherwise a write is already scheduled, and it will pick up this snapshot
+                writer.execute(this::writePendingSnapshot);
+            }
+        } catch (Exception e) {
+            logInternalException(e);
+        }
+    }
+
+    @Override
+    public void flushSettings(SettingsOwner settingsOwner) {
+        if (output == null) {
+            return;
+        }
+
+        persistSettings(settingsOwner);
+        try {
+            // the writer is single-threaded, so this waits for the pending write
+            writer.submit(this::writePendingSnapshot).get(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
             // nevermind
             e.printStackTrace();
@@ -74,19 +168,28 @@ public class OnDiskPersistenceManager implements PersistenceManager {
     }
 
 
-    private void commitAppState() throws IOException, InterruptedException {
+    private void writePendingSnapshot() {
+        byte[] snapshot = pendingSnapshot.getAndSet(null);
+        if (snapshot == null || Arrays.equals(snapshot, lastWritten)) {
+            return;
+        }
 
-        ProcessBuilder process = new ProcessBuilder();
-        process.directory(getService(DesignerRoot.DISK_MANAGER).getSettingsDirectory().toFile());
+        try {
+            AppStateHistory.writeAtomically(output, snapshot);
+            lastWritten = snapshot;
+            history.append(System.currentTimeMillis(), Designer.getCurrentVersion(), snapshot);
+        } catch (IOException e) {
+            Platform.runLater(() -> logInternalException(e));
+        }
+    }
 
-        // if there's no git on the path then this probably fails
-        // doesn't matter though
-        process.command("git", "init");
-        process.start().waitFor();
-        process.command("git", "add", output.toString());
-        process.start().waitFor();
-        process.command("git", "commit", "-m", "\"On version " + Designer.getCurrentVersion() + "\"");
-        process.start().waitFor();
 
+    @Override
+    public void close() throws Exception {
+        if (autoSave != null) {
+            autoSave.stop();
+        }
+        writer.shutdown();
+        writer.awaitTermination(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
     }
 }
@@ -26,10 +26,20 @@ public interface PersistenceManager extends ApplicationComponent {
 
     /**
      * Save the settings from the tree rooted at the [settingsOwner]
-     * somewhere for the next runs.
+     * somewhere for the next runs. The settings are read on the calling
+     * thread, but they may be written asynchronously.
      *
      * @param settingsOwner Root of the settings owner hierarchy
      */
     void persistSettings(SettingsOwner settingsOwner);
 
+
+    /**
+     * Save the settings like {@link #persistSettings(SettingsOwner)},
+     * and wait until they're written. Called on shutdown.
+     *
+     * @param settingsOwner Root of the settings owner hierarchy
+     */
+    void flushSettings(SettingsOwner settingsOwner);
+
 }
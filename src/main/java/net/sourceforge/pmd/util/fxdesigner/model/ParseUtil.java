@@ -0,0 +1,95 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import java.io.StringReader;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.Parser;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.fxdesigner.app.services.LogEntry.Category;
+
+
+/**
+ * Parses source code and runs the analysis passes of PMD on it. None of
+ * this depends on the FX toolkit, so it may be used on any thread.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class ParseUtil {
+
+    private ParseUtil() {
+        // util
+    }
+
+
+    /**
+     * Parses the source with the parser of the given language version.
+     *
+     * @throws ParseAbortedException if parsing fails and cannot recover
+     */
+    public static Node parse(String source, LanguageVersion version) throws ParseAbortedException {
+        LanguageVersionHandler languageVersionHandler = version.getLanguageVersionHandler();
+        Parser parser = languageVersionHandler.getParser(languageVersionHandler.getDefaultParserOptions());
+
+        try {
+            return parser.parse(null, new StringReader(source));
+        } catch (Exception e) {
+            throw new ParseAbortedException(e);
+        }
+    }
+
+
+    /**
+     * Runs the symbol table, qualified name and type resolution passes
+     * on a parsed node. Exceptions thrown by a pass are forwarded to the
+     * error handler, and the next passes are still run, unless the
+     * cancellation flag was raised in the meantime.
+     *
+     * @param classLoader  Auxclasspath, if null the classloader of the app is used
+     * @param isCancelled  Checked between passes
+     * @param errorHandler Receives the exceptions thrown by the passes, with the relevant log category
+     */
+    public static void analyse(Node node,
+                               LanguageVersion version,
+                               @Nullable ClassLoader classLoader,
+                               BooleanSupplier isCancelled,
+                               BiConsumer<? super Exception, Category> errorHandler) {
+
+        if (classLoader == null) {
+            classLoader = ParseUtil.class.getClassLoader();
+        }
+
+        LanguageVersionHandler languageVersionHandler = version.getLanguageVersionHandler();
+
+        try {
+            languageVersionHandler.getSymbolFacade().start(node);
+        } catch (Exception e) {
+            errorHandler.accept(e, Category.SYMBOL_FACADE_EXCEPTION);
+        }
+        try {
+            languageVersionHandler.getQualifiedNameResolutionFacade(classLoader).start(node);
+        } catch (Exception e) {
+            errorHandler.accept(e, Category.QNAME_RESOLUTION_EXCEPTION);
+        }
+
+        if (isCancelled.getAsBoolean()) {
+            return;
+        }
+
+        try {
+            languageVersionHandler.getTypeResolutionFacade(classLoader).start(node);
+        } catch (Exception e) {
+            errorHandler.accept(e, Category.TYPERESOLUTION_EXCEPTION);
+        }
+    }
+
+}
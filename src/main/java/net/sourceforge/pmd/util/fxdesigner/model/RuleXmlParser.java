@@ -0,0 +1,121 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.properties.PropertyTypeId;
+import net.sourceforge.pmd.util.fxdesigner.util.AuxLanguageRegistry;
+
+
+/**
+ * Reads the XPath rules declared in a ruleset file, or in a file containing
+ * a single rule element as exported by the designer. Rule references and
+ * rules that are not XPath rules are ignored.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class RuleXmlParser {
+
+    private static final String XPATH_PROPERTY = "xpath";
+    private static final String VERSION_PROPERTY = "version";
+
+    private RuleXmlParser() {
+        // util
+    }
+
+
+    public static List<ObservableXPathRuleBuilder> parseXPathRules(Path path) throws Exception {
+        try (InputStream is = Files.newInputStream(path)) {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document doc = dbf.newDocumentBuilder().parse(is);
+            return parseXPathRules(doc);
+        }
+    }
+
+
+    private static List<ObservableXPathRuleBuilder> parseXPathRules(Document doc) {
+        NodeList ruleElts = doc.getElementsByTagName("rule");
+        List<ObservableXPathRuleBuilder> result = new ArrayList<>();
+
+        for (int i = 0; i < ruleElts.getLength(); i++) {
+            Element rule = (Element) ruleElts.item(i);
+            if (rule.hasAttribute("ref") || !rule.getAttribute("class").endsWith("XPathRule")) {
+                continue;
+            }
+            result.add(parseSingle(rule));
+        }
+
+        return result;
+    }
+
+
+    private static ObservableXPathRuleBuilder parseSingle(Element rule) {
+        ObservableXPathRuleBuilder builder = new ObservableXPathRuleBuilder();
+        builder.setName(rule.getAttribute("name"));
+        builder.setMessage(rule.getAttribute("message"));
+
+        String terseName = rule.getAttribute("language");
+        Language language = AuxLanguageRegistry.findLanguageByTerseName(terseName);
+        if (language == null) {
+            throw new IllegalArgumentException("Unknown language for rule " + builder.getName() + ": '" + terseName + "'");
+        }
+        builder.setLanguage(language);
+
+        NodeList properties = rule.getElementsByTagName("property");
+        for (int i = 0; i < properties.getLength(); i++) {
+            Element property = (Element) properties.item(i);
+            String name = property.getAttribute("name");
+            String value = getPropertyValue(property);
+
+            if (XPATH_PROPERTY.equals(name)) {
+                builder.setXpathExpression(value);
+            } else if (VERSION_PROPERTY.equals(name)) {
+                builder.setXpathVersion(value);
+            } else if (property.hasAttribute("type")) {
+                PropertyDescriptorSpec spec = new PropertyDescriptorSpec();
+                spec.setName(name);
+                spec.setValue(value);
+                spec.setDescription(property.getAttribute("description"));
+                PropertyTypeId typeId = PropertyTypeId.lookupMnemonic(property.getAttribute("type"));
+                if (typeId == null) {
+                    throw new IllegalArgumentException("Unknown type for property " + name + ": '" + property.getAttribute("type") + "'");
+                }
+                spec.setTypeId(typeId);
+                builder.getRuleProperties().add(spec);
+            }
+            // otherwise it overrides a built-in property, which doesn't concern tests
+        }
+
+        if (StringUtils.isBlank(builder.getXpathExpression())) {
+            throw new IllegalArgumentException("Rule " + builder.getName() + " has no XPath expression");
+        }
+
+        return builder;
+    }
+
+
+    /** The value is either in a value attribute, or in a value child element. */
+    private static String getPropertyValue(Element property) {
+        if (property.hasAttribute("value")) {
+            return property.getAttribute("value");
+        }
+        NodeList values = property.getElementsByTagName("value");
+        return values.getLength() == 0 ? "" : values.item(0).getTextContent().trim();
+    }
+}
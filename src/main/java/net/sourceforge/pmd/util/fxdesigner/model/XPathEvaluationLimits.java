@@ -0,0 +1,124 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+
+/**
+ * Bounds on the work an XPath evaluation may do before it's stopped,
+ * so that a runaway query like {@code //*} on a big file can't freeze
+ * the designer. When a limit is hit, the evaluation returns the results
+ * found so far, see {@link XPathResults#isComplete()}.
+ *
+ * <p>The XPath engines of PMD (Jaxen and Saxon) have no hook to interrupt
+ * an evaluation, so the limits are only checked between the calls the
+ * engine makes back into the designer: before the query is evaluated on
+ * each candidate node of the rule chain, and when a result is reported.
+ * An expression that is evaluated as a whole on a single candidate, e.g.
+ * {@code //*}, which starts from the root, or a query that is quadratic
+ * because of a misused axis, is not interrupted: the engine first builds
+ * its full result, and only then may the evaluation be truncated or reported
+ * as timed out. The limits still bound the number of results the designer
+ * displays, and stop queries whose work is spread over many candidates.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class XPathEvaluationLimits {
+
+    /** Limits used when none are specified. */
+    public static final XPathEvaluationLimits DEFAULT = new XPathEvaluationLimits(10_000, Duration.ofSeconds(3));
+    /** No limits at all. */
+    public static final XPathEvaluationLimits NONE = new XPathEvaluationLimits(Integer.MAX_VALUE, null);
+
+    private final int maxResults;
+    private final Duration timeout;
+
+
+    private XPathEvaluationLimits(int maxResults, Duration timeout) {
+        this.maxResults = maxResults;
+        this.timeout = timeout;
+    }
+
+
+    /**
+     * Returns new limits.
+     *
+     * @param maxResults Max number of results, strictly positive
+     * @param timeout    Max duration of an evaluation, or null for no timeout
+     *
+     * @throws IllegalArgumentException If the max number of results is not positive, or the timeout is negative
+     */
+    public static XPathEvaluationLimits of(int maxResults, Duration timeout) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("Max number of results should be positive, got " + maxResults);
+        } else if (timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout should not be negative, got " + timeout);
+        }
+        return new XPathEvaluationLimits(maxResults, timeout);
+    }
+
+
+    public XPathEvaluationLimits withMaxResults(int maxResults) {
+        return of(maxResults, timeout);
+    }
+
+
+    public XPathEvaluationLimits withTimeout(Duration timeout) {
+        return of(maxResults, timeout);
+    }
+
+
+    /** Max number of results, once it's reached the evaluation is stopped. */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+
+    /** Max duration of an evaluation, or null if there is none. */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+
+    /** Returns the time in nanos after which an evaluation started now times out. */
+    long deadlineFromNow() {
+        if (timeout == null) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        long deadline = now + timeout.toNanos();
+        // overflow
+        return deadline < now ? Long.MAX_VALUE : deadline;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        XPathEvaluationLimits that = (XPathEvaluationLimits) o;
+        return maxResults == that.maxResults
+            && Objects.equals(timeout, that.timeout);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxResults, timeout);
+    }
+
+
+    @Override
+    public String toString() {
+        return "XPathEvaluationLimits{maxResults=" + maxResults + ", timeout=" + timeout + '}';
+    }
+}
@@ -6,28 +6,27 @@ package net.sourceforge.pmd.util.fxdesigner.model;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
-import static java.util.Collections.singletonList;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.StringUtils;
 
-import net.sourceforge.pmd.Rule;
-import net.sourceforge.pmd.RuleContext;
-import net.sourceforge.pmd.RuleSet;
-import net.sourceforge.pmd.RuleSetFactory;
-import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.Node;
-import net.sourceforge.pmd.lang.rule.XPathRule;
 import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery;
-import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.util.fxdesigner.app.ApplicationComponent;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathQueryCache.PreparedQuery;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 
 
 /**
@@ -38,6 +37,20 @@ import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
  */
 public final class XPathEvaluator {
 
+    private static final XPathQueryCache QUERY_CACHE = new XPathQueryCache();
+    private static volatile XPathEvaluationLimits defaultLimits = XPathEvaluationLimits.DEFAULT;
+    /**
+     * Runs the evaluations of {@link #evaluateQueryWithDeadline}.
+     * Abandoned evaluations keep their thread until the engine returns,
+     * so threads are not shared with new evaluations.
+     */
+    private static final ExecutorService ABANDONABLE_EXECUTOR =
+        Executors.newCachedThreadPool(DesignerUtil.daemonThreadFactory("designer-xpath"));
+    /**
+     * Time given to an evaluation after its deadline, to stop by itself
+     * and return the results found until then, before it's abandoned.
+     */
+    private static final long ABANDON_GRACE_MILLIS = 100;
 
     private XPathEvaluator() {
 
@@ -70,78 +83,137 @@ public final class XPathEvaluator {
                    .orElse(Collections.emptyList());
     }
 
+    /**
+     * Evaluates an XPath query on the compilation unit, with the
+     * {@linkplain #getDefaultLimits() default limits}.
+     *
+     * @see #evaluateQuery(Node, LanguageVersion, String, String, Map, List, XPathEvaluationLimits)
+     */
+    public static XPathResults evaluateQuery(Node compilationUnit,
+                                             LanguageVersion languageVersion,
+                                             String xpathVersion,
+                                             String xpathQuery,
+                                             Map<String, String> propertyValues,
+                                             List<PropertyDescriptorSpec> properties) throws XPathEvaluationException {
+        return evaluateQuery(compilationUnit, languageVersion, xpathVersion, xpathQuery, propertyValues, properties, defaultLimits);
+    }
+
     /**
      * Evaluates an XPath query on the compilation unit. Performs
-     * no side effects.
+     * no side effects. The compiled query is cached and reused by
+     * later evaluations with the same parameters. If the evaluation
+     * hits one of the given limits, it's stopped early, and the results
+     * found until then are returned, see {@link XPathResults#isComplete()}.
      *
      * @param compilationUnit AST root
      * @param languageVersion language version
      * @param xpathVersion    XPath version
      * @param xpathQuery      XPath query
      * @param properties      Properties of the rule
+     * @param limits          Limits of the evaluation
      *
      * @throws XPathEvaluationException if there was an error during the evaluation. The cause is preserved
      */
-    public static List<Node> evaluateQuery(Node compilationUnit,
-                                           LanguageVersion languageVersion,
-                                           String xpathVersion,
-                                           String xpathQuery,
-                                           Map<String, String> propertyValues,
-                                           List<PropertyDescriptorSpec> properties) throws XPathEvaluationException {
+    public static XPathResults evaluateQuery(Node compilationUnit,
+                                             LanguageVersion languageVersion,
+                                             String xpathVersion,
+                                             String xpathQuery,
+                                             Map<String, String> propertyValues,
+                                             List<PropertyDescriptorSpec> properties,
+                                             XPathEvaluationLimits limits) throws XPathEvaluationException {
 
         if (StringUtils.isBlank(xpathQuery)) {
-            return emptyList();
+            return XPathResults.empty();
         }
 
+        PreparedQuery prepared;
         try {
-            List<Node> results = new ArrayList<>();
-
-            XPathRule xpathRule = new XPathRule() {
-                @Override
-                public void addViolation(Object data, Node node, String arg) {
-                    results.add(node);
-                }
-            };
-
+            prepared = QUERY_CACHE.borrow(languageVersion.getLanguage(), xpathVersion, xpathQuery, propertyValues, properties);
+        } catch (RuntimeException e) {
+            throw new XPathEvaluationException(e);
+        }
 
-            xpathRule.setMessage("");
-            xpathRule.setLanguage(languageVersion.getLanguage());
-            xpathRule.setXPath(xpathQuery);
-            xpathRule.setVersion(xpathVersion);
+        XPathResults results;
+        try {
+            results = prepared.evaluate(compilationUnit, languageVersion, limits);
+        } catch (RuntimeException e) {
+            // the query is not given back, its state is unknown
+            throw new XPathEvaluationException(e);
+        }
 
-            properties.stream()
-                      .map(PropertyDescriptorSpec::build)
-                      .forEach(xpathRule::definePropertyDescriptor);
+        QUERY_CACHE.release(prepared);
+        return results;
+    }
 
-            propertyValues.forEach((k, v) -> {
-                PropertyDescriptor<?> d = xpathRule.getPropertyDescriptor(k);
-                if (d != null) {
-                    setRulePropertyCapture(xpathRule, d, v);
-                } else {
-                    throw new RuntimeException("Property '" + k + "' is not defined, available properties: "
-                                                   + properties.stream().map(PropertyDescriptorSpec::getName).collect(Collectors.toList()));
-                }
-            });
 
-            final RuleSet ruleSet = new RuleSetFactory().createSingleRuleRuleSet(xpathRule);
+    /**
+     * Evaluates an XPath query like {@link #evaluateQuery(Node, LanguageVersion, String, String, Map, List)},
+     * but never waits for the engine longer than the timeout of the
+     * {@linkplain #getDefaultLimits() default limits}. The engine only checks
+     * the deadline between some of its steps (see {@link XPathEvaluationLimits}),
+     * so the evaluation runs on another thread. If it's not done shortly after
+     * the deadline, it's abandoned: it keeps running until the engine returns,
+     * but its results are dropped, and this method returns no result, with
+     * a stop reason like "timed out after 3000 ms".
+     *
+     * <p>This blocks the calling thread, which should not be the FX thread.
+     *
+     * @throws XPathEvaluationException if there was an error during the evaluation. The cause is preserved
+     * @throws InterruptedException     if the calling thread was interrupted while waiting. The evaluation is abandoned
+     */
+    public static XPathResults evaluateQueryWithDeadline(Node compilationUnit,
+                                                         LanguageVersion languageVersion,
+                                                         String xpathVersion,
+                                                         String xpathQuery,
+                                                         Map<String, String> propertyValues,
+                                                         List<PropertyDescriptorSpec> properties)
+        throws XPathEvaluationException, InterruptedException {
+
+        XPathEvaluationLimits limits = defaultLimits;
+        Future<XPathResults> future = ABANDONABLE_EXECUTOR.submit(
+            () -> evaluateQuery(compilationUnit, languageVersion, xpathVersion, xpathQuery, propertyValues, properties, limits)
+        );
 
-            RuleSets ruleSets = new RuleSets(ruleSet);
+        try {
+            return limits.getTimeout() == null
+                   ? future.get()
+                   : future.get(limits.getTimeout().toMillis() + ABANDON_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // the engine doesn't check the interruption flag, but it's the best we can do
+            future.cancel(true);
+            return new XPathResults(Collections.emptyList(), "timed out after " + limits.getTimeout().toMillis() + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XPathEvaluationException) {
+                throw (XPathEvaluationException) e.getCause();
+            }
+            throw new XPathEvaluationException(e.getCause());
+        }
+    }
 
-            RuleContext ruleContext = new RuleContext();
-            ruleContext.setLanguageVersion(languageVersion);
-            ruleContext.setIgnoreExceptions(false);
 
-            ruleSets.apply(singletonList(compilationUnit), ruleContext, xpathRule.getLanguage());
+    /**
+     * Returns the limits used by evaluations that don't specify them.
+     * Defaults to {@link XPathEvaluationLimits#DEFAULT}.
+     */
+    public static XPathEvaluationLimits getDefaultLimits() {
+        return defaultLimits;
+    }
 
-            return results;
 
-        } catch (RuntimeException e) {
-            throw new XPathEvaluationException(e);
-        }
+    /** Sets the limits used by evaluations that don't specify them. */
+    public static void setDefaultLimits(XPathEvaluationLimits limits) {
+        defaultLimits = Objects.requireNonNull(limits);
     }
 
-    private static <T> void setRulePropertyCapture(Rule rule, PropertyDescriptor<T> descriptor, String value) {
-        rule.setProperty(descriptor, descriptor.valueFrom(value));
+
+    /**
+     * Returns the cache of prepared queries used by {@link #evaluateQuery(Node, LanguageVersion, String, String, Map, List)}.
+     */
+    public static XPathQueryCache getQueryCache() {
+        return QUERY_CACHE;
     }
 
 }
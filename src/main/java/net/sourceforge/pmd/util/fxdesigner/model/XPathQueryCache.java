@@ -0,0 +1,320 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import static java.util.Collections.singletonList;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSetFactory;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+
+
+/**
+ * Bounded LRU cache of prepared XPath queries, used by {@link XPathEvaluator}.
+ * A prepared query keeps its {@link XPathRule} and {@link RuleSets}
+ * around, so that the XPath expression is only compiled once by Jaxen
+ * or Saxon, instead of once per evaluation.
+ *
+ * <p>Prepared queries are stateful, so they're borrowed from the cache
+ * for the duration of an evaluation and then given back. Several threads
+ * evaluating the same query each get their own instance.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class XPathQueryCache {
+
+    /** Max number of distinct queries that are kept. */
+    private static final int MAX_QUERIES = 32;
+    /** Max number of idle instances of a single query that are kept. */
+    private static final int MAX_INSTANCES_PER_QUERY = Runtime.getRuntime().availableProcessors();
+
+    private final Map<QueryKey, Deque<PreparedQuery>> cache = new LinkedHashMap<QueryKey, Deque<PreparedQuery>>(MAX_QUERIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<QueryKey, Deque<PreparedQuery>> eldest) {
+            return size() > MAX_QUERIES;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    XPathQueryCache() {
+
+    }
+
+
+    /**
+     * Gets an idle prepared query for the given parameters, or prepares
+     * a new one if there is none. The query must be given back with
+     * {@link #release(PreparedQuery)} after use.
+     *
+     * @throws RuntimeException If the query cannot be prepared, e.g. because of an invalid property
+     */
+    PreparedQuery borrow(Language language,
+                         String xpathVersion,
+                         String xpathQuery,
+                         Map<String, String> propertyValues,
+                         List<PropertyDescriptorSpec> properties) {
+
+        QueryKey key = new QueryKey(language, xpathVersion, xpathQuery, propertyValues, properties);
+
+        PreparedQuery idle;
+        synchronized (cache) {
+            Deque<PreparedQuery> instances = cache.get(key);
+            idle = instances == null ? null : instances.poll();
+        }
+
+        if (idle != null) {
+            hits.incrementAndGet();
+            return idle;
+        }
+
+        misses.incrementAndGet();
+        return new PreparedQuery(key, properties);
+    }
+
+
+    /**
+     * Gives back a query to the cache. Queries whose evaluation failed
+     * should not be released, as their internal state is unknown.
+     */
+    void release(PreparedQuery query) {
+        synchronized (cache) {
+            Deque<PreparedQuery> instances = cache.computeIfAbsent(query.key, k -> new ArrayDeque<>());
+            if (instances.size() < MAX_INSTANCES_PER_QUERY) {
+                instances.push(query);
+            }
+        }
+    }
+
+
+    /** Number of evaluations that reused a prepared query. */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+
+    /** Number of evaluations that had to prepare a new query. */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+
+    /** Drops all the prepared queries and resets the counters. */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+
+    @Override
+    public String toString() {
+        long h = getHitCount();
+        long total = h + getMissCount();
+        return "XPathQueryCache{hits=" + h + ", misses=" + getMissCount()
+            + ", hitRate=" + (total == 0 ? 0 : h * 100 / total) + "%}";
+    }
+
+
+    /**
+     * An XPath rule ready to be evaluated. The rule chain and the compiled
+     * XPath expression are reused across evaluations. Not thread-safe.
+     */
+    static final class PreparedQuery {
+
+        private final QueryKey key;
+        private final List<Node> results = new ArrayList<>();
+        private final XPathRule xpathRule;
+        private final RuleSets ruleSets;
+
+        // limits of the current evaluation
+        private int maxResults = Integer.MAX_VALUE;
+        private long deadline = Long.MAX_VALUE;
+        private Duration timeout;
+
+
+        PreparedQuery(QueryKey key, List<PropertyDescriptorSpec> properties) {
+            this.key = key;
+
+            xpathRule = new XPathRule() {
+                @Override
+                public void evaluate(Node node, RuleContext data) {
+                    // with the rule chain, this is called once per candidate node
+                    checkDeadline();
+                    super.evaluate(node, data);
+                }
+
+                @Override
+                public void addViolation(Object data, Node node, String arg) {
+                    results.add(node);
+                    if (results.size() >= maxResults) {
+                        throw new EvaluationStoppedException("truncated at " + maxResults);
+                    }
+                    checkDeadline();
+                }
+            };
+
+            xpathRule.setMessage("");
+            xpathRule.setLanguage(key.language);
+            xpathRule.setXPath(key.expression);
+            xpathRule.setVersion(key.xpathVersion);
+
+            properties.stream()
+                      .map(PropertyDescriptorSpec::build)
+                      .forEach(xpathRule::definePropertyDescriptor);
+
+            key.propertyValues.forEach((k, v) -> {
+                PropertyDescriptor<?> d = xpathRule.getPropertyDescriptor(k);
+                if (d != null) {
+                    setRulePropertyCapture(xpathRule, d, v);
+                } else {
+                    throw new RuntimeException("Property '" + k + "' is not defined, available properties: "
+                                                   + properties.stream().map(PropertyDescriptorSpec::getName).collect(Collectors.toList()));
+                }
+            });
+
+            ruleSets = new RuleSets(new RuleSetFactory().createSingleRuleRuleSet(xpathRule));
+        }
+
+
+        /**
+         * Evaluates the query. If one of the limits is hit, the evaluation
+         * is stopped, and the results found until then are returned.
+         */
+        XPathResults evaluate(Node compilationUnit, LanguageVersion languageVersion, XPathEvaluationLimits limits) {
+            RuleContext ruleContext = new RuleContext();
+            ruleContext.setLanguageVersion(languageVersion);
+            ruleContext.setIgnoreExceptions(false);
+
+            results.clear();
+            maxResults = limits.getMaxResults();
+            timeout = limits.getTimeout();
+            deadline = limits.deadlineFromNow();
+            try {
+                ruleSets.apply(singletonList(compilationUnit), ruleContext, xpathRule.getLanguage());
+                return new XPathResults(new ArrayList<>(results), null);
+            } catch (RuntimeException e) {
+                EvaluationStoppedException stop = findStopCause(e);
+                if (stop == null) {
+                    throw e;
+                }
+                return new XPathResults(new ArrayList<>(results), stop.getMessage());
+            } finally {
+                results.clear();
+                maxResults = Integer.MAX_VALUE;
+                deadline = Long.MAX_VALUE;
+            }
+        }
+
+
+        private void checkDeadline() {
+            if (System.nanoTime() > deadline) {
+                throw new EvaluationStoppedException("timed out after " + timeout.toMillis() + " ms");
+            }
+        }
+
+
+        // the rule chain may wrap exceptions thrown by the rule
+        private static EvaluationStoppedException findStopCause(Throwable e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof EvaluationStoppedException) {
+                    return (EvaluationStoppedException) t;
+                }
+            }
+            return null;
+        }
+
+
+        private static <T> void setRulePropertyCapture(Rule rule, PropertyDescriptor<T> descriptor, String value) {
+            rule.setProperty(descriptor, descriptor.valueFrom(value));
+        }
+    }
+
+
+    /**
+     * Thrown from the callbacks of the XPath rule to stop an evaluation
+     * that hit one of its limits. The query is still reusable afterwards.
+     */
+    private static final class EvaluationStoppedException extends RuntimeException {
+
+        EvaluationStoppedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+
+    /**
+     * Identifies a prepared query. Property values are part of the key,
+     * because they're captured by the XPath rule when the expression is
+     * compiled.
+     */
+    private static final class QueryKey {
+
+        private final Language language;
+        private final String xpathVersion;
+        private final String expression;
+        private final Map<String, String> propertyValues;
+        /** Property specs are mutable, their XML representation is used instead. */
+        private final List<String> propertyDefinitions;
+
+
+        QueryKey(Language language,
+                 String xpathVersion,
+                 String expression,
+                 Map<String, String> propertyValues,
+                 List<PropertyDescriptorSpec> properties) {
+            this.language = language;
+            this.xpathVersion = xpathVersion;
+            this.expression = expression;
+            this.propertyValues = new LinkedHashMap<>(propertyValues);
+            this.propertyDefinitions = properties.stream().map(PropertyDescriptorSpec::toXml).collect(Collectors.toList());
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            QueryKey queryKey = (QueryKey) o;
+            return Objects.equals(language, queryKey.language)
+                && Objects.equals(xpathVersion, queryKey.xpathVersion)
+                && Objects.equals(expression, queryKey.expression)
+                && Objects.equals(propertyValues, queryKey.propertyValues)
+                && Objects.equals(propertyDefinitions, queryKey.propertyDefinitions);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(language, xpathVersion, expression, propertyValues, propertyDefinitions);
+        }
+    }
+}
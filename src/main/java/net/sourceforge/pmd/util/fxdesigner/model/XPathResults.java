@@ -0,0 +1,69 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import net.sourceforge.pmd.lang.ast.Node;
+
+
+/**
+ * Results of an XPath evaluation. If the evaluation
+ * was stopped because it hit one of its {@link XPathEvaluationLimits},
+ * this only contains the results found until then, and {@link #getStopReason()}
+ * describes why it was stopped.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class XPathResults extends AbstractList<Node> implements RandomAccess {
+
+    private static final XPathResults EMPTY = new XPathResults(Collections.emptyList(), null);
+
+    private final List<Node> results;
+    private final String stopReason;
+
+
+    XPathResults(List<Node> results, String stopReason) {
+        this.results = results;
+        this.stopReason = stopReason;
+    }
+
+
+    static XPathResults empty() {
+        return EMPTY;
+    }
+
+
+    /** Returns true if the evaluation ran to completion. */
+    public boolean isComplete() {
+        return stopReason == null;
+    }
+
+
+    /**
+     * Returns a message describing why the evaluation was stopped,
+     * e.g. "truncated at 10000" or "timed out after 3000 ms". Returns
+     * null if the evaluation {@linkplain #isComplete() ran to completion}.
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
+
+
+    @Override
+    public Node get(int index) {
+        return results.get(index);
+    }
+
+
+    @Override
+    public int size() {
+        return results.size();
+    }
+}
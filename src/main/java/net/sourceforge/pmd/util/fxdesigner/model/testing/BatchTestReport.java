@@ -0,0 +1,179 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model.testing;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Results of a {@link BatchTestRunner}, with timing info.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class BatchTestReport {
+
+    private final List<TestOutcome> outcomes;
+    private final long wallTime;
+
+
+    BatchTestReport(List<TestOutcome> outcomes, long wallTime) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        this.wallTime = wallTime;
+    }
+
+
+    /** Outcomes of each test case, in the order they were given to the runner. */
+    public List<TestOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+
+    /** Time elapsed between the start of the batch and the completion of the last test. */
+    public Duration getWallTime() {
+        return Duration.ofNanos(wallTime);
+    }
+
+
+    /** Cumulated parse time of all tests. */
+    public Duration getTotalParseTime() {
+        return Duration.ofNanos(outcomes.stream().mapToLong(it -> it.parseTime).sum());
+    }
+
+
+    /** Cumulated XPath evaluation time of all tests. */
+    public Duration getTotalEvalTime() {
+        return Duration.ofNanos(outcomes.stream().mapToLong(it -> it.evalTime).sum());
+    }
+
+
+    /** Number of tests whose source had to be parsed again. */
+    public long countReparsed() {
+        return outcomes.stream().filter(TestOutcome::isReparsed).count();
+    }
+
+
+    /** Number of tests whose result had to be computed again. */
+    public long countReevaluated() {
+        return outcomes.stream().filter(TestOutcome::isReevaluated).count();
+    }
+
+
+    public long count(TestStatus status) {
+        return outcomes.stream().filter(it -> it.getResult().getStatus() == status).count();
+    }
+
+
+    /**
+     * Sets the status of each live test case to its result. This must
+     * be called on the thread that owns the test cases.
+     */
+    public void applyStatuses() {
+        for (TestOutcome outcome : outcomes) {
+            outcome.getTestCase().setStatus(outcome.getResult());
+        }
+    }
+
+
+    /** A one-line summary, e.g. for the event log. */
+    public String summary() {
+        return outcomes.size() + " tests in " + getWallTime().toMillis() + " ms ("
+            + count(TestStatus.PASS) + " passed, "
+            + count(TestStatus.FAIL) + " failed, "
+            + count(TestStatus.ERROR) + " errors), "
+            + "parse " + getTotalParseTime().toMillis() + " ms, "
+            + "eval " + getTotalEvalTime().toMillis() + " ms, "
+            + countReparsed() + " reparsed, "
+            + countReevaluated() + " re-evaluated";
+    }
+
+
+    /** Per-test details, one line per test. */
+    public String details() {
+        StringBuilder sb = new StringBuilder();
+        for (TestOutcome outcome : outcomes) {
+            sb.append(outcome).append('\n');
+        }
+        return sb.toString();
+    }
+
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+
+    /** Result of a single test case. */
+    public static final class TestOutcome {
+
+        private final LiveTestCase testCase;
+        private final TestResult result;
+        private final long parseTime;
+        private final long evalTime;
+        private final boolean reparsed;
+        private final boolean reevaluated;
+
+
+        TestOutcome(LiveTestCase testCase, TestResult result, long parseTime, long evalTime, boolean reparsed, boolean reevaluated) {
+            this.testCase = testCase;
+            this.result = result;
+            this.parseTime = parseTime;
+            this.evalTime = evalTime;
+            this.reparsed = reparsed;
+            this.reevaluated = reevaluated;
+        }
+
+
+        /** An outcome that was decided without parsing or evaluating anything. */
+        TestOutcome(LiveTestCase testCase, TestResult result, long parseTime, long evalTime) {
+            this(testCase, result, parseTime, evalTime, false, false);
+        }
+
+
+        public LiveTestCase getTestCase() {
+            return testCase;
+        }
+
+
+        public TestResult getResult() {
+            return result;
+        }
+
+
+        /** Time spent parsing and analysing the source of the test. */
+        public Duration getParseTime() {
+            return Duration.ofNanos(parseTime);
+        }
+
+
+        /** Time spent evaluating the query and checking the results. */
+        public Duration getEvalTime() {
+            return Duration.ofNanos(evalTime);
+        }
+
+
+        /** Whether the AST of the test was not in the cache. */
+        public boolean isReparsed() {
+            return reparsed;
+        }
+
+
+        /** Whether the result of the test was not in the cache. */
+        public boolean isReevaluated() {
+            return reevaluated;
+        }
+
+
+        @Override
+        public String toString() {
+            return result.getStatus() + " " + testCase.getDescription()
+                + " (parse " + getParseTime().toMillis() + " ms, eval " + getEvalTime().toMillis() + " ms)"
+                + (result.getMessage() == null ? "" : ": " + result.getMessage());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model.testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.fxdesigner.model.ParseAbortedException;
+import net.sourceforge.pmd.util.fxdesigner.model.ParseUtil;
+import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationException;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluator;
+import net.sourceforge.pmd.util.fxdesigner.model.XPathResults;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.BatchTestReport.TestOutcome;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.TestCaseCache.Entry;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.TestCaseCache.EvalKey;
+import net.sourceforge.pmd.util.fxdesigner.model.testing.TestCaseCache.ParseKey;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
+
+
+/**
+ * Runs all the test cases of a collection against an XPath query at once.
+ * Each test case is parsed and evaluated independently on a worker of a
+ * fork-join pool.
+ *
+ * <p>Live test cases are not thread-safe, so running a batch is done in
+ * two steps: {@link #snapshot(List, VersionedXPathQuery, LanguageVersion, ClassLoader)}
+ * copies their state on the thread that owns them (usually the FX thread),
+ * then {@link #run(List, BooleanSupplier)} may be called on any thread.
+ *
+ * <p>The runner remembers the AST of each test case and the inputs of
+ * its last evaluation, so running a batch again only re-parses the tests
+ * whose source, language version or auxclasspath changed, and only
+ * re-evaluates the tests whose AST, query or expected violations changed.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class BatchTestRunner {
+
+    private final ForkJoinPool pool;
+    private final @Nullable XPathEvaluationLimits limits;
+    private final TestCaseCache cache = new TestCaseCache();
+
+
+    /**
+     * Creates a runner.
+     *
+     * @param pool   Pool on which the tests are run
+     * @param limits Limits of the XPath evaluations, if null the
+     *               {@linkplain XPathEvaluator#getDefaultLimits() default limits} are used
+     */
+    public BatchTestRunner(ForkJoinPool pool, @Nullable XPathEvaluationLimits limits) {
+        this.pool = pool;
+        this.limits = limits;
+    }
+
+
+    /** Uses the default limits. */
+    public BatchTestRunner(ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+
+    /** Uses the common fork-join pool and the default limits. */
+    public BatchTestRunner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Copies the state of the given test cases, so that they can be run
+     * on another thread.
+     *
+     * @param tests          Test cases to run
+     * @param query          Query to test
+     * @param defaultVersion Version used for the tests that don't specify one
+     * @param auxclasspath   Classloader used for type resolution, if null the classloader of the app is used
+     */
+    public static List<TestJob> snapshot(List<LiveTestCase> tests,
+                                         VersionedXPathQuery query,
+                                         LanguageVersion defaultVersion,
+                                         @Nullable ClassLoader auxclasspath) {
+        return tests.stream()
+                    .map(it -> new TestJob(it, query, defaultVersion, auxclasspath))
+                    .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Runs the given jobs in parallel and waits for them to complete.
+     * The statuses of the live test cases are not updated, use
+     * {@link BatchTestReport#applyStatuses()} on the relevant thread.
+     *
+     * @param jobs        Snapshots of the test cases
+     * @param isCancelled If this returns true, the jobs that have not started yet are skipped
+     */
+    public BatchTestReport run(List<TestJob> jobs, BooleanSupplier isCancelled) {
+        long start = System.nanoTime();
+
+        List<ForkJoinTask<TestOutcome>> tasks = new ArrayList<>(jobs.size());
+        for (TestJob job : jobs) {
+            tasks.add(pool.submit(() -> job.run(cache, limits, isCancelled)));
+        }
+
+        List<TestOutcome> outcomes = tasks.stream().map(ForkJoinTask::join).collect(Collectors.toList());
+
+        return new BatchTestReport(outcomes, System.nanoTime() - start);
+    }
+
+
+    /** Forgets the cached ASTs and results, so that the next batch starts from scratch. */
+    public void clearCache() {
+        cache.clear();
+    }
+
+
+    /** Immutable copy of the state of a {@link LiveTestCase}. */
+    public static final class TestJob {
+
+        private final LiveTestCase testCase;
+        private final String source;
+        private final LanguageVersion languageVersion;
+        private final List<LiveViolationRecord> expectedViolations;
+        private final Map<String, String> properties;
+        private final VersionedXPathQuery query;
+        private final @Nullable ClassLoader auxclasspath;
+
+
+        TestJob(LiveTestCase testCase,
+                VersionedXPathQuery query,
+                LanguageVersion defaultVersion,
+                @Nullable ClassLoader auxclasspath) {
+            this.testCase = testCase;
+            this.source = testCase.getSource();
+            this.languageVersion = testCase.languageVersionProperty().getOrElse(defaultVersion);
+            this.expectedViolations = testCase.getExpectedViolations()
+                                              .stream()
+                                              .map(LiveViolationRecord::deepCopy)
+                                              .collect(Collectors.toList());
+            this.properties = Collections.unmodifiableMap(testCase.getLiveProperties().getNonDefault());
+            this.query = query;
+            this.auxclasspath = auxclasspath;
+        }
+
+
+        public LiveTestCase getTestCase() {
+            return testCase;
+        }
+
+
+        TestOutcome run(TestCaseCache cache, @Nullable XPathEvaluationLimits limits, BooleanSupplier isCancelled) {
+            if (isCancelled.getAsBoolean()) {
+                return new TestOutcome(testCase, new TestResult(TestStatus.UNKNOWN, "Cancelled"), 0, 0);
+            } else if (query == null || StringUtils.isBlank(query.getExpression())) {
+                return new TestOutcome(testCase, new TestResult(TestStatus.UNKNOWN, "No XPath query"), 0, 0);
+            } else if (StringUtils.isBlank(source) || languageVersion == null) {
+                return new TestOutcome(testCase, new TestResult(TestStatus.UNKNOWN, "No source code"), 0, 0);
+            }
+
+            long start = System.nanoTime();
+
+            ParseKey parseKey = new ParseKey(source, languageVersion, auxclasspath);
+            Entry entry = cache.getParsed(testCase, parseKey);
+            boolean reparsed = entry == null;
+
+            if (entry == null) {
+                Node root;
+                try {
+                    root = ParseUtil.parse(source, languageVersion);
+                    // errors in the analysis passes are not the concern of the test
+                    ParseUtil.analyse(root, languageVersion, auxclasspath, isCancelled, (e, cat) -> { });
+                } catch (ParseAbortedException e) {
+                    TestResult result = new TestResult(TestStatus.ERROR, "Parse error: " + DesignerUtil.sanitizeExceptionMessage(e));
+                    return new TestOutcome(testCase, result, System.nanoTime() - start, 0, true, false);
+                }
+
+                if (isCancelled.getAsBoolean()) {
+                    // the analysis may be incomplete, don't cache it
+                    return new TestOutcome(testCase, new TestResult(TestStatus.UNKNOWN, "Cancelled"), System.nanoTime() - start, 0);
+                }
+
+                entry = cache.putParsed(testCase, parseKey, root);
+            }
+
+            long parsed = System.nanoTime();
+
+            EvalKey evalKey = new EvalKey(query, properties, expectedViolations);
+
+            TestResult result;
+            boolean reevaluated;
+            // evaluation is not thread-safe, a previous batch may still be using the AST
+            synchronized (entry) {
+                result = entry.getResult(evalKey);
+                reevaluated = result == null;
+                if (result == null) {
+                    result = evaluate(entry, evalKey, limits == null ? XPathEvaluator.getDefaultLimits() : limits);
+                }
+            }
+
+            return new TestOutcome(testCase, result, parsed - start, System.nanoTime() - parsed, reparsed, reevaluated);
+        }
+
+
+        /**
+         * Evaluates the query on the AST of the entry, and caches the result
+         * unless the evaluation was stopped by the limits. Those don't depend
+         * on the inputs only, e.g. a timeout may not be reached on a retry.
+         */
+        private TestResult evaluate(Entry entry, EvalKey evalKey, XPathEvaluationLimits limits) {
+            TestResult result;
+            try {
+                XPathResults results = XPathEvaluator.evaluateQuery(entry.getRoot(),
+                                                                    languageVersion,
+                                                                    query.getVersion(),
+                                                                    query.getExpression(),
+                                                                    properties,
+                                                                    query.getDefinedProperties(),
+                                                                    limits);
+
+                if (!results.isComplete()) {
+                    // the violations found so far can't be compared with the expected ones
+                    return new TestResult(TestStatus.ERROR, "XPath evaluation " + results.getStopReason());
+                }
+                result = TestCaseUtil.doTest(expectedViolations, results);
+            } catch (XPathEvaluationException e) {
+                result = new TestResult(TestStatus.ERROR, DesignerUtil.sanitizeExceptionMessage(e));
+            }
+            entry.putResult(evalKey, result);
+            return result;
+        }
+    }
+}
@@ -168,7 +168,8 @@ public class LiveTestCase implements SettingsOwner {
     public EventStream<?> modificationTicks() {
         return sourceProperty().values()
                                .or(languageVersionProperty().values())
-                               .or(expectedViolations.changes());
+                               .or(expectedViolations.changes())
+                               .or(nonDefaultProperties().values());
     }
 
     public boolean isFrozen() {
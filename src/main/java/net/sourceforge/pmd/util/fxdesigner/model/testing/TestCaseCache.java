@@ -0,0 +1,182 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model.testing;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.fxdesigner.model.PropertyDescriptorSpec;
+import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.TextRange;
+
+
+/**
+ * Remembers the parsed AST of each test case, and the inputs and result
+ * of its last evaluation, so that a {@link BatchTestRunner} only does the
+ * work that's needed: an edit to the XPath query re-evaluates the tests
+ * without re-parsing them, and an edit to the source of one test only
+ * re-parses this test.
+ *
+ * <p>Test cases that are not referenced anymore are dropped from the cache.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class TestCaseCache {
+
+    private final Map<LiveTestCase, Entry> entries = Collections.synchronizedMap(new WeakHashMap<>());
+
+
+    /** Returns the entry of the test case if it was parsed with the given parameters. */
+    @Nullable Entry getParsed(LiveTestCase testCase, ParseKey key) {
+        Entry entry = entries.get(testCase);
+        return entry != null && entry.parseKey.equals(key) ? entry : null;
+    }
+
+
+    /** Records a new AST for the test case, which invalidates its previous evaluation. */
+    Entry putParsed(LiveTestCase testCase, ParseKey key, Node root) {
+        Entry entry = new Entry(key, root);
+        entries.put(testCase, entry);
+        return entry;
+    }
+
+
+    void clear() {
+        entries.clear();
+    }
+
+
+    /** Identifies the inputs of the parser. */
+    static final class ParseKey {
+
+        private final String source;
+        private final LanguageVersion languageVersion;
+        private final @Nullable ClassLoader auxclasspath;
+
+
+        ParseKey(String source, LanguageVersion languageVersion, @Nullable ClassLoader auxclasspath) {
+            this.source = source;
+            this.languageVersion = languageVersion;
+            this.auxclasspath = auxclasspath;
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ParseKey that = (ParseKey) o;
+            // the hash of strings is cached, so this fails fast when the source changed
+            return source.hashCode() == that.source.hashCode()
+                && Objects.equals(languageVersion, that.languageVersion)
+                && auxclasspath == that.auxclasspath
+                && source.equals(that.source);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, languageVersion, auxclasspath);
+        }
+    }
+
+
+    /**
+     * Identifies the inputs of an evaluation, apart from the AST. Only
+     * the things the result of {@link TestCaseUtil#doTest(List, List)}
+     * depends on are considered.
+     */
+    static final class EvalKey {
+
+        private final String xpathVersion;
+        private final String expression;
+        /** Property specs are mutable, their XML representation is used instead. */
+        private final List<String> propertyDefinitions;
+        private final Map<String, String> propertyValues;
+        private final List<@Nullable TextRange> expectedRanges;
+
+
+        EvalKey(VersionedXPathQuery query, Map<String, String> propertyValues, List<LiveViolationRecord> expected) {
+            this.xpathVersion = query.getVersion();
+            this.expression = query.getExpression();
+            this.propertyDefinitions = query.getDefinedProperties().stream().map(PropertyDescriptorSpec::toXml).collect(Collectors.toList());
+            this.propertyValues = propertyValues;
+            this.expectedRanges = expected.stream().map(LiveViolationRecord::getRange).collect(Collectors.toList());
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            EvalKey that = (EvalKey) o;
+            return Objects.equals(xpathVersion, that.xpathVersion)
+                && Objects.equals(expression, that.expression)
+                && propertyDefinitions.equals(that.propertyDefinitions)
+                && propertyValues.equals(that.propertyValues)
+                && expectedRanges.equals(that.expectedRanges);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(xpathVersion, expression, propertyDefinitions, propertyValues, expectedRanges);
+        }
+    }
+
+
+    /**
+     * State of a test case. The AST is not mutated after it's been cached,
+     * but evaluating a query on it is not thread-safe, so evaluations should
+     * synchronize on the entry.
+     */
+    static final class Entry {
+
+        private final ParseKey parseKey;
+        private final Node root;
+        private @Nullable EvalKey lastEvalKey;
+        private @Nullable TestResult lastResult;
+
+
+        Entry(ParseKey parseKey, Node root) {
+            this.parseKey = parseKey;
+            this.root = root;
+        }
+
+
+        Node getRoot() {
+            return root;
+        }
+
+
+        /** Returns the last result if it was computed with the same inputs. */
+        synchronized @Nullable TestResult getResult(EvalKey key) {
+            return key.equals(lastEvalKey) ? lastResult : null;
+        }
+
+
+        synchronized void putResult(EvalKey key, TestResult result) {
+            this.lastEvalKey = key;
+            this.lastResult = result;
+        }
+    }
+}
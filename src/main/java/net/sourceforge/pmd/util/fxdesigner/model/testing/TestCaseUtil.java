@@ -9,7 +9,6 @@ import java.util.Comparator;
 import java.util.List;
 
 import net.sourceforge.pmd.lang.ast.Node;
-import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem;
 import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.TextRange;
 
 public final class TestCaseUtil {
@@ -22,10 +21,17 @@ public final class TestCaseUtil {
     private static final Comparator<Node> LINE_COMP = Comparator.comparingInt(Node::getBeginLine);
 
     public static TestResult doTest(LiveTestCase testCase, List<Node> actual) {
+        return doTest(testCase.getExpectedViolations(), actual);
+    }
+
+    /**
+     * Compares the actual results of a rule with the expected violations
+     * of a test case. Doesn't mutate the given lists.
+     */
+    public static TestResult doTest(List<LiveViolationRecord> expected, List<Node> actual) {
 
         // TODO messages
 
-        List<LiveViolationRecord> expected = testCase.getExpectedViolations();
         if (actual.size() != expected.size()) {
             return new TestResult(TestStatus.FAIL,
                                   "Expected " + expected.size() + " violations, actual " + actual.size());
@@ -45,11 +51,10 @@ public final class TestCaseUtil {
         for (int i = 0; i < actual.size(); i++) {
             Node node = actual.get(i);
 
-            TextRange actualRange = PmdCoordinatesSystem.rangeOf(node);
             TextRange expectedRange = expected.get(i).getRange();
 
-            if (expectedRange != null && !expectedRange.contains(actualRange.startPos)) {
-                return new TestResult(TestStatus.FAIL, "Wrong position for node at line " + actualRange.startPos.line);
+            if (expectedRange != null && !expectedRange.contains(node.getBeginLine(), node.getBeginColumn())) {
+                return new TestResult(TestStatus.FAIL, "Wrong position for node at line " + node.getBeginLine());
             }
         }
 
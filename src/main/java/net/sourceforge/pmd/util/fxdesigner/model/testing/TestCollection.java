@@ -13,18 +13,27 @@ import org.reactfx.collection.LiveArrayList;
 import org.reactfx.collection.LiveList;
 
 import net.sourceforge.pmd.util.fxdesigner.model.ObservableRuleBuilder;
-import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsOwner;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.DeferredSettingsOwner;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.PersistentProperty;
 import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.PersistentSequence;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SimpleBeanModelNode;
 import net.sourceforge.pmd.util.fxdesigner.util.reactfx.ReactfxUtil;
 
-public class TestCollection implements SettingsOwner {
+/**
+ * The test cases of a rule. When the app state is restored, the test
+ * cases are only restored the first time they're accessed, so that the
+ * tests of rule editors that are never opened aren't rebuilt.
+ */
+public class TestCollection implements DeferredSettingsOwner {
 
 
     private LiveList<LiveTestCase> stash;
     private final @Nullable ObservableRuleBuilder owner;
     @Nullable
     private File origin;
+    @Nullable
+    private SimpleBeanModelNode deferredModel;
 
     public TestCollection(@Nullable ObservableRuleBuilder owner, List<LiveTestCase> tests) {
         this.stash = new LiveArrayList<>(tests);
@@ -35,24 +44,43 @@ public class TestCollection implements SettingsOwner {
     }
 
     public void rebase(TestCollection testCases) {
-        this.stash.setAll(testCases.stash);
+        getStash().setAll(testCases.getStash());
         initOwner();
     }
 
     public void addAll(TestCollection testCases) {
-        this.stash.addAll(testCases.stash);
+        getStash().addAll(testCases.getStash());
         initOwner();
     }
 
     public void initOwner() {
-        stash.forEach(it -> it.setRule(owner));
+        getStash().forEach(it -> it.setRule(owner));
     }
 
     @PersistentSequence
     public LiveList<LiveTestCase> getStash() {
+        hydrate();
         return stash;
     }
 
+    private void hydrate() {
+        if (deferredModel != null) {
+            SettingsPersistenceUtil.restoreDeferredSettings(this);
+            initOwner();
+        }
+    }
+
+    @Override
+    public void setDeferredModel(@Nullable SimpleBeanModelNode model) {
+        this.deferredModel = model;
+    }
+
+    @Override
+    @Nullable
+    public SimpleBeanModelNode getDeferredModel() {
+        return deferredModel;
+    }
+
     /**
      * Mark the given [testCase] as the only unfrozen one and appends
      * it to the {@link #stash}.
@@ -60,24 +88,26 @@ public class TestCollection implements SettingsOwner {
     public void addTestCase(LiveTestCase testCase) {
         testCase.setRule(owner);
         if (!testCase.isFrozen()) {
-            stash.forEach(LiveTestCase::freeze);
-            stash.add(testCase);
+            getStash().forEach(LiveTestCase::freeze);
+            getStash().add(testCase);
         }
     }
 
     @Nullable
     @PersistentProperty
     public File getOrigin() {
+        hydrate();
         return origin;
     }
 
     public void setOrigin(File origin) {
+        hydrate();
         this.origin = origin;
     }
 
     @Nullable
     public LiveTestCase getOpenTest() {
-        return stash.stream().filter(it -> !it.isFrozen()).findFirst().orElse(null);
+        return getStash().stream().filter(it -> !it.isFrozen()).findFirst().orElse(null);
     }
 
     /**
@@ -85,9 +115,9 @@ public class TestCollection implements SettingsOwner {
      */
     @Nullable
     public LiveTestCase export(int i) {
-        if (0 <= i && i < stash.size()) {
-            stash.forEach(LiveTestCase::freeze);
-            return stash.get(i).unfreeze();
+        if (0 <= i && i < getStash().size()) {
+            getStash().forEach(LiveTestCase::freeze);
+            return getStash().get(i).unfreeze();
         } else {
             return null;
         }
@@ -10,7 +10,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +34,7 @@ import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.util.fxdesigner.model.ObservableRuleBuilder;
 import net.sourceforge.pmd.util.fxdesigner.util.AuxLanguageRegistry;
 import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.LineOffsets;
 import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.TextRange;
 
 public class TestXmlParser {
@@ -180,14 +180,14 @@ public class TestXmlParser {
         live.setLanguageVersion(version);
         live.setIgnored(ignored);
 
-        List<String> lines = Arrays.asList(code.split("\\r?\\n"));
+        LineOffsets lines = LineOffsets.of(code);
 
         for (int i = 0; i < expectedProblems; i++) {
             String m = messages.size() > i ? messages.get(i) : null;
             int line = lineNumbers.size() > i ? lineNumbers.get(i) : -1;
 
             TextRange tr = line >= 0
-                           ? TextRange.fullLine(line, lines.get(line - 1).length())
+                           ? TextRange.fullLine(line, lines.getLineLength(line))
                            : null;
 
             live.getExpectedViolations().add(new LiveViolationRecord(tr, m, false));
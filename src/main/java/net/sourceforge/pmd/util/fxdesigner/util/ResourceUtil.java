@@ -49,10 +49,14 @@ public final class ResourceUtil {
         return BASE_RESOURCE_PREFIX + relativeToDesignerDir;
     }
 
-    /** Finds the classes in the given package by looking in the classpath directories. */
+    /**
+     * Finds the classes in the given package by looking in the classpath directories.
+     * The classes are loaded but not initialized.
+     */
     public static Stream<Class<?>> getClassesInPackage(String packageName) {
-        return pathsInResource(Thread.currentThread().getContextClassLoader(), packageName.replace('.', '/'))
-            .map((Function<Path, Class<?>>) p -> toClass(p, packageName))
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return pathsInResource(classLoader, packageName.replace('.', '/'))
+            .map((Function<Path, Class<?>>) p -> toClass(p, packageName, classLoader))
             .filter(Objects::nonNull);
     }
 
@@ -91,12 +95,13 @@ public final class ResourceUtil {
 
 
     /** Maps paths to classes. */
-    private static Class<?> toClass(Path path, String packageName) {
+    private static Class<?> toClass(Path path, String packageName, ClassLoader classLoader) {
         return Optional.of(path)
                        .filter(p -> "class".equalsIgnoreCase(FilenameUtils.getExtension(path.toString())))
             .<Class<?>>map(p -> {
                 try {
-                    return Class.forName(packageName + "." + FilenameUtils.getBaseName(path.getFileName().toString()));
+                    String className = packageName + "." + FilenameUtils.getBaseName(path.getFileName().toString());
+                    return Class.forName(className, false, classLoader);
                 } catch (ClassNotFoundException e) {
                     e.printStackTrace();
                     return null;
@@ -0,0 +1,154 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.autocomplete;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.util.fxdesigner.util.AuxLanguageRegistry;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
+import net.sourceforge.pmd.util.fxdesigner.util.ResourceUtil;
+
+
+/**
+ * Index of the XPath node names of each language. Exploring the classpath
+ * to find the AST classes is slow, so the index is generated at build time
+ * by the {@link #main(String[])} method. The classpath is only explored
+ * for languages that are missing from the index, or if the index was built
+ * against another version of PMD than the one on the classpath.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class AstNodeNameIndex {
+
+    static final String INDEX_RESOURCE = ResourceUtil.resolveResource("ast-node-names.properties");
+    private static final String PMD_VERSION_KEY = "pmd.version";
+
+    private static final Map<String, List<String>> NAMES_BY_LANGUAGE = new ConcurrentHashMap<>();
+
+    private AstNodeNameIndex() {
+        // util
+    }
+
+
+    /** Returns the node names of the language, sorted alphabetically. */
+    static List<String> getNodeNames(Language language) {
+        return NAMES_BY_LANGUAGE.computeIfAbsent(language.getTerseName(), AstNodeNameIndex::computeNodeNames);
+    }
+
+
+    /**
+     * Fills the index for all the supported languages on a background
+     * thread, so that the first completion request doesn't have to wait.
+     */
+    public static void warmUpAsync() {
+        DesignerUtil.daemonThreadFactory("designer-node-name-index").newThread(
+            () -> Stream.concat(Stream.of(AuxLanguageRegistry.defaultLanguage()), AuxLanguageRegistry.getSupportedLanguages())
+                        .forEach(AstNodeNameIndex::getNodeNames)
+        ).start();
+    }
+
+
+    private static List<String> computeNodeNames(String terseName) {
+        String indexed = PrebuiltIndex.INSTANCE.getProperty(terseName);
+        return indexed != null ? split(indexed) : scanClasspath(terseName);
+    }
+
+
+    /** Finds the names of the concrete AST classes in the AST package of the language. */
+    static List<String> scanClasspath(String terseName) {
+        return ResourceUtil.getClassesInPackage("net.sourceforge.pmd.lang." + terseName + ".ast")
+                           .filter(clazz -> clazz.getSimpleName().startsWith("AST"))
+                           .filter(clazz -> !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers()))
+                           .map(m -> m.getSimpleName().substring("AST".length()))
+                           .sorted()
+                           .distinct()
+                           .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+    }
+
+
+    private static List<String> split(String names) {
+        return names.isEmpty() ? Collections.emptyList()
+                               : Collections.unmodifiableList(Arrays.asList(names.split(",")));
+    }
+
+
+    /**
+     * Reads an index, returns an empty one if it was built
+     * for another version of PMD than the given one.
+     */
+    static Properties readIndex(InputStream stream, String pmdVersion) throws IOException {
+        Properties properties = new Properties();
+        properties.load(stream);
+        if (!pmdVersion.equals(properties.getProperty(PMD_VERSION_KEY))) {
+            properties.clear();
+        }
+        properties.remove(PMD_VERSION_KEY);
+        return properties;
+    }
+
+
+    /** Writes the index of the given languages, by exploring the classpath. */
+    static void writeIndex(OutputStream stream, Stream<Language> languages, String pmdVersion) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PMD_VERSION_KEY, pmdVersion);
+        languages.map(Language::getTerseName)
+                 .forEach(lang -> properties.setProperty(lang, StringUtils.join(scanClasspath(lang), ',')));
+        properties.store(stream, "XPath node names of each language, generated by " + AstNodeNameIndex.class.getSimpleName());
+    }
+
+
+    /**
+     * Generates the index into the file given as argument. This is
+     * run by the build, with the PMD modules on the classpath.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expected the path of the output file");
+        }
+        Path output = Paths.get(args[0]);
+        Files.createDirectories(output.getParent());
+        try (OutputStream stream = Files.newOutputStream(output)) {
+            writeIndex(stream, AuxLanguageRegistry.getSupportedLanguages(), PMDVersion.VERSION);
+        }
+    }
+
+
+    /** Loaded lazily, the first time a language is requested. */
+    private static final class PrebuiltIndex {
+
+        static final Properties INSTANCE = load();
+
+
+        private static Properties load() {
+            try (InputStream stream = AstNodeNameIndex.class.getResourceAsStream(INDEX_RESOURCE)) {
+                if (stream != null) {
+                    return readIndex(stream, PMDVersion.VERSION);
+                }
+            } catch (IOException ignored) {
+                // fallthrough, explore the classpath instead
+            }
+            return new Properties();
+        }
+    }
+}
@@ -4,40 +4,30 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.autocomplete;
 
-import java.lang.reflect.Modifier;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import net.sourceforge.pmd.lang.Language;
-import net.sourceforge.pmd.util.fxdesigner.util.ResourceUtil;
 
 
 /**
  * Finds XPath node names by looking into the classpath
  * directory corresponding to the AST of a language. This
- * is ok for Java, Apex, etc. but not e.g. for XML.
+ * is ok for Java, Apex, etc. but not e.g. for XML. The names
+ * are taken from the {@link AstNodeNameIndex} when possible.
  */
 class AstPackageExplorer implements NodeNameFinder {
-    private final List<String> availableNodeNames;
 
+    private final Language language;
 
-    AstPackageExplorer(Language language) {
-        availableNodeNames =
-            ResourceUtil.getClassesInPackage("net.sourceforge.pmd.lang." + language.getTerseName() + ".ast")
-                        .filter(clazz -> clazz.getSimpleName().startsWith("AST"))
-                        .filter(clazz -> !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers()))
-                        .map(m -> m.getSimpleName().substring("AST".length()))
-                        .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
 
+    AstPackageExplorer(Language language) {
+        this.language = language;
     }
 
 
     @Override
     public List<String> getNodeNames() {
-        return availableNodeNames;
+        return AstNodeNameIndex.getNodeNames(language);
     }
 
-    // TODO move to some global Util
-
 }
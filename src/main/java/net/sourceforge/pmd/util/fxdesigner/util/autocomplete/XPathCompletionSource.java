@@ -11,6 +11,7 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.CamelCaseIndex;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.CamelCaseMatcher;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchResult;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchSelector;
@@ -30,6 +31,7 @@ public final class XPathCompletionSource implements CompletionResultSource {
     // if we don't cache them the classpath exploration is done on each character typed
     private static final Map<Language, XPathCompletionSource> BY_LANGUAGE = new HashMap<>();
     private final NodeNameFinder myNameFinder;
+    private CamelCaseIndex<String> myIndex;
 
     private XPathCompletionSource(NodeNameFinder nodeNameFinder) {
         this.myNameFinder = nodeNameFinder;
@@ -53,13 +55,20 @@ public final class XPathCompletionSource implements CompletionResultSource {
     public Stream<MatchResult<String>> getSortedMatches(String input, int limit) {
 
         return StringMatchUtil.filterResults(
-            myNameFinder.getNodeNames(),
-            Function.identity(),
+            getIndex(),
             input,
             getLimiter(limit)
         ).sorted(displayOrder());
     }
 
+    private CamelCaseIndex<String> getIndex() {
+        if (myIndex == null) {
+            // the node names of a language don't change
+            myIndex = new CamelCaseIndex<>(myNameFinder.getNodeNames(), Function.identity());
+        }
+        return myIndex;
+    }
+
     /**
      * Gets a suggestion tool suited to the given language.
      */
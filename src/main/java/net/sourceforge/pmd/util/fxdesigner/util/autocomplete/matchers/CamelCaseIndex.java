@@ -0,0 +1,114 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+
+/**
+ * Precomputed set of candidates for {@link StringMatchUtil#filterResults(CamelCaseIndex, String, MatchSelector)}.
+ * Building the index does the per-candidate work once, so that matching
+ * a query only scores the candidates that may match it, without allocating
+ * anything for the others. Use it when the same candidates are matched
+ * against many queries, e.g. once per keystroke.
+ *
+ * @param <T> Type of the indexed items
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class CamelCaseIndex<T> {
+
+    private final List<T> items;
+    private final Candidate[] candidates;
+    /** Indices of the candidates containing each lowercase char. */
+    private final Map<Character, BitSet> candidatesByChar = new HashMap<>();
+
+
+    /**
+     * Builds an index of the given items.
+     *
+     * @param items          Items to index
+     * @param matchExtractor Extracts the searchable text from an item
+     */
+    public CamelCaseIndex(List<? extends T> items, Function<? super T, String> matchExtractor) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.candidates = new Candidate[items.size()];
+
+        for (int i = 0; i < candidates.length; i++) {
+            Candidate cand = new Candidate(matchExtractor.apply(items.get(i)));
+            candidates[i] = cand;
+            for (int j = 0; j < cand.length(); j++) {
+                candidatesByChar.computeIfAbsent(cand.lowerCharAt(j), c -> new BitSet()).set(i);
+            }
+        }
+    }
+
+
+    /** Returns the indexed items. */
+    public List<T> getItems() {
+        return items;
+    }
+
+
+    /**
+     * Returns the indices of the candidates in which all the chars of the
+     * query appear in order, ignoring case. If a query extends a previous
+     * one, its matches are a subset of the matches of the previous query,
+     * which may be passed to only refine them.
+     *
+     * @param query Query
+     * @param among If non-null, only the candidates in this set are considered
+     */
+    public BitSet findSubsequenceMatches(String query, @Nullable BitSet among) {
+        BitSet result = new BitSet(candidates.length);
+        if (among != null) {
+            result.or(among);
+        } else {
+            result.set(0, candidates.length);
+        }
+
+        for (int i = 0; i < query.length() && !result.isEmpty(); i++) {
+            BitSet containing = candidatesByChar.get(Character.toLowerCase(query.charAt(i)));
+            if (containing == null) {
+                return new BitSet();
+            }
+            result.and(containing);
+        }
+
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            if (!candidates[i].containsSubsequence(query)) {
+                result.clear(i);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns unscored results for the candidates that may match the query.
+     * The matchers give points from the first occurrence of the first char
+     * of the query, so candidates that don't contain it are never returned.
+     */
+    Stream<MatchResult<T>> seeds(String query) {
+        BitSet containing = candidatesByChar.get(Character.toLowerCase(query.charAt(0)));
+        return containing == null ? Stream.empty() : seeds(query, containing);
+    }
+
+
+    /** Returns unscored results for the candidates in the given set. */
+    Stream<MatchResult<T>> seeds(String query, BitSet subset) {
+        return subset.stream().mapToObj(i -> new MatchResult<>(0, items.get(i), candidates[i], query, MatchResult.NO_MATCH, false));
+    }
+}
@@ -7,7 +7,7 @@ package net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers;
 import static net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.StringMatchUtil.PERFECT_SCORE;
 import static net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.StringMatchUtil.WORST_SCORE;
 
-import java.util.Locale;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import javafx.scene.text.TextFlow;
 
@@ -26,15 +26,18 @@ public final class CamelCaseMatcher {
     }
 
     /**
-     * Computes a match result with its score for the candidate and query.
+     * Computes the score of the candidate for the query. This doesn't
+     * allocate anything, unless a text flow is given, in which case the
+     * candidate text is appended to it, with the match regions highlighted.
      *
      * @param candidate           Candidate string
      * @param query               Query
      * @param fromIndex           Index in the candidate where to start the match
      * @param matchOnlyWordStarts Whether to only match word starts. This is a more unfair strategy
      *                            that can be used to break ties.
+     * @param flow                Text flow to fill, or null to only compute the score
      */
-    private static <T> MatchResult<T> computeMatchingSegments(T data, String candidate, String query, int fromIndex, boolean matchOnlyWordStarts) {
+    static int scan(Candidate candidate, String query, int fromIndex, boolean matchOnlyWordStarts, @Nullable TextFlow flow) {
 
         // Performs a left-to-right scan of the candidate string,
         // trying to assign each of the chars of the query to a
@@ -60,14 +63,12 @@ public final class CamelCaseMatcher {
         int matchLength = 0;
         boolean isStartOfWord = true; // whether the current submatch is at the start of a camelcase word
 
-        TextFlow flow = new TextFlow(); // result
-
         while (candIdx < candidate.length() && queryIdx < query.length()) {
 
-            char candChar = candidate.charAt(candIdx);
+            char candChar = candidate.lowerCharAt(candIdx);
             char queryChar = query.charAt(queryIdx);
 
-            if (Character.toLowerCase(candChar) == Character.toLowerCase(queryChar)) {
+            if (candChar == Character.toLowerCase(queryChar)) {
                 // it's the same char
 
                 matchLength++;
@@ -75,7 +76,7 @@ public final class CamelCaseMatcher {
                 if (curMatchStart == -1) {
                     // start of a match
 
-                    if (matchOnlyWordStarts && !isStartOfWord && !isWordStart(candidate, candIdx)) {
+                    if (matchOnlyWordStarts && !isStartOfWord && !candidate.isWordStart(candIdx)) {
                         // not the start of a word, don't record it as a match
                         candIdx++;
                         continue;
@@ -84,7 +85,7 @@ public final class CamelCaseMatcher {
                     // set match start to current
                     curMatchStart = candIdx;
 
-                    if (isWordStart(candidate, candIdx)) {
+                    if (candidate.isWordStart(candIdx)) {
                         // start of a match on the start of a word
                         // e.g. query       coit
                         //      candidate   ClassOrInterfaceType
@@ -136,15 +137,10 @@ public final class CamelCaseMatcher {
                     // end of a match
                     // assert matchLength > 0;
 
-                    String before = candidate.substring(lastMatchEnd, curMatchStart);
-                    String match = candidate.substring(curMatchStart, curMatchStart + matchLength);
-
-                    if (before.length() > 0) {
-                        flow.getChildren().add(StringMatchUtil.makeNormalText(before));
+                    if (flow != null) {
+                        appendMatch(flow, candidate, lastMatchEnd, curMatchStart, curMatchStart + matchLength);
                     }
 
-                    flow.getChildren().add(StringMatchUtil.makeHighlightedText(match));
-
                     lastMatchEnd = curMatchStart + matchLength;
                 }
 
@@ -160,51 +156,43 @@ public final class CamelCaseMatcher {
 
         // end of loop
 
-        if (curMatchStart != -1 && candIdx <= candidate.length()) {
-            // the query ends inside a match, we must complete the current match
-
-            String before = candidate.substring(lastMatchEnd, curMatchStart);
-            String match = candidate.substring(curMatchStart, candIdx);
-
-            if (before.length() > 0) {
-                flow.getChildren().add(StringMatchUtil.makeNormalText(before));
+        if (flow != null) {
+            if (curMatchStart != -1 && candIdx <= candidate.length()) {
+                // the query ends inside a match, we must complete the current match
+                appendMatch(flow, candidate, lastMatchEnd, curMatchStart, candIdx);
+                lastMatchEnd = candIdx; // shift
             }
 
-            flow.getChildren().add(StringMatchUtil.makeHighlightedText(match));
-
-            lastMatchEnd = candIdx; // shift
+            // add the rest of the candidate
+            String rest = candidate.getText().substring(lastMatchEnd);
+            if (!rest.isEmpty()) {
+                flow.getChildren().add(StringMatchUtil.makeNormalText(rest));
+            }
         }
 
-        // add the rest of the candidate
-        String rest = candidate.substring(lastMatchEnd);
-        if (!rest.isEmpty()) {
-            flow.getChildren().add(StringMatchUtil.makeNormalText(rest));
-        }
+        // chars from the query that were not found are not penalized for now
 
-        int remainingChars = query.length() - queryIdx;
+        return score;
+    }
 
-        if (remainingChars > 0) {
-            // some chars were not found, penalize that
-            //            score -= remainingChars * 5;
+    private static void appendMatch(TextFlow flow, Candidate candidate, int lastMatchEnd, int matchStart, int matchEnd) {
+        String text = candidate.getText();
+        if (matchStart > lastMatchEnd) {
+            flow.getChildren().add(StringMatchUtil.makeNormalText(text.substring(lastMatchEnd, matchStart)));
         }
-
-        final int finalScore = score;
-
-        return new MatchResult<>(finalScore, data, candidate, query, flow);
+        flow.getChildren().add(StringMatchUtil.makeHighlightedText(text.substring(matchStart, matchEnd)));
     }
 
-    private static boolean isWordStart(String pascalCased, int idx) {
-        if (idx == 0) {
-            return true;
-        }
-        char c = pascalCased.charAt(idx);
-        char prev = pascalCased.charAt(idx - 1);
-        return Character.isUpperCase(c) && Character.isLowerCase(prev)
-            || Character.isAlphabetic(c) && !Character.isAlphabetic(prev);
+    private static <T> MatchResult<T> impossibleMatch(MatchResult<T> prev) {
+        return new MatchResult<>(WORST_SCORE, prev.getData(), prev.getCandidate(), prev.getQuery(), MatchResult.NO_MATCH, false);
     }
 
-    private static <T> MatchResult<T> impossibleMatch(T data, String candidate, String query) {
-        return new MatchResult<>(WORST_SCORE, data, candidate, query, new TextFlow(StringMatchUtil.makeNormalText(candidate)));
+    /** Rescans the candidate of the previous result, and keeps the best of both. */
+    private static <T> MatchResult<T> rescan(MatchResult<T> prev, int fromIndex, boolean matchOnlyWordStarts) {
+        int score = scan(prev.getCandidate(), prev.getQuery(), fromIndex, matchOnlyWordStarts, null);
+        return score > prev.getScore()
+               ? new MatchResult<>(score, prev.getData(), prev.getCandidate(), prev.getQuery(), fromIndex, matchOnlyWordStarts)
+               : prev;
     }
 
     /**
@@ -227,9 +215,8 @@ public final class CamelCaseMatcher {
             //      candidate   ClassOrInterfaceDeclaration     : 32
             //                  ^    ^ ^ ^
 
-            MatchResult<T> refined = computeMatchingSegments(prev.getData(), prev.getStringMatch(), prev.getQuery(), 0, true);
             // keep the best
-            return refined.getScore() > prev.getScore() ? refined : prev;
+            return rescan(prev, 0, true);
         });
     }
 
@@ -243,11 +230,8 @@ public final class CamelCaseMatcher {
      * be used to break ties (they look stupid with this matcher).
      */
     public static <T> MatchSelector<T> sparseCamelMatcher() {
-        return raw -> raw.map(prev -> {
-            MatchResult<T> refined = computeMatchingSegments(prev.getData(), prev.getStringMatch(), prev.getQuery(), 0, false);
-            // keep the best
-            return refined.getScore() > prev.getScore() ? refined : prev;
-        });
+        // keep the best
+        return raw -> raw.map(prev -> rescan(prev, 0, false));
     }
 
     /**
@@ -263,29 +247,34 @@ public final class CamelCaseMatcher {
             }
 
             String query = prev.getQuery();
-            String cand = prev.getStringMatch();
-            String lowerCand = cand.toLowerCase(Locale.ROOT);
+            Candidate cand = prev.getCandidate();
             char first = Character.toLowerCase(query.charAt(0));
-            int i = lowerCand.indexOf(first);
+            int i = cand.indexOfLower(first, 0);
 
             if (i < 0) {
                 // impossible match
                 // the algo scans left to right and begins giving out points on the first
                 // occurrence of the first char of the query
                 // we can weed this case immediately
-                return impossibleMatch(prev.getData(), cand, query);
+                return impossibleMatch(prev);
             }
 
-            MatchResult<T> best = prev;
+            // only the scores are compared, the result is only built for the best start
+            int bestScore = prev.getScore();
+            int bestStart = MatchResult.NO_MATCH;
             while (i >= 0) {
-                MatchResult<T> attempt = computeMatchingSegments(prev.getData(), cand, query, i, false);
-                best = attempt.getScore() > best.getScore() ? attempt : best;
+                int attempt = scan(cand, query, i, false, null);
+                if (attempt > bestScore) {
+                    bestScore = attempt;
+                    bestStart = i;
+                }
 
-                i = lowerCand.indexOf(first, i + 1);
+                i = cand.indexOfLower(first, i + 1);
             }
 
-
-            return best;
+            return bestStart == MatchResult.NO_MATCH
+                   ? prev
+                   : new MatchResult<>(bestScore, prev.getData(), cand, query, bestStart, false);
         });
     }
 
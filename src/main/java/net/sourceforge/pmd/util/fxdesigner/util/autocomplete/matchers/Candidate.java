@@ -0,0 +1,90 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers;
+
+import java.util.BitSet;
+
+
+/**
+ * A candidate string, with what the {@link CamelCaseMatcher} needs to know
+ * about it precomputed, so that scoring it doesn't allocate anything.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class Candidate {
+
+    private final String text;
+    /** Lowercase chars, with the same indices as in the text. */
+    private final char[] lower;
+    private final BitSet wordStarts;
+
+
+    Candidate(String text) {
+        this.text = text;
+        this.lower = new char[text.length()];
+        this.wordStarts = new BitSet(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            lower[i] = Character.toLowerCase(text.charAt(i));
+            wordStarts.set(i, isWordStart(text, i));
+        }
+    }
+
+
+    String getText() {
+        return text;
+    }
+
+
+    int length() {
+        return lower.length;
+    }
+
+
+    char lowerCharAt(int idx) {
+        return lower[idx];
+    }
+
+
+    boolean isWordStart(int idx) {
+        return wordStarts.get(idx);
+    }
+
+
+    /** Returns the index of the given lowercase char, starting at the given index, or -1. */
+    int indexOfLower(char lowerChar, int fromIdx) {
+        for (int i = fromIdx; i < lower.length; i++) {
+            if (lower[i] == lowerChar) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /** Returns true if the chars of the query appear in order in this candidate, ignoring case. */
+    boolean containsSubsequence(String query) {
+        int candIdx = 0;
+        for (int i = 0; i < query.length(); i++) {
+            candIdx = indexOfLower(Character.toLowerCase(query.charAt(i)), candIdx);
+            if (candIdx < 0) {
+                return false;
+            }
+            candIdx++;
+        }
+        return true;
+    }
+
+
+    private static boolean isWordStart(String pascalCased, int idx) {
+        if (idx == 0) {
+            return true;
+        }
+        char c = pascalCased.charAt(idx);
+        char prev = pascalCased.charAt(idx - 1);
+        return Character.isUpperCase(c) && Character.isLowerCase(prev)
+            || Character.isAlphabetic(c) && !Character.isAlphabetic(prev);
+    }
+}
@@ -10,25 +10,37 @@ import javafx.scene.text.TextFlow;
 /**
  * Result of a match algorithm.
  *
+ * <p>The match regions are not stored, they're recomputed when the
+ * {@linkplain #getTextFlow() text flow} is requested, which is only
+ * done for the few results that are displayed.
+ *
  * @param <T> type of input to the algorithm
  *
  * @author Clément Fournier
  * @since 7.0.0
  */
 public class MatchResult<T> implements Comparable<MatchResult<?>> {
+
+    /** Match start of results that have no highlighted region. */
+    static final int NO_MATCH = -1;
+
     private final int score;
     private final T data;
-    private final String suggestion;
-    private final TextFlow textFlow;
+    private final Candidate candidate;
     private final String query;
+    // parameters of the scan that produced the score
+    private final int matchStart;
+    private final boolean onlyWordStarts;
+    private TextFlow textFlow;
 
 
-    public MatchResult(int score, T data, String suggestion, String query, TextFlow textFlow) {
+    MatchResult(int score, T data, Candidate candidate, String query, int matchStart, boolean onlyWordStarts) {
         this.score = score;
         this.data = data;
-        this.suggestion = suggestion;
-        this.textFlow = textFlow;
+        this.candidate = candidate;
         this.query = query;
+        this.matchStart = matchStart;
+        this.onlyWordStarts = onlyWordStarts;
     }
 
     /**
@@ -42,7 +54,7 @@ public class MatchResult<T> implements Comparable<MatchResult<?>> {
      * Candidate string that was matched against the query.
      */
     public String getStringMatch() {
-        return suggestion;
+        return candidate.getText();
     }
 
     /**
@@ -54,10 +66,34 @@ public class MatchResult<T> implements Comparable<MatchResult<?>> {
     }
 
 
+    Candidate getCandidate() {
+        return candidate;
+    }
+
+
+    /**
+     * Returns the same result, for other data that has the same
+     * searchable text. The copy has its own text flow.
+     */
+    public <U> MatchResult<U> withData(U newData) {
+        return new MatchResult<>(score, newData, candidate, query, matchStart, onlyWordStarts);
+    }
+
+
     /**
-     * Formatted TextFlow with the match regions highlighted.
+     * Formatted TextFlow with the match regions highlighted. This
+     * is built on the first call, which must happen on the FX thread
+     * if the result is already displayed.
      */
     public TextFlow getTextFlow() {
+        if (textFlow == null) {
+            textFlow = new TextFlow();
+            if (matchStart == NO_MATCH) {
+                textFlow.getChildren().add(StringMatchUtil.makeNormalText(candidate.getText()));
+            } else {
+                CamelCaseMatcher.scan(candidate, query, matchStart, onlyWordStarts, textFlow);
+            }
+        }
         return textFlow;
     }
 
@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -11,7 +12,6 @@ import java.util.stream.Stream;
 import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 
 import javafx.scene.text.Text;
-import javafx.scene.text.TextFlow;
 
 
 /**
@@ -48,13 +48,54 @@ public final class StringMatchUtil {
 
         Stream<MatchResult<T>> base = candidates.stream()
                                                 .map(it -> {
-                                                    String cand = matchExtractor.apply(it);
-                                                    return new MatchResult<>(0, it, cand, query, new TextFlow(makeNormalText(cand)));
+                                                    Candidate cand = new Candidate(matchExtractor.apply(it));
+                                                    return new MatchResult<>(0, it, cand, query, MatchResult.NO_MATCH, false);
                                                 });
         return limiter.selectBest(base);
     }
 
 
+    /**
+     * Selects the best {@link MatchResult} among the candidates of an index.
+     * Contrary to {@link #filterResults(List, Function, String, MatchSelector)},
+     * candidates that can't match the query are not passed to the limiter.
+     *
+     * @param index   Candidates
+     * @param limiter Selects the best candidates, may process them further to break ties
+     * @param query   Text to search for
+     */
+    public static <T> Stream<MatchResult<T>> filterResults(CamelCaseIndex<T> index,
+                                                           String query,
+                                                           MatchSelector<T> limiter) {
+        if (query.length() < MIN_QUERY_LENGTH) {
+            return Stream.empty();
+        }
+
+        return limiter.selectBest(index.seeds(query));
+    }
+
+
+    /**
+     * Selects the best {@link MatchResult} among some of the candidates
+     * of an index, e.g. those found by {@link CamelCaseIndex#findSubsequenceMatches(String, BitSet)}.
+     *
+     * @param index      Candidates
+     * @param candidates Indices of the candidates to consider
+     * @param limiter    Selects the best candidates, may process them further to break ties
+     * @param query      Text to search for
+     */
+    public static <T> Stream<MatchResult<T>> filterResults(CamelCaseIndex<T> index,
+                                                           BitSet candidates,
+                                                           String query,
+                                                           MatchSelector<T> limiter) {
+        if (query.length() < MIN_QUERY_LENGTH) {
+            return Stream.empty();
+        }
+
+        return limiter.selectBest(index.seeds(query, candidates));
+    }
+
+
     static Text makeHighlightedText(String match) {
         Text matchLabel = makeNormalText(match);
         matchLabel.getStyleClass().add("autocomplete-match");
@@ -0,0 +1,175 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.PersistentProperty;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.PersistentSequence;
+
+
+/**
+ * Accessors of the persistent properties of a settings owner class.
+ * They're computed once per class, so that saving and restoring the
+ * settings doesn't go through bean introspection and annotation lookups
+ * every time. Getters and setters are invoked through method handles.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class BeanAccessors {
+
+    private static final ClassValue<BeanAccessors> CACHE = new ClassValue<BeanAccessors>() {
+        @Override
+        protected BeanAccessors computeValue(Class<?> type) {
+            return new BeanAccessors(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Map<String, Accessor> properties;
+    private final Map<String, Accessor> sequences;
+
+
+    private BeanAccessors(Class<?> type) {
+        Map<String, Accessor> props = new LinkedHashMap<>();
+        Map<String, Accessor> seqs = new LinkedHashMap<>();
+
+        for (PropertyDescriptor d : PropertyUtils.getPropertyDescriptors(type).values()) {
+            Method getter = d.getReadMethod();
+            if (getter == null) {
+                continue;
+            }
+
+            boolean isSequence = getter.isAnnotationPresent(PersistentSequence.class);
+            if (!isSequence && !getter.isAnnotationPresent(PersistentProperty.class)) {
+                continue;
+            }
+
+            MethodHandle getterHandle = unreflect(getter, GETTER_TYPE);
+            if (getterHandle == null) {
+                continue;
+            }
+            MethodHandle setterHandle = d.getWriteMethod() == null ? null : unreflect(d.getWriteMethod(), SETTER_TYPE);
+
+            Accessor accessor = new Accessor(d.getName(), getter.getGenericReturnType(), getterHandle, setterHandle);
+            if (isSequence) {
+                seqs.put(d.getName(), accessor);
+            } else {
+                props.put(d.getName(), accessor);
+            }
+        }
+
+        this.properties = Collections.unmodifiableMap(props);
+        this.sequences = Collections.unmodifiableMap(seqs);
+    }
+
+
+    /** Returns the accessors of the given class. */
+    static BeanAccessors forClass(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+
+    /** Properties whose getter is annotated with {@link PersistentProperty}, by name. */
+    Map<String, Accessor> getPersistentProperties() {
+        return properties;
+    }
+
+
+    /** Properties whose getter is annotated with {@link PersistentSequence}, by name. */
+    Map<String, Accessor> getPersistentSequences() {
+        return sequences;
+    }
+
+
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        try {
+            // the method may be public in a non-public class
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(type);
+        } catch (IllegalAccessException | SecurityException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+    /** Accessor of a single property. */
+    static final class Accessor {
+
+        private final String name;
+        private final Type type;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+
+        Accessor(String name, Type type, MethodHandle getter, MethodHandle setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+
+        String getName() {
+            return name;
+        }
+
+
+        /** Generic return type of the getter. */
+        Type getType() {
+            return type;
+        }
+
+
+        boolean hasSetter() {
+            return setter != null;
+        }
+
+
+        /**
+         * Calls the getter. Like {@link Method#invoke(Object, Object...)},
+         * exceptions thrown by the getter are wrapped in an {@link InvocationTargetException}.
+         */
+        Object get(Object target) throws ReflectiveOperationException {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+
+        /** Calls the setter, exceptions are wrapped like in {@link #get(Object)}. */
+        void set(Object target, Object value) throws ReflectiveOperationException {
+            if (setter == null) {
+                throw new NoSuchMethodException("No setter for property " + name);
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.beans;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import net.sourceforge.pmd.util.fxdesigner.util.beans.converters.PropertyValue;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.converters.Serializer;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.converters.SerializerRegistrar;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.converters.TypedObject;
+
+
+/**
+ * Compact binary encoding of a settings model, used for the app state
+ * snapshots. It has the same structure as the XML format of {@link XmlInterfaceImpl},
+ * but each string (class names, property names, values, test sources...)
+ * is stored once in a string table and then referred to by index. All
+ * integers are unsigned varints, and strings are length-prefixed UTF-8.
+ *
+ * <pre>
+ * file    := "PMDS" version:u8 flags:u8 payloadLength:varint payload
+ * payload := numStrings:varint (length:varint utf8)* node     (deflated if flags &amp; 1)
+ * node    := class:str numProps:varint (name:str value:elt)* numChildren:varint node*
+ *            numSeqs:varint (name:str numItems:varint node*)*
+ * elt     := tag:str numAttrs:varint (name:str value:str)* numChildren:varint elt*
+ * </pre>
+ *
+ * <p>Values are converted by the same {@link Serializer}s as in the XML
+ * format, which produce small DOM elements. Big payloads are compressed.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class BinarySnapshotFormat {
+
+    private static final Logger LOGGER = Logger.getLogger(BinarySnapshotFormat.class.getName());
+
+    /** Bump this when the format changes. Older snapshots are then ignored. */
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'P', 'M', 'D', 'S'};
+    private static final int FLAG_DEFLATED = 1;
+    /** Payloads bigger than this are compressed. */
+    private static final int COMPRESSION_THRESHOLD = 16 * 1024;
+
+    private static final String VALUE_ELEMENT = "value";
+
+    private final Serializer<TypedObject<?>> serializer = SerializerRegistrar.getInstance().compositeSerializer();
+
+
+    /** Returns true if the file starts like a binary snapshot. */
+    static boolean isSnapshot(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        byte[] header = new byte[MAGIC.length];
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            int read = 0;
+            while (read < header.length) {
+                int n = stream.read(header, read, header.length - read);
+                if (n < 0) {
+                    return false;
+                }
+                read += n;
+            }
+            return Arrays.equals(header, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Writes the model to the stream. The stream is not closed.
+     *
+     * @throws IOException If writing failed
+     */
+    void write(OutputStream output, SimpleBeanModelNode model) throws IOException {
+        Encoder encoder = new Encoder(XmlInterface.newScratchDocument());
+        encoder.writeNode(model);
+        byte[] payload = encoder.toPayload();
+
+        int flags = 0;
+        if (payload.length > COMPRESSION_THRESHOLD) {
+            payload = deflate(payload);
+            flags |= FLAG_DEFLATED;
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(16);
+        header.write(MAGIC);
+        header.write(FORMAT_VERSION);
+        header.write(flags);
+        writeVarint(header, payload.length);
+
+        header.writeTo(output);
+        output.write(payload);
+    }
+
+
+    /**
+     * Reads the model in the file.
+     *
+     * @return The model, or empty if the file is not a snapshot of the current version
+     *
+     * @throws IOException If reading failed, or the file is corrupted
+     */
+    Optional<SimpleBeanModelNode> read(File file) throws IOException {
+        // read on the heap, a memory mapping would keep the file open until
+        // it's garbage collected, and prevent replacing it on Windows
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.get() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            int flags = buffer.get();
+            int payloadLength = readLength(buffer);
+
+            if ((flags & FLAG_DEFLATED) != 0) {
+                buffer = ByteBuffer.wrap(inflate(buffer, payloadLength));
+            }
+
+            return Optional.ofNullable(new Decoder(buffer, XmlInterface.newScratchDocument()).readPayload());
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IndexOutOfBoundsException, etc
+            throw new IOException("Corrupted settings snapshot " + file, e);
+        }
+    }
+
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+
+    private static byte[] inflate(ByteBuffer buffer, int compressedLength) throws IOException {
+        byte[] compressed = new byte[compressedLength];
+        buffer.get(compressed);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressedLength * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated settings snapshot");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted settings snapshot", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+
+    private static int readVarint(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+
+    /**
+     * Reads the length of something that's stored in the rest of the
+     * buffer, e.g. a number of bytes or of strings. This checks it before
+     * an array is allocated for it, so that a corrupted length fails with
+     * an exception instead of running out of memory.
+     */
+    private static int readLength(ByteBuffer buffer) throws IOException {
+        int length = readVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupted settings snapshot, invalid length " + length);
+        }
+        return length;
+    }
+
+
+    /** Builds the payload. Strings are interned as they're encountered. */
+    private final class Encoder {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final Document scratch;
+
+
+        Encoder(Document scratch) {
+            this.scratch = scratch;
+        }
+
+
+        void writeNode(SimpleBeanModelNode node) {
+            writeString(node.getNodeType().getCanonicalName());
+
+            Map<String, Type> settingsTypes = node.getSettingsTypes();
+            List<String> names = new ArrayList<>();
+            List<Element> values = new ArrayList<>();
+            // sorted so that the output is stable
+            for (Map.Entry<String, Object> keyValue : new TreeMap<>(node.getSettingsValues()).entrySet()) {
+                try {
+                    TypedObject object = new PropertyValue(keyValue.getKey(),
+                                                           node.getNodeType().getName(),
+                                                           keyValue.getValue(),
+                                                           settingsTypes.get(keyValue.getKey()));
+
+                    values.add(serializer.toXml(object, () -> scratch.createElement(VALUE_ELEMENT)));
+                    names.add(keyValue.getKey());
+                } catch (Exception e) {
+                    // print it, but don't throw it
+                    new RuntimeException(e).printStackTrace();
+                }
+            }
+
+            writeVarint(body, names.size());
+            for (int i = 0; i < names.size(); i++) {
+                writeString(names.get(i));
+                writeElement(values.get(i));
+            }
+
+            writeVarint(body, node.getChildrenByType().size());
+            for (BeanModelNode child : node.getChildrenByType().values()) {
+                writeNode((SimpleBeanModelNode) child);
+            }
+
+            writeVarint(body, node.getSequenceProperties().size());
+            for (BeanModelNodeSeq<?> seq : node.getSequenceProperties()) {
+                writeString(seq.getPropertyName());
+                writeVarint(body, seq.getChildrenNodes().size());
+                for (SimpleBeanModelNode item : seq.getChildrenNodes()) {
+                    writeNode(item);
+                }
+            }
+        }
+
+
+        private void writeElement(Element element) {
+            writeString(element.getTagName());
+
+            NamedNodeMap attributes = element.getAttributes();
+            writeVarint(body, attributes.getLength());
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Attr attr = (Attr) attributes.item(i);
+                writeString(attr.getName());
+                writeString(attr.getValue());
+            }
+
+            NodeList children = element.getChildNodes();
+            List<Element> childElements = new ArrayList<>(children.getLength());
+            for (int i = 0; i < children.getLength(); i++) {
+                if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                    childElements.add((Element) children.item(i));
+                }
+            }
+            writeVarint(body, childElements.size());
+            for (Element child : childElements) {
+                writeElement(child);
+            }
+        }
+
+
+        private void writeString(String s) {
+            Integer idx = strings.get(s);
+            if (idx == null) {
+                idx = strings.size();
+                strings.put(s, idx);
+            }
+            writeVarint(body, idx);
+        }
+
+
+        byte[] toPayload() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() * 2);
+            writeVarint(out, strings.size());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+            }
+            body.writeTo(out);
+            return out.toByteArray();
+        }
+    }
+
+
+    /** Reads the payload. */
+    private final class Decoder {
+
+        private final ByteBuffer buffer;
+        private final Document scratch;
+        private String[] strings;
+
+
+        Decoder(ByteBuffer buffer, Document scratch) {
+            this.buffer = buffer;
+            this.scratch = scratch;
+        }
+
+
+        SimpleBeanModelNode readPayload() throws IOException {
+            // each string takes at least one byte, for its length
+            strings = new String[readLength(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readLength(buffer)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return readNode();
+        }
+
+
+        /** Returns null if the class of the node is unknown, but consumes it anyway. */
+        private SimpleBeanModelNode readNode() {
+            String className = readString();
+            Class<?> clazz = XmlInterfaceImpl.findClass(className);
+            if (clazz == null) {
+                LOGGER.warning("Ignoring unknown settings node of type " + className);
+            }
+
+            // if the class is unknown, this is read and thrown away
+            SimpleBeanModelNode node = new SimpleBeanModelNode(clazz == null ? Object.class : clazz);
+
+            int numProps = readVarint(buffer);
+            for (int i = 0; i < numProps; i++) {
+                String name = readString();
+                Element value = readElement();
+                try {
+                    TypedObject<?> typed = serializer.fromXml(value);
+                    node.addProperty(name, typed.getObject(), typed.getType());
+                } catch (Exception e) {
+                    new RuntimeException("Cannot parse property ", e).printStackTrace();
+                }
+            }
+
+            int numChildren = readVarint(buffer);
+            for (int i = 0; i < numChildren; i++) {
+                SimpleBeanModelNode child = readNode();
+                if (child != null && node.getChildrenByType().get(child.getNodeType()) == null) {
+                    node.addChild(child);
+                }
+            }
+
+            int numSeqs = readVarint(buffer);
+            for (int i = 0; i < numSeqs; i++) {
+                BeanModelNodeSeq<SimpleBeanModelNode> seq = new BeanModelNodeSeq<>(readString());
+                int numItems = readVarint(buffer);
+                for (int j = 0; j < numItems; j++) {
+                    SimpleBeanModelNode item = readNode();
+                    if (item != null) {
+                        seq.addChild(item);
+                    }
+                }
+                node.addChild(seq);
+            }
+
+            return clazz == null ? null : node;
+        }
+
+
+        private Element readElement() {
+            Element element = scratch.createElement(readString());
+            int numAttrs = readVarint(buffer);
+            for (int i = 0; i < numAttrs; i++) {
+                String name = readString();
+                element.setAttribute(name, readString());
+            }
+            int numChildren = readVarint(buffer);
+            for (int i = 0; i < numChildren; i++) {
+                element.appendChild(readElement());
+            }
+            return element;
+        }
+
+
+        private String readString() {
+            return strings[readVarint(buffer)];
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.beans;
+
+
+/**
+ * A settings owner whose settings are not restored along with the rest
+ * of the app state, but the first time they're needed. Until then the
+ * owner only keeps the model it was given, and that model is persisted
+ * as is.
+ *
+ * <p>Implementations should call {@link SettingsPersistenceUtil#restoreDeferredSettings(DeferredSettingsOwner)}
+ * before any access to their persistent properties.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public interface DeferredSettingsOwner extends SettingsOwner {
+
+
+    /**
+     * Keeps the model to restore it later. This is called instead of
+     * restoring the settings. A null model discards the deferred model.
+     */
+    void setDeferredModel(SimpleBeanModelNode model);
+
+
+    /**
+     * Returns the model that's waiting to be restored, or null if
+     * there is none.
+     */
+    SimpleBeanModelNode getDeferredModel();
+
+}
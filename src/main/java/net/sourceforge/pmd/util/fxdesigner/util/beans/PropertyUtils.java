@@ -22,7 +22,7 @@ import java.util.stream.Collectors;
  */
 public final class PropertyUtils {
 
-    private static final Map<Class<?>, Map<String, PropertyDescriptor>> PROPERTY_CACHE = new WeakHashMap<>();
+    private static final Map<Class<?>, Map<String, PropertyDescriptor>> PROPERTY_CACHE = Collections.synchronizedMap(new WeakHashMap<>());
 
 
     private PropertyUtils() {
@@ -34,7 +34,11 @@ public final class PropertyUtils {
             return Collections.emptyMap();
         }
 
-        return PROPERTY_CACHE.computeIfAbsent(object.getClass(), klass -> {
+        return getPropertyDescriptors(object.getClass());
+    }
+
+    public static Map<String, PropertyDescriptor> getPropertyDescriptors(Class<?> type) {
+        return PROPERTY_CACHE.computeIfAbsent(type, klass -> {
             try {
                 return new LinkedHashMap<>(Arrays.stream(Introspector.getBeanInfo(klass).getPropertyDescriptors())
                                                  .collect(Collectors.toMap(FeatureDescriptor::getName, pd -> pd, (p, s) -> s)));
@@ -4,16 +4,12 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.beans;
 
-import java.beans.PropertyDescriptor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
-
-import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.PersistentProperty;
 
 
 /**
@@ -41,16 +37,24 @@ public class RestorePropertyVisitor extends BeanNodeVisitor<SettingsOwner> {
                                                        + model.getNodeType() + ", actual " + target.getClass());
         }
 
-        Map<String, PropertyDescriptor> descriptors = PropertyUtils.getPropertyDescriptors(target)
-                                                                   .values().stream()
-                                                                   .filter(d -> d.getReadMethod() != null
-                                                                       && d.getReadMethod().isAnnotationPresent(PersistentProperty.class))
-                                                                   .collect(Collectors.toMap(PropertyDescriptor::getName, d -> d));
+        if (target instanceof DeferredSettingsOwner) {
+            ((DeferredSettingsOwner) target).setDeferredModel(model);
+            return;
+        }
+
+        restore(model, target);
+    }
+
+
+    /** Restores the model into the target, even if it defers its restoration. */
+    void restore(SimpleBeanModelNode model, SettingsOwner target) {
+        Map<String, BeanAccessors.Accessor> accessors = BeanAccessors.forClass(target.getClass()).getPersistentProperties();
 
         for (Entry<String, Object> saved : model.getSettingsValues().entrySet()) {
-            if (descriptors.containsKey(saved.getKey())) {
+            BeanAccessors.Accessor accessor = accessors.get(saved.getKey());
+            if (accessor != null && accessor.hasSetter()) {
                 try {
-                    PropertyUtils.setProperty(target, saved.getKey(), saved.getValue());
+                    accessor.set(target, saved.getValue());
                 } catch (Exception e) {
                     new RuntimeException("Error setting property " + saved.getKey() + " on a "
                                              + target.getClass().getSimpleName(), e).printStackTrace();
@@ -84,7 +88,7 @@ public class RestorePropertyVisitor extends BeanNodeVisitor<SettingsOwner> {
         Collection<SettingsOwner> container;
         try {
             @SuppressWarnings("unchecked")
-            Collection<SettingsOwner> tmp = (Collection<SettingsOwner>) PropertyUtils.getProperty(target, model.getPropertyName());
+            Collection<SettingsOwner> tmp = (Collection<SettingsOwner>) getSequence(target, model.getPropertyName());
             container = tmp;
             if (container == null) {
                 throw new RuntimeException("Null container");
@@ -125,4 +129,14 @@ public class RestorePropertyVisitor extends BeanNodeVisitor<SettingsOwner> {
 
         // we modified the collection in-place, no need to set the property
     }
+
+
+    private static Object getSequence(SettingsOwner target, String name) throws ReflectiveOperationException {
+        BeanAccessors.Accessor accessor = BeanAccessors.forClass(target.getClass()).getPersistentSequences().get(name);
+        if (accessor == null) {
+            // not annotated, but it may still be a property
+            return PropertyUtils.getProperty(target, name);
+        }
+        return accessor.get(target);
+    }
 }
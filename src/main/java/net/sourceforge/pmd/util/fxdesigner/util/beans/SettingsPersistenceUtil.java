@@ -4,18 +4,14 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.beans;
 
-import static net.sourceforge.pmd.util.fxdesigner.util.beans.PropertyUtils.getPropertyDescriptors;
-
-import java.beans.PropertyDescriptor;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
-import java.lang.reflect.InvocationTargetException;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
@@ -23,13 +19,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.lang3.reflect.TypeLiteral;
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 
 import net.sourceforge.pmd.RulePriority;
 import net.sourceforge.pmd.lang.Language;
@@ -74,28 +65,39 @@ public final class SettingsPersistenceUtil {
     }
 
 
+    private static final BinarySnapshotFormat BINARY_FORMAT = new BinarySnapshotFormat();
+
+
     private SettingsPersistenceUtil() {
     }
 
 
     /**
      * Restores properties contained in the file into the given object.
+     * The file may be in any of the {@link SettingsFormat}s.
      *
      * @param root Root of the hierarchy
      * @param file Properties file
+     *
+     * @throws IOException If the file is a binary snapshot that can't be read.
+     *                     Nothing is restored in that case.
      */
-    public static void restoreProperties(SettingsOwner root, File file) {
-        Optional<Document> odoc = getDocument(file);
+    public static void restoreProperties(SettingsOwner root, File file) throws IOException {
+        if (BinarySnapshotFormat.isSnapshot(file)) {
+            BINARY_FORMAT.read(file).ifPresent(n -> restoreSettings(root, n));
+            return;
+        }
 
-        odoc.flatMap(XmlFormatRevision::getSuitableReader)
-            .map(rev -> rev.xmlInterface)
-            .flatMap(xmlInterface -> odoc.flatMap(xmlInterface::parseXml))
-            .ifPresent(n -> restoreSettings(root, n));
+        XmlInterface.readRevisionNumber(file)
+                    .flatMap(XmlFormatRevision::getSuitableReader)
+                    .flatMap(rev -> rev.xmlInterface.parseXml(file))
+                    .ifPresent(n -> restoreSettings(root, n));
     }
 
 
     /**
-     * Save properties of this object and descendants into the given file.
+     * Save properties of this object and descendants into the given file,
+     * in XML.
      *
      * @param root Root of the hierarchy
      * @param file Properties file
@@ -107,24 +109,41 @@ public final class SettingsPersistenceUtil {
 
 
     /**
-     * Returns an XML document for the given file if it exists and can be parsed.
+     * Serializes the properties of this object and descendants in XML.
+     * Since this reads the properties, it should be called on the thread
+     * that owns them.
+     *
+     * @param root Root of the hierarchy
      *
-     * @param file File to parse
+     * @return The contents of the settings file
      */
-    private static Optional<Document> getDocument(File file) {
-        if (file.exists()) {
-            try (InputStream stream = Files.newInputStream(file.toPath())) {
-                DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                Document document = builder.parse(stream);
-                return Optional.of(document);
-            } catch (SAXException | ParserConfigurationException | IOException e) {
-                e.printStackTrace();
-            }
-        }
+    public static byte[] serializeProperties(SettingsOwner root) throws IOException {
+        return serializeProperties(root, SettingsFormat.XML);
+    }
+
 
-        return Optional.empty();
+    /**
+     * Serializes the properties of this object and descendants in the
+     * given format. Since this reads the properties, it should be called
+     * on the thread that owns them.
+     *
+     * @param root   Root of the hierarchy
+     * @param format Format of the output
+     *
+     * @return The contents of the settings file
+     */
+    public static byte[] serializeProperties(SettingsOwner root, SettingsFormat format) throws IOException {
+        SimpleBeanModelNode node = SettingsPersistenceUtil.buildSettingsModel(root);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (format == SettingsFormat.BINARY) {
+            BINARY_FORMAT.write(bytes, node);
+        } else {
+            XmlFormatRevision.getLatest().xmlInterface.writeModelToXml(bytes, node);
+        }
+        return bytes.toByteArray();
     }
 
+
     /**
      * Builds a settings model recursively for the given settings owner.
      * The properties which have a getter tagged with {@link PersistentProperty}
@@ -136,38 +155,46 @@ public final class SettingsPersistenceUtil {
      */
     // test only
     static SimpleBeanModelNode buildSettingsModel(SettingsOwner root) {
-        SimpleBeanModelNode node = new SimpleBeanModelNode(root.getClass());
-
-        for (PropertyDescriptor d : getPropertyDescriptors(root).values()) {
-            if (d.getReadMethod() == null) {
-                continue;
+        if (root instanceof DeferredSettingsOwner) {
+            SimpleBeanModelNode deferred = ((DeferredSettingsOwner) root).getDeferredModel();
+            if (deferred != null) {
+                // not restored yet, so it hasn't changed
+                return deferred;
             }
+        }
 
-            try {
-                if (d.getReadMethod().isAnnotationPresent(PersistentSequence.class)) {
+        SimpleBeanModelNode node = new SimpleBeanModelNode(root.getClass());
 
-                    Object val = d.getReadMethod().invoke(root);
-                    if (!Collection.class.isAssignableFrom(val.getClass())) {
-                        continue;
-                    }
+        BeanAccessors accessors = BeanAccessors.forClass(root.getClass());
 
-                    @SuppressWarnings("unchecked")
-                    Collection<SettingsOwner> values = (Collection<SettingsOwner>) val;
+        for (BeanAccessors.Accessor seqAccessor : accessors.getPersistentSequences().values()) {
+            try {
+                Object val = seqAccessor.get(root);
+                if (!(val instanceof Collection)) {
+                    continue;
+                }
 
-                    BeanModelNodeSeq<SimpleBeanModelNode> seq = new BeanModelNodeSeq<>(d.getName());
+                @SuppressWarnings("unchecked")
+                Collection<SettingsOwner> values = (Collection<SettingsOwner>) val;
 
-                    for (SettingsOwner item : values) {
-                        seq.addChild(buildSettingsModel(item));
-                    }
+                BeanModelNodeSeq<SimpleBeanModelNode> seq = new BeanModelNodeSeq<>(seqAccessor.getName());
 
-                    node.addChild(seq);
-                } else if (d.getReadMethod().isAnnotationPresent(PersistentProperty.class)) {
-                    node.addProperty(d.getName(), d.getReadMethod().invoke(root), d.getReadMethod().getGenericReturnType());
+                for (SettingsOwner item : values) {
+                    seq.addChild(buildSettingsModel(item));
                 }
-            } catch (IllegalAccessException | InvocationTargetException e) {
+
+                node.addChild(seq);
+            } catch (ReflectiveOperationException e) {
                 e.printStackTrace();
             }
+        }
 
+        for (BeanAccessors.Accessor accessor : accessors.getPersistentProperties().values()) {
+            try {
+                node.addProperty(accessor.getName(), accessor.get(root), accessor.getType());
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
         }
 
         for (SettingsOwner child : root.getChildrenSettingsNodes()) {
@@ -200,6 +227,40 @@ public final class SettingsPersistenceUtil {
     }
 
 
+    /**
+     * Restores the settings whose restoration was deferred by the
+     * given owner, if they haven't been restored yet.
+     *
+     * @param target Owner of the settings
+     */
+    public static void restoreDeferredSettings(DeferredSettingsOwner target) {
+        SimpleBeanModelNode model = target.getDeferredModel();
+        if (model != null) {
+            // cleared first, the restoration may access the properties again
+            target.setDeferredModel(null);
+            new RestorePropertyVisitor().restore(model, target);
+        }
+    }
+
+
+    /** Formats in which the settings can be saved. */
+    public enum SettingsFormat {
+        /** Human-readable XML, used for export. */
+        XML,
+        /** Compact binary snapshot, faster to save and restore. */
+        BINARY;
+
+
+        /**
+         * Returns the format to use for the given file: XML if its
+         * name has an {@code .xml} extension, binary otherwise.
+         */
+        public static SettingsFormat forFile(Path file) {
+            return file.getFileName().toString().endsWith(".xml") ? XML : BINARY;
+        }
+    }
+
+
     /** Enumerates different formats for compatibility. */
     private enum XmlFormatRevision implements Comparable<XmlFormatRevision> {
         V2(new XmlInterfaceImpl(4));
@@ -218,15 +279,15 @@ public final class SettingsPersistenceUtil {
 
 
         /**
-         * Gets a handler capable of reading the given document.
+         * Gets a handler capable of reading documents with the given revision number.
          *
-         * @param doc The revision number
+         * @param revision The revision number
          *
          * @return A handler, if it can be found
          */
-        public static Optional<XmlFormatRevision> getSuitableReader(Document doc) {
+        public static Optional<XmlFormatRevision> getSuitableReader(int revision) {
             return Arrays.stream(values())
-                         .filter(rev -> rev.xmlInterface.canParse(doc))
+                         .filter(rev -> rev.xmlInterface.getRevisionNumber() == revision)
                          .findAny();
         }
     }
@@ -5,24 +5,25 @@
 package net.sourceforge.pmd.util.fxdesigner.util.beans;
 
 import java.io.File;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Optional;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 
 /**
@@ -30,6 +31,9 @@ import org.w3c.dom.Element;
  * parser and serializer must understand each other, so they're kept
  * together.
  *
+ * <p>The settings file is read and written with StAX, so the whole
+ * document is never held in memory as a DOM.
+ *
  * @author Clément Fournier
  * @since 6.1.0
  */
@@ -39,6 +43,15 @@ public abstract class XmlInterface {
     private static final String SCHEMA_MODEL_VERSION = "revision";
     private static final String SCHEMA_DOCUMENT_ELEMENT = "designer-settings";
 
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     private final int revisionNumber;
 
 
@@ -53,101 +66,215 @@ public abstract class XmlInterface {
 
 
     /**
-     * Parses a XML document produced by {@link #writeModelToXml(File, SimpleBeanModelNode)}
+     * Returns the revision number of the settings document in the file,
+     * or empty if the file doesn't exist or is not a settings document.
+     */
+    public static Optional<Integer> readRevisionNumber(File file) {
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(stream);
+            try {
+                return Optional.of(readDocumentElement(reader));
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException | NumberFormatException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+
+    /**
+     * Parses a settings file produced by {@link #writeModelToXml(File, SimpleBeanModelNode)}
      * into a settings node.
      *
-     * @param document The document to parse
+     * @param file The file to parse
      *
      * @return The root of the model hierarchy, or empty if the revision is not supported
      */
-    public final Optional<SimpleBeanModelNode> parseXml(Document document) {
-        if (canParse(document)) {
-            Element rootNodeElement = (Element) document.getDocumentElement().getChildNodes().item(1);
-            return Optional.ofNullable(parseSettingsOwnerNode(rootNodeElement));
+    public final Optional<SimpleBeanModelNode> parseXml(File file) {
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(stream);
+            try {
+                if (readDocumentElement(reader) != getRevisionNumber()) {
+                    return Optional.empty();
+                }
+                // the root node is the first element in the document element
+                if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+                    return Optional.empty();
+                }
+                return Optional.ofNullable(parseSettingsOwnerNode(reader));
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return Optional.empty();
         }
-        return Optional.empty();
+    }
+
+
+    /** Moves the reader to the document element and returns its revision number. */
+    private static int readDocumentElement(XMLStreamReader reader) throws XMLStreamException {
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, SCHEMA_DOCUMENT_ELEMENT);
+        return Integer.parseInt(reader.getAttributeValue(null, SCHEMA_MODEL_VERSION));
     }
 
 
     /**
-     * Returns true if the document can be read by this object.
+     * Writes the model to a file.
      *
-     * @param document Document to test
+     * @param output The output file
+     * @param model  The model to serialize
+     *
+     * @throws IOException If saving the settings failed
      */
-    public boolean canParse(Document document) {
-        int docVersion = Integer.parseInt(document.getDocumentElement().getAttribute(SCHEMA_MODEL_VERSION));
-        return docVersion == getRevisionNumber();
+    public final void writeModelToXml(File output, SimpleBeanModelNode model) throws IOException {
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream stream = Files.newOutputStream(output.toPath())) {
+            writeModelToXml(stream, model);
+        }
     }
 
 
-    private Document initDocument() throws IOException {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder documentBuilder;
+    /**
+     * Writes the model to a stream. The stream is not closed.
+     *
+     * @param output The output stream
+     * @param model  The model to serialize
+     *
+     * @throws IOException If saving the settings failed
+     */
+    public final void writeModelToXml(OutputStream output, SimpleBeanModelNode model) throws IOException {
+        Writer out = new AttributeWhitespaceEscaper(new OutputStreamWriter(output, StandardCharsets.UTF_8));
         try {
-            documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            throw new IOException("Failed to create settings document builder", e);
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement(SCHEMA_DOCUMENT_ELEMENT);
+            writer.writeAttribute(SCHEMA_MODEL_VERSION, "" + getRevisionNumber());
+            writeSettingsOwnerNode(writer, model, 1);
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to save settings", e);
         }
-        Document document = documentBuilder.newDocument();
-
-        Element settingsElement = document.createElement(SCHEMA_DOCUMENT_ELEMENT);
-        settingsElement.setAttribute(SCHEMA_MODEL_VERSION, "" + getRevisionNumber());
-        document.appendChild(settingsElement);
-        return document;
+        out.flush();
     }
 
 
-    /** Saves parameters to disk. */
-    private void save(Document document, File outputFile) throws IOException {
+    /**
+     * Returns a new empty document, used to build the elements that
+     * the value serializers work with.
+     */
+    protected static Document newScratchDocument() throws IOException {
         try {
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-
-            transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-
-            Source source = new DOMSource(document);
-            outputFile.getParentFile().mkdirs();
-            Result result = new StreamResult(Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8));
-            transformer.transform(source, result);
-        } catch (TransformerException e) {
-            throw new IOException("Failed to save settings", e);
+            return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Failed to create settings document builder", e);
         }
     }
 
 
     /**
-     * Writes the model to a file.
+     * Parses a settings node and its descendants recursively.
      *
-     * @param output The output file
-     * @param model  The model to serialize
+     * @param reader Reader positioned on the start tag of the node.
+     *               When this method returns, it's positioned on
+     *               the end tag of the node.
      *
-     * @throws IOException If saving the settings failed
+     * @return The model described by the element, or null if it can't be parsed
      */
-    public final void writeModelToXml(File output, SimpleBeanModelNode model) throws IOException {
-        Document document = initDocument();
-        model.accept(getDocumentMakerVisitor(), document.getDocumentElement());
-        save(document, output);
-    }
+    protected abstract SimpleBeanModelNode parseSettingsOwnerNode(XMLStreamReader reader) throws XMLStreamException, IOException;
 
 
     /**
-     * Parses a settings node and its descendants recursively.
-     *
-     * @param nodeElement Element to parse
+     * Writes a settings node and its descendants recursively.
      *
-     * @return The model described by the element
+     * @param writer Writer, positioned inside the parent element
+     * @param node   Node to write
+     * @param depth  Depth of the node in the document, used for indentation
      */
-    protected abstract SimpleBeanModelNode parseSettingsOwnerNode(Element nodeElement);
+    protected abstract void writeSettingsOwnerNode(XMLStreamWriter writer, SimpleBeanModelNode node, int depth) throws XMLStreamException, IOException;
 
 
     /**
-     * Gets a visitor which populates xml elements with corresponding nodes.
-     *
-     * @return A visitor
+     * Writes newlines, tabs and carriage returns that occur in attribute
+     * values as character references. The stream writer leaves them as is,
+     * and attribute value normalization would turn them into spaces when
+     * the file is read back, which flattens multi-line values (sources,
+     * XPath expressions). This relies on attribute values being the only
+     * quoted text inside tags, which is the case for what we write.
      */
-    protected abstract BeanNodeVisitor<Element> getDocumentMakerVisitor();
+    private static final class AttributeWhitespaceEscaper extends FilterWriter {
+
+        private static final int TEXT = 0;
+        private static final int TAG = 1;
+        private static final int ATTRIBUTE = 2;
+
+        private int state = TEXT;
+
 
+        AttributeWhitespaceEscaper(Writer out) {
+            super(out);
+        }
+
+
+        @Override
+        public void write(int c) throws IOException {
+            switch (state) {
+            case TEXT:
+                if (c == '<') {
+                    state = TAG;
+                }
+                break;
+            case TAG:
+                if (c == '"') {
+                    state = ATTRIBUTE;
+                } else if (c == '>') {
+                    state = TEXT;
+                }
+                break;
+            default:
+                if (c == '"') {
+                    state = TAG;
+                } else if (c == '\n') {
+                    out.write("&#10;");
+                    return;
+                } else if (c == '\t') {
+                    out.write("&#9;");
+                    return;
+                } else if (c == '\r') {
+                    out.write("&#13;");
+                    return;
+                }
+                break;
+            }
+            out.write(c);
+        }
+
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(cbuf[i]);
+            }
+        }
+
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(str.charAt(i));
+            }
+        }
+    }
 }
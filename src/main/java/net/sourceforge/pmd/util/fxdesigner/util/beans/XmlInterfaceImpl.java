@@ -4,14 +4,21 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.beans;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -24,6 +31,11 @@ import net.sourceforge.pmd.util.fxdesigner.util.beans.converters.TypedObject;
 /**
  * Implementation of {@link XmlInterface}.
  *
+ * <p>The {@code node}, {@code nodeseq} and {@code property} elements
+ * are streamed. Only the {@code value} element of a property is built
+ * as a small DOM element, because that's what the {@link Serializer}s
+ * work with.
+ *
  * @author Clément Fournier
  * @since 6.1.0
  * @since 6.14.0 (V2, no beanutils)
@@ -40,6 +52,11 @@ public class XmlInterfaceImpl extends XmlInterface {
     private static final String SCHEMA_PROPERTY_NAME = "property-name";
     private static final String SCHEMA_PROPERTY_VALUE = "value";
 
+    private static final String INDENT = "    ";
+
+    /** Settings owner classes by name. */
+    private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+
 
     XmlInterfaceImpl(int revisionNumber) {
         super(revisionNumber);
@@ -48,57 +65,63 @@ public class XmlInterfaceImpl extends XmlInterface {
     private final Serializer<TypedObject<?>> serializer = SerializerRegistrar.getInstance().compositeSerializer();
 
 
-    private List<Element> getChildrenByTagName(Element element, String tagName) {
-        NodeList children = element.getChildNodes();
-        List<Element> elts = new ArrayList<>();
-        for (int i = 0; i < children.getLength(); i++) {
-            if (children.item(i).getNodeType() == Node.ELEMENT_NODE && tagName.equals(children.item(i).getNodeName())) {
-                elts.add((Element) children.item(i));
-            }
-        }
-
-        return elts;
+    @Override
+    protected SimpleBeanModelNode parseSettingsOwnerNode(XMLStreamReader reader) throws XMLStreamException, IOException {
+        return parseNode(reader, newScratchDocument());
     }
 
 
-    @Override
-    protected SimpleBeanModelNode parseSettingsOwnerNode(Element nodeElement) {
-        Class<?> clazz;
-        try {
-            clazz = Class.forName(nodeElement.getAttribute(SCHEMA_NODE_CLASS_ATTRIBUTE));
-        } catch (ClassNotFoundException e) {
+    private SimpleBeanModelNode parseNode(XMLStreamReader reader, Document scratch) throws XMLStreamException {
+        String className = reader.getAttributeValue(null, SCHEMA_NODE_CLASS_ATTRIBUTE);
+        Class<?> clazz = findClass(className);
+        if (clazz == null) {
+            LOGGER.warning("Ignoring unknown settings node of type " + className);
+            skipElement(reader);
             return null;
         }
 
         SimpleBeanModelNode node = new SimpleBeanModelNode(clazz);
 
-        for (Element setting : getChildrenByTagName(nodeElement, SCHEMA_PROPERTY_ELEMENT)) {
-            parseSingleProperty(setting, node);
-        }
-
-        for (Element child : getChildrenByTagName(nodeElement, SCHEMA_NODE_ELEMENT)) {
-            try {
-                Class<?> childType = Class.forName(child.getAttribute(SCHEMA_NODE_CLASS_ATTRIBUTE));
-                if (node.getChildrenByType().get(childType) == null) { // FIXME
-                    node.addChild(parseSettingsOwnerNode(child));
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case SCHEMA_PROPERTY_ELEMENT:
+                parseSingleProperty(reader, node, scratch);
+                break;
+            case SCHEMA_NODE_ELEMENT:
+                SimpleBeanModelNode child = parseNode(reader, scratch);
+                if (child != null && node.getChildrenByType().get(child.getNodeType()) == null) { // FIXME
+                    node.addChild(child);
                 }
-            } catch (ClassNotFoundException e) {
-                LOGGER.warning("Ignoring unknown settings node of type " + child.getAttribute(SCHEMA_NODE_CLASS_ATTRIBUTE));
+                break;
+            case SCHEMA_NODESEQ_ELEMENT:
+                parseNodeSeq(reader, node, scratch);
+                break;
+            default:
+                skipElement(reader);
+                break;
             }
         }
 
-        for (Element seq : getChildrenByTagName(nodeElement, SCHEMA_NODESEQ_ELEMENT)) {
-            parseNodeSeq(seq, node);
-        }
-
         return node;
     }
 
 
-    private void parseSingleProperty(Element propertyElement, SimpleBeanModelNode owner) {
-        String name = propertyElement.getAttribute(SCHEMA_PROPERTY_NAME);
+    private void parseSingleProperty(XMLStreamReader reader, SimpleBeanModelNode owner, Document scratch) throws XMLStreamException {
+        String name = reader.getAttributeValue(null, SCHEMA_PROPERTY_NAME);
+        Element valueElement = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (valueElement == null && SCHEMA_PROPERTY_VALUE.equals(reader.getLocalName())) {
+                valueElement = readElement(reader, scratch);
+            } else {
+                skipElement(reader);
+            }
+        }
+
         try {
-            TypedObject<?> value = serializer.fromXml(getChildrenByTagName(propertyElement, SCHEMA_PROPERTY_VALUE).get(0));
+            if (valueElement == null) {
+                throw new IllegalStateException("No value element");
+            }
+            TypedObject<?> value = serializer.fromXml(valueElement);
             owner.addProperty(name, value.getObject(), value.getType());
         } catch (Exception e) {
             new RuntimeException("Cannot parse property ", e).printStackTrace();
@@ -106,64 +129,165 @@ public class XmlInterfaceImpl extends XmlInterface {
     }
 
 
-    private void parseNodeSeq(Element nodeSeq, SimpleBeanModelNode parent) {
-        BeanModelNodeSeq<SimpleBeanModelNode> built = new BeanModelNodeSeq<>(nodeSeq.getAttribute(SCHEMA_PROPERTY_NAME));
-        for (Element child : getChildrenByTagName(nodeSeq, SCHEMA_NODE_ELEMENT)) {
-            built.addChild(parseSettingsOwnerNode(child));
+    private void parseNodeSeq(XMLStreamReader reader, SimpleBeanModelNode parent, Document scratch) throws XMLStreamException {
+        BeanModelNodeSeq<SimpleBeanModelNode> built = new BeanModelNodeSeq<>(reader.getAttributeValue(null, SCHEMA_PROPERTY_NAME));
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (SCHEMA_NODE_ELEMENT.equals(reader.getLocalName())) {
+                SimpleBeanModelNode child = parseNode(reader, scratch);
+                if (child != null) {
+                    built.addChild(child);
+                }
+            } else {
+                skipElement(reader);
+            }
         }
         parent.addChild(built);
     }
 
 
     @Override
-    protected BeanNodeVisitor<Element> getDocumentMakerVisitor() {
-        return new DocumentMakerVisitor();
+    protected void writeSettingsOwnerNode(XMLStreamWriter writer, SimpleBeanModelNode node, int depth) throws XMLStreamException, IOException {
+        writeNode(writer, node, depth, newScratchDocument());
     }
 
 
-    public static class DocumentMakerVisitor extends BeanNodeVisitor<Element> {
+    private void writeNode(XMLStreamWriter writer, SimpleBeanModelNode node, int depth, Document scratch) throws XMLStreamException {
+        newLine(writer, depth);
+        writer.writeStartElement(SCHEMA_NODE_ELEMENT);
+        writer.writeAttribute(SCHEMA_NODE_CLASS_ATTRIBUTE, node.getNodeType().getCanonicalName());
+
+        Map<String, Type> settingsTypes = node.getSettingsTypes();
+
+        // sorted so that the output is stable
+        for (Map.Entry<String, Object> keyValue : new TreeMap<>(node.getSettingsValues()).entrySet()) {
+            Element valueElt;
+            try {
+                TypedObject object = new PropertyValue(keyValue.getKey(),
+                                                       node.getNodeType().getName(),
+                                                       keyValue.getValue(),
+                                                       settingsTypes.get(keyValue.getKey()));
+
+                valueElt = serializer.toXml(object, () -> scratch.createElement(SCHEMA_PROPERTY_VALUE));
+            } catch (Exception e) {
+                // print it, but don't throw it
+                new RuntimeException(e).printStackTrace();
+                continue;
+            }
+
+            newLine(writer, depth + 1);
+            writer.writeStartElement(SCHEMA_PROPERTY_ELEMENT);
+            writer.writeAttribute(SCHEMA_PROPERTY_NAME, keyValue.getKey());
+            writeElement(writer, valueElt, depth + 2);
+            newLine(writer, depth + 1);
+            writer.writeEndElement();
+        }
+
+        for (BeanModelNode child : node.getChildrenByType().values()) {
+            writeNode(writer, (SimpleBeanModelNode) child, depth + 1, scratch);
+        }
 
-        private final Serializer<TypedObject<?>> serializer = SerializerRegistrar.getInstance().compositeSerializer();
+        for (BeanModelNodeSeq<?> seq : node.getSequenceProperties()) {
+            newLine(writer, depth + 1);
+            writer.writeStartElement(SCHEMA_NODESEQ_ELEMENT);
+            writer.writeAttribute(SCHEMA_PROPERTY_NAME, seq.getPropertyName());
+            for (SimpleBeanModelNode item : seq.getChildrenNodes()) {
+                writeNode(writer, item, depth + 2, scratch);
+            }
+            newLine(writer, depth + 1);
+            writer.writeEndElement();
+        }
 
-        @Override
-        public void visit(SimpleBeanModelNode node, Element parent) {
-            Element nodeElement = parent.getOwnerDocument().createElement(SCHEMA_NODE_ELEMENT);
-            nodeElement.setAttribute(SCHEMA_NODE_CLASS_ATTRIBUTE, node.getNodeType().getCanonicalName());
+        newLine(writer, depth);
+        writer.writeEndElement();
+    }
 
-            Map<String, Type> settingsTypes = node.getSettingsTypes();
 
-            for (Entry<String, Object> keyValue : node.getSettingsValues().entrySet()) {
+    static Class<?> findClass(String name) {
+        if (name == null) {
+            return null;
+        }
+        Class<?> clazz = CLASSES.get(name);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(name);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+            CLASSES.put(name, clazz);
+        }
+        return clazz;
+    }
 
 
-                try {
+    /** Writes a DOM element produced by a serializer. */
+    private static void writeElement(XMLStreamWriter writer, Element element, int depth) throws XMLStreamException {
+        newLine(writer, depth);
 
-                    TypedObject object = new PropertyValue(keyValue.getKey(),
-                                                           node.getNodeType().getName(),
-                                                           keyValue.getValue(),
-                                                           settingsTypes.get(keyValue.getKey()));
+        NodeList children = element.getChildNodes();
+        boolean hasChildElements = false;
+        for (int i = 0; i < children.getLength(); i++) {
+            hasChildElements |= children.item(i).getNodeType() == Node.ELEMENT_NODE;
+        }
 
-                    Element valueElt = serializer.toXml(object, () -> parent.getOwnerDocument().createElement(SCHEMA_PROPERTY_VALUE));
-                    Element propertyElement = parent.getOwnerDocument().createElement(SCHEMA_PROPERTY_ELEMENT);
-                    propertyElement.setAttribute(SCHEMA_PROPERTY_NAME, keyValue.getKey());
-                    propertyElement.appendChild(valueElt);
-                    nodeElement.appendChild(propertyElement);
-                } catch (Exception e) {
-                    // print it, but don't throw it
-                    new RuntimeException(e).printStackTrace();
+        if (hasChildElements) {
+            writer.writeStartElement(element.getTagName());
+        } else {
+            writer.writeEmptyElement(element.getTagName());
+        }
+
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attr = (Attr) attributes.item(i);
+            writer.writeAttribute(attr.getName(), attr.getValue());
+        }
+
+        if (hasChildElements) {
+            for (int i = 0; i < children.getLength(); i++) {
+                if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                    writeElement(writer, (Element) children.item(i), depth + 1);
                 }
             }
+            newLine(writer, depth);
+            writer.writeEndElement();
+        }
+    }
+
 
-            parent.appendChild(nodeElement);
-            super.visit(node, nodeElement);
+    /**
+     * Reads the element the reader is positioned on into a DOM element,
+     * for a serializer. Serializers only use attributes and child elements.
+     */
+    private static Element readElement(XMLStreamReader reader, Document scratch) throws XMLStreamException {
+        Element element = scratch.createElement(reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
         }
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            element.appendChild(readElement(reader, scratch));
+        }
+        return element;
+    }
+
+
+    /** Skips the element the reader is positioned on, and its descendants. */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
 
 
-        @Override
-        public void visit(BeanModelNodeSeq<?> node, Element parent) {
-            Element nodeElement = parent.getOwnerDocument().createElement(SCHEMA_NODESEQ_ELEMENT);
-            nodeElement.setAttribute(SCHEMA_PROPERTY_NAME, node.getPropertyName());
-            parent.appendChild(nodeElement);
-            super.visit(node, nodeElement);
+    private static void newLine(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder(1 + depth * INDENT.length()).append('\n');
+        for (int i = 0; i < depth; i++) {
+            sb.append(INDENT);
         }
+        writer.writeCharacters(sb.toString());
     }
 }
@@ -59,6 +59,16 @@ public enum AvailableSyntaxHighlighters implements SyntaxHighlighter {
         return engine.computeHighlighting(text);
     }
 
+    @Override
+    public HighlightedText highlight(String text) {
+        return engine.highlight(text);
+    }
+
+    @Override
+    public HighlightedText updateHighlighting(HighlightedText previous, String text) {
+        return engine.updateHighlighting(previous, text);
+    }
+
     /**
      * Gets the highlighter for a language if available.
      *
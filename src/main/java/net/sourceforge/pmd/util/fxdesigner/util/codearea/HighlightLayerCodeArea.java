@@ -4,28 +4,32 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.codearea;
 
+import java.time.Duration;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.reactfx.value.Var;
 
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.RichRunnable;
 import net.sourceforge.pmd.util.fxdesigner.util.codearea.HighlightLayerCodeArea.LayerId;
 
 import javafx.application.Platform;
 import javafx.beans.NamedArg;
+import javafx.concurrent.Task;
 import javafx.scene.control.IndexRange;
 
 
@@ -41,9 +45,32 @@ import javafx.scene.control.IndexRange;
 public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxHighlightingCodeArea {
 
 
+    /**
+     * Style spans are computed on this thread, which is shared by all code
+     * areas. Only the final result is set on the FX thread.
+     */
+    private static final ExecutorService PAINTING_EXECUTOR =
+        Executors.newSingleThreadExecutor(DesignerUtil.daemonThreadFactory("designer-painter"));
+
+    /** Number of paragraphs styled above and below the visible ones, when the painting is limited to the viewport. */
+    private static final int VIEWPORT_MARGIN = 100;
+    /** Delay after the end of scrolling before styling the revealed regions. */
+    private static final Duration VIEWPORT_REPAINT_DELAY = Duration.ofMillis(50);
+
     /** Contains the highlighting layers. */
     private final Map<K, StyleLayer> layersById;
 
+    // both only accessed on the FX thread
+    /** Incremented on each painting request, to discard outdated results. */
+    private int paintingGeneration;
+    /** Incremented on each text change. */
+    private int textVersion;
+    /** Range of offsets styled by the last painting, [from, to[. */
+    private int paintedFrom;
+    private int paintedTo;
+
+    private final Var<Boolean> viewportLimited = Var.newSimpleVar(false);
+
 
     /**
      * Builds a new code area with the given enum type as layer id provider.
@@ -58,6 +85,29 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
         this.layersById = EnumSet.allOf(idEnum)
                                  .stream()
                                  .collect(Collectors.toConcurrentMap(id -> id, id -> new StyleLayer()));
+
+        plainTextChanges().subscribe(change -> textVersion++);
+
+        // fill the newly revealed regions lazily
+        getVisibleParagraphs().changes()
+                              .successionEnds(VIEWPORT_REPAINT_DELAY)
+                              .filter(change -> viewportLimited.getValue() && !isPainted(paintingWindow()))
+                              .subscribe(change -> repaintAsync());
+
+        viewportLimited.changes().subscribe(change -> repaintAsync());
+    }
+
+
+    /**
+     * If true, the layers and the syntax highlighting are only styled on
+     * the visible paragraphs plus a margin of {@value #VIEWPORT_MARGIN}
+     * paragraphs above and below, instead of on the whole text. The
+     * regions that are revealed by scrolling are styled when the scrolling
+     * stops. This bounds the cost of restyling by the size of the screen
+     * instead of the size of the text. False by default.
+     */
+    public Var<Boolean> viewportLimitedProperty() {
+        return viewportLimited;
     }
 
 
@@ -89,7 +139,7 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
 
         List<NodeStyleSpan> wrappedNodes = nodes.stream().map(n -> NodeStyleSpan.fromNode(n, this)).collect(Collectors.toList());
 
-        UniformStyleCollection collection = new UniformStyleCollection(Collections.singleton(layerId.getStyleClass()), wrappedNodes);
+        UniformStyleCollection collection = new UniformStyleCollection(StyleSet.of(layerId.getStyleClass()), wrappedNodes);
 
         return () -> layersById.get(layerId).styleNodes(resetLayer, collection);
     }
@@ -101,27 +151,125 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
      * update inside the restyling procedure, and mostly to make obvious
      * that each update needs restyling, and each restyling needs an update.
      *
+     * <p>The update is carried out on the FX thread, then the new style
+     * spans are computed on a background thread, and set on the FX thread
+     * if no other update was requested and the text hasn't changed since.
+     *
      * @param update Update to carry out
      */
     public void updateStyling(Runnable update) {
         Platform.runLater(() -> {
             update.run();
-            try {
-                this.setStyleSpans(0, recomputePainting());
-            } catch (Exception e) {
-                // we ignore these particular exceptions because they're
-                // commonly thrown when the text is being edited while
-                // the layering algorithm runs, and it doesn't matter
-                if ("StyleSpan's length cannot be negative".equals(e.getMessage())
-                    || StringUtils.contains(e.getMessage(), "is not a valid range within")) {
-                    return;
-                }
-                throw new RuntimeException("Unhandled error while recomputing the styling", e);
-            }
+            repaintAsync();
         });
     }
 
 
+    /** Must be called on the FX thread. */
+    private void repaintAsync() {
+        PaintingRequest request = newPaintingRequest(paintingWindow());
+        IndexRange window = request.window;
+
+        // snapshot the layers, the collections are immutable
+        List<UniformStyleCollection> collections = layersById.values().stream()
+                                                             .flatMap(layer -> layer.getCollections().stream())
+                                                             .filter(c -> !c.isEmpty())
+                                                             .collect(Collectors.toList());
+        @Nullable StyleSpans<Collection<String>> syntax = currentSyntaxSpans(!collections.isEmpty());
+        int length = getLength();
+
+        Task<StyleSpans<Collection<String>>> task = new Task<StyleSpans<Collection<String>>>() {
+            @Override
+            protected StyleSpans<Collection<String>> call() {
+                return window.getStart() == 0 && window.getEnd() == length
+                       ? recomputePainting(collections, syntax, length)
+                       : recomputePainting(collections, syntax, length, window.getStart(), window.getEnd());
+            }
+        };
+
+        task.setOnSucceeded(e -> applyPainting(request, task.getValue()));
+        task.setOnFailed(e -> handlePaintingException(task.getException()));
+
+        PAINTING_EXECUTOR.execute(task);
+    }
+
+
+    /**
+     * Returns a new painting request for the given range, which outdates
+     * the previous ones. Must be called on the FX thread.
+     */
+    PaintingRequest newPaintingRequest(IndexRange window) {
+        return new PaintingRequest(++paintingGeneration, textVersion, window);
+    }
+
+
+    /**
+     * Sets the spans computed for the request, unless it's outdated.
+     * Must be called on the FX thread.
+     *
+     * @return False if the request was outdated, and the spans were dropped
+     */
+    boolean applyPainting(PaintingRequest request, StyleSpans<Collection<String>> spans) {
+        if (request.generation != paintingGeneration || request.textVersion != textVersion) {
+            // outdated, a newer painting is on its way or the text
+            // changed, which will trigger a new update
+            return false;
+        }
+        try {
+            this.setStyleSpans(request.window.getStart(), spans);
+            paintedFrom = request.window.getStart();
+            paintedTo = request.window.getEnd();
+        } catch (Exception ex) {
+            handlePaintingException(ex);
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the range of text that should be styled, i.e. the visible
+     * paragraphs and a margin if the painting is limited to the viewport,
+     * otherwise the whole text.
+     */
+    private IndexRange paintingWindow() {
+        if (!viewportLimited.getValue() || getVisibleParagraphs().isEmpty()) {
+            return new IndexRange(0, getLength());
+        }
+
+        int firstPar;
+        int lastPar;
+        try {
+            firstPar = firstVisibleParToAllParIndex();
+            lastPar = lastVisibleParToAllParIndex();
+        } catch (AssertionError | IllegalStateException e) {
+            // thrown if the viewport is being laid out
+            return new IndexRange(0, getLength());
+        }
+
+        int fromPar = Math.max(0, firstPar - VIEWPORT_MARGIN);
+        int toPar = Math.min(getParagraphs().size() - 1, lastPar + VIEWPORT_MARGIN);
+        return new IndexRange(getAbsolutePosition(fromPar, 0),
+                              getAbsolutePosition(toPar, getParagraphLength(toPar)));
+    }
+
+
+    private boolean isPainted(IndexRange range) {
+        return paintedFrom <= range.getStart() && range.getEnd() <= paintedTo;
+    }
+
+
+    private static void handlePaintingException(Throwable e) {
+        // we ignore these particular exceptions because they're
+        // commonly thrown when the text is being edited while
+        // the layering algorithm runs, and it doesn't matter
+        if ("StyleSpan's length cannot be negative".equals(e.getMessage())
+            || StringUtils.contains(e.getMessage(), "is not a valid range within")) {
+            return;
+        }
+        throw new RuntimeException("Unhandled error while recomputing the styling", e);
+    }
+
+
     /**
      * Clears all style layers from their contents, including syntax highlighting.
      */
@@ -144,19 +292,14 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
 
 
     /**
-     * Recomputes a single style spans from the syntax highlighting layer and nodes to highlight.
+     * Returns the syntax highlighting spans to overlay the layers on,
+     * making sure they're up to date with the text. Must be called on
+     * the FX thread.
      */
-    private StyleSpans<Collection<String>> recomputePainting() {
-
-        List<StyleSpans<Collection<String>>> allSpans = layersById.values().stream()
-                                                                  .flatMap(layer -> layer.getCollections().stream())
-                                                                  .filter(c -> !c.isEmpty())
-                                                                  .map(UniformStyleCollection::toSpans)
-                                                                  .collect(Collectors.toList());
-
+    private @Nullable StyleSpans<Collection<String>> currentSyntaxSpans(boolean hasLayers) {
         ensureSyntaxUpToDate();
 
-        if (allSpans.isEmpty()) {
+        if (!hasLayers) {
             return syntaxHighlight.getOrElse(emptySpan());
         }
 
@@ -169,16 +312,140 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
             updateSyntaxHighlightingSynchronously();
         }
 
-        syntaxHighlight.ifPresent(allSpans::add);
+        return syntaxHighlight.getValue();
+    }
+
+
+    /**
+     * Recomputes a single style spans from the syntax highlighting layer and nodes to highlight.
+     * This only uses its parameters, so that it can run on a background thread.
+     *
+     * @param collections Non-empty style collections of the layers
+     * @param syntax      Syntax highlighting spans, if any
+     * @param textLength  Length of the text the spans are computed for
+     */
+    private static StyleSpans<Collection<String>> recomputePainting(List<UniformStyleCollection> collections,
+                                                                    @Nullable StyleSpans<Collection<String>> syntax,
+                                                                    int textLength) {
+
+        List<StyleSpans<Collection<String>>> allSpans = collections.stream()
+                                                                   .map(UniformStyleCollection::toSpans)
+                                                                   .collect(Collectors.toList());
+
+        if (allSpans.isEmpty()) {
+            // then this is the syntax highlighting or an empty span
+            return syntax;
+        }
+
+        if (syntax != null) {
+            allSpans.add(syntax);
+        }
 
         final StyleSpans<Collection<String>> base = allSpans.get(0);
+        allSpans.removeIf(spans -> spans != base && spans.length() > textLength);
 
-        return allSpans.stream()
-                       .filter(spans -> spans != base)
-                       .filter(spans -> spans.length() <= getLength())
-                       .reduce(base, (accumulator, elt) -> accumulator.overlay(elt, SyntaxHighlightingCodeArea::additiveOverlay));
+        return overlayAll(allSpans);
+    }
 
 
+    /**
+     * Same as {@link #recomputePainting(List, StyleSpans, int)}, restricted to
+     * the range [from, to[ of the text. The result starts at offset {@code from}.
+     */
+    static StyleSpans<Collection<String>> recomputePainting(List<UniformStyleCollection> collections,
+                                                            @Nullable StyleSpans<Collection<String>> syntax,
+                                                            int textLength,
+                                                            int from,
+                                                            int to) {
+
+        List<StyleSpans<Collection<String>>> allSpans = collections.stream()
+                                                                   .map(c -> c.toSpans(from, to))
+                                                                   .collect(Collectors.toList());
+
+        // outdated syntax highlighting, which is longer than the text, is dropped
+        if (syntax != null && syntax.length() <= textLength) {
+            allSpans.add(UniformStyleCollection.restrict(syntax, from, to));
+        }
+
+        return overlayAll(allSpans);
+    }
+
+
+    /**
+     * Overlays all the given spans in a single pass. The style of each region
+     * is the union of the styles of the spans that cover it in each layer,
+     * as with {@link #additiveOverlay(Collection, Collection)}. The cost is
+     * linear in the total number of spans (times the number of layers, which
+     * is small).
+     */
+    static StyleSpans<Collection<String>> overlayAll(List<StyleSpans<Collection<String>>> layers) {
+        int k = layers.size();
+        // index of the current span in each layer, and its end offset
+        int[] spanIdx = new int[k];
+        int[] spanEnd = new int[k];
+        int totalSpans = 0;
+        for (int i = 0; i < k; i++) {
+            StyleSpans<Collection<String>> layer = layers.get(i);
+            totalSpans += layer.getSpanCount();
+            spanEnd[i] = layer.getSpanCount() > 0 ? layer.getStyleSpan(0).getLength() : 0;
+        }
+
+        StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>(totalSpans);
+        boolean empty = true;
+        int pos = 0;
+        while (true) {
+            // skip the spans that end before the current position
+            for (int i = 0; i < k; i++) {
+                StyleSpans<Collection<String>> layer = layers.get(i);
+                while (spanIdx[i] < layer.getSpanCount() && spanEnd[i] <= pos) {
+                    spanIdx[i]++;
+                    if (spanIdx[i] < layer.getSpanCount()) {
+                        spanEnd[i] += layer.getStyleSpan(spanIdx[i]).getLength();
+                    }
+                }
+            }
+
+            // the next region ends at the first end of a current span
+            int next = Integer.MAX_VALUE;
+            StyleSet style = StyleSet.EMPTY;
+            for (int i = 0; i < k; i++) {
+                StyleSpans<Collection<String>> layer = layers.get(i);
+                if (spanIdx[i] < layer.getSpanCount()) {
+                    next = Math.min(next, spanEnd[i]);
+                    style = style.union(StyleSet.of(layer.getStyleSpan(spanIdx[i]).getStyle()));
+                }
+            }
+
+            if (next == Integer.MAX_VALUE) {
+                break;
+            }
+            builder.add(style, next - pos);
+            empty = false;
+            pos = next;
+        }
+
+        return empty ? StyleSpans.singleton(StyleSet.EMPTY, 0) : builder.create();
+    }
+
+
+    /**
+     * If the painting is limited to the viewport, the syntax highlighting is
+     * repainted with the layers on the viewport, otherwise it's applied to the
+     * whole text with {@link #styleSyntaxHighlightChange(StyleSpans, StyleSpans)}.
+     */
+    @Override
+    protected void applySyntaxHighlightChange(@Nullable StyleSpans<Collection<String>> oldSyntax,
+                                              @Nullable StyleSpans<Collection<String>> newSyntax) {
+        if (viewportLimited.getValue()) {
+            if (oldSyntax == null && newSyntax == null) {
+                // nothing changed, and repainting would clear the syntax
+                // highlighting again if there's no highlighter
+                return;
+            }
+            repaintAsync();
+        } else {
+            super.applySyntaxHighlightChange(oldSyntax, newSyntax);
+        }
     }
 
 
@@ -204,14 +471,7 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
 
     /** Subtracts the second argument from the first. */
     private static StyleSpans<Collection<String>> subtract(StyleSpans<Collection<String>> base, StyleSpans<Collection<String>> diff) {
-        return base.overlay(diff, (style1, style2) -> {
-            if (style2.isEmpty()) {
-                return style1;
-            }
-            Set<String> styles = new HashSet<>(style1);
-            styles.removeAll(style2);
-            return styles;
-        });
+        return base.overlay(diff, (style1, style2) -> style2.isEmpty() ? style1 : StyleSet.of(style1).minus(StyleSet.of(style2)));
     }
 
     /** Identifier for a highlighting layer. */
@@ -224,4 +484,21 @@ public class HighlightLayerCodeArea<K extends Enum<K> & LayerId> extends SyntaxH
          */
         String getStyleClass();
     }
+
+
+    /** State of the code area when a painting was requested. */
+    static final class PaintingRequest {
+
+        private final int generation;
+        private final int textVersion;
+        /** Range of text to style. */
+        private final IndexRange window;
+
+
+        PaintingRequest(int generation, int textVersion, IndexRange window) {
+            this.generation = generation;
+            this.textVersion = textVersion;
+            this.window = window;
+        }
+    }
 }
@@ -0,0 +1,205 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.fxmisc.richtext.model.StyleSpan;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+
+/**
+ * Result of a {@link SyntaxHighlighter} on some text. Besides the
+ * style spans, this remembers the tokens at which the highlighter may
+ * be restarted from scratch, so that the highlighting can be updated
+ * incrementally when the text is edited, see {@link SyntaxHighlighter#updateHighlighting(HighlightedText, String)}.
+ *
+ * <p>Instances are immutable, and may be shared between threads.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class HighlightedText {
+
+    private final String text;
+    private final List<StyleSpan<Collection<String>>> tokens;
+    /** Start offset of each token. */
+    private final int[] starts;
+    /** Indices of the tokens at whose start the highlighter is in its initial state. */
+    private final BitSet restartPoints;
+    /**
+     * Offset up to which the text had been read when each token was
+     * produced, including the lookahead of the highlighter. This is
+     * the max over the token and all the tokens before it.
+     */
+    private final int[] readEnds;
+    private StyleSpans<Collection<String>> spans;
+
+
+    private HighlightedText(String text, List<StyleSpan<Collection<String>>> tokens, int[] starts, BitSet restartPoints, int[] readEnds) {
+        this.text = text;
+        this.tokens = tokens;
+        this.starts = starts;
+        this.restartPoints = restartPoints;
+        this.readEnds = readEnds;
+    }
+
+
+    /** Returns the text that was highlighted. */
+    public String getText() {
+        return text;
+    }
+
+
+    /** Returns the style spans, which cover exactly the text. */
+    public StyleSpans<Collection<String>> getSpans() {
+        if (spans == null) {
+            // racy but idempotent
+            spans = tokens.isEmpty()
+                    ? StyleSpans.singleton(Collections.emptyList(), text.length())
+                    : new StyleSpansBuilder<Collection<String>>(tokens.size()).addAll(tokens).create();
+        }
+        return spans;
+    }
+
+
+    int getTokenCount() {
+        return tokens.size();
+    }
+
+
+    int getTokenStart(int tokenIdx) {
+        return tokenIdx == tokens.size() ? text.length() : starts[tokenIdx];
+    }
+
+
+    boolean isRestartPoint(int tokenIdx) {
+        return restartPoints.get(tokenIdx);
+    }
+
+
+    /**
+     * Returns the index of the last restart point that's safe to restart
+     * from to highlight an edit at the given offset. One token of margin
+     * is kept before the edit, since the edit may extend the token that
+     * precedes it. Besides, none of the tokens before the restart point
+     * may have looked at the text after the offset. For example, with a
+     * rule like {@code "/*" ~"*\/"}, an unclosed comment opener is lexed
+     * as other tokens only after the lexer has read the rest of the text,
+     * so the tokens after it must be lexed again when the comment is closed.
+     */
+    int getRestartPointBefore(int offset) {
+        if (tokens.isEmpty() || offset == 0) {
+            return 0;
+        }
+        int idx = Arrays.binarySearch(starts, 0, tokens.size(), offset - 1);
+        // index of the token containing the char before the offset
+        int containing = idx >= 0 ? idx : -idx - 2;
+        int restart = restartPoints.previousSetBit(Math.max(0, containing - 1));
+        // the read ends are increasing, so this stops at the first suitable point
+        while (restart > 0 && readEnds[restart - 1] > offset) {
+            restart = restartPoints.previousSetBit(restart - 1);
+        }
+        return Math.max(0, restart);
+    }
+
+
+    /** Returns the index of the first token that starts at or after the offset, starting the search at the given index. */
+    int getTokenAtOrAfter(int fromIdx, int offset) {
+        int i = fromIdx;
+        while (i < tokens.size() && starts[i] < offset) {
+            i++;
+        }
+        return i;
+    }
+
+
+    /** Converts spans computed by a highlighter that can't be restarted. */
+    static HighlightedText fromSpans(String text, StyleSpans<Collection<String>> spans) {
+        Builder builder = new Builder(spans.getSpanCount());
+        for (StyleSpan<Collection<String>> span : spans) {
+            builder.add(span.getStyle(), span.getLength(), false, text.length());
+        }
+        return builder.build(text);
+    }
+
+
+    /** Accumulates tokens in document order. */
+    static final class Builder {
+
+        private final List<StyleSpan<Collection<String>>> tokens;
+        private final BitSet restartPoints = new BitSet();
+        private int[] starts;
+        private int[] readEnds;
+        private int length;
+        private int maxReadEnd;
+
+
+        Builder(int expectedSize) {
+            tokens = new ArrayList<>(expectedSize);
+            starts = new int[Math.max(expectedSize, 16)];
+            readEnds = new int[starts.length];
+        }
+
+
+        /**
+         * Adds a token. Empty tokens are ignored.
+         *
+         * @param style       Style of the token
+         * @param tokenLength Length of the token
+         * @param restartable Whether the highlighter is in its initial state at the start of the token
+         * @param readEnd     Offset up to which the text had been read when the token was produced
+         */
+        void add(Collection<String> style, int tokenLength, boolean restartable, int readEnd) {
+            add(new StyleSpan<>(style, tokenLength), restartable, readEnd);
+        }
+
+
+        private void add(StyleSpan<Collection<String>> token, boolean restartable, int readEnd) {
+            if (token.getLength() == 0) {
+                return;
+            }
+            int idx = tokens.size();
+            if (idx == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+                readEnds = Arrays.copyOf(readEnds, starts.length);
+            }
+            starts[idx] = length;
+            maxReadEnd = Math.max(maxReadEnd, readEnd);
+            readEnds[idx] = maxReadEnd;
+            // the start of the text is always a restart point
+            restartPoints.set(idx, restartable || idx == 0);
+            tokens.add(token);
+            length += token.getLength();
+        }
+
+
+        /**
+         * Copies the tokens of another text, in the range [from, to[.
+         * Their read ends are shifted by the given amount.
+         */
+        void addAll(HighlightedText other, int from, int to, int shift) {
+            for (int i = from; i < to; i++) {
+                add(other.tokens.get(i), other.isRestartPoint(i), other.readEnds[i] + shift);
+            }
+        }
+
+
+        int getLength() {
+            return length;
+        }
+
+
+        HighlightedText build(String text) {
+            return new HighlightedText(text, Collections.unmodifiableList(tokens), starts, restartPoints, readEnds);
+        }
+    }
+}
@@ -7,17 +7,30 @@ package net.sourceforge.pmd.util.fxdesigner.util.codearea;
 
 import static net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil.setOf;
 
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Collection;
 import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.fxmisc.richtext.model.StyleSpans;
-import org.fxmisc.richtext.model.StyleSpansBuilder;
 
 
 /**
- * Language-specific engine for syntax highlighting.
+ * Language-specific engine for syntax highlighting, using a lexer generated
+ * by JFlex.
+ *
+ * <p>The highlighting is updated incrementally: lexing is restarted at the
+ * last token before the edit where the lexer was in its initial state, and
+ * stops as soon as the lexer reaches a token that was already there before
+ * the edit, in the same state. The tokens after this point are reused.
+ * Lexer rules may look ahead arbitrarily far (eg {@code ~} rules), so
+ * the text is fed to the lexer in small chunks, to record how far it
+ * has read when it produces each token. Lexing is only restarted at a
+ * point such that the tokens before it haven't read the edited text.
  *
  * @author Clément Fournier
  * @since 6.19.0
@@ -31,24 +44,90 @@ public abstract class LexerBasedHighlighter implements SyntaxHighlighter {
         this.languageName = languageName;
     }
 
-    protected abstract JflexLexer newLexer(String text, Set<String> baseClasses);
+    /**
+     * Creates a lexer that reads the given reader. The lexer must
+     * be in its initial state.
+     */
+    protected abstract JflexLexer newLexer(Reader reader, Set<String> baseClasses);
 
     @Override
     public StyleSpans<Collection<String>> computeHighlighting(String text) {
-        StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>();
+        return highlight(text).getSpans();
+    }
+
+    @Override
+    public HighlightedText highlight(String text) {
+        HighlightedText.Builder builder = new HighlightedText.Builder(text.length() / 4);
+        lex(text, 0, builder, null, 0, 0);
+        return builder.build(text);
+    }
+
+    @Override
+    public HighlightedText updateHighlighting(HighlightedText previous, String text) {
+        String oldText = previous.getText();
+
+        int prefix = StringUtils.indexOfDifference(oldText, text);
+        if (prefix < 0) {
+            return previous; // no change
+        }
+
+        int maxSuffix = Math.min(oldText.length(), text.length()) - prefix;
+        int suffix = 0;
+        while (suffix < maxSuffix
+            && oldText.charAt(oldText.length() - suffix - 1) == text.charAt(text.length() - suffix - 1)) {
+            suffix++;
+        }
+
+        int restartIdx = previous.getRestartPointBefore(prefix);
+
+        HighlightedText.Builder builder = new HighlightedText.Builder(previous.getTokenCount());
+        builder.addAll(previous, 0, restartIdx, 0);
+        lex(text, previous.getTokenStart(restartIdx), builder, previous, text.length() - suffix, text.length() - oldText.length());
+        return builder.build(text);
+    }
+
 
-        JflexLexer lexer = newLexer(text, setOf(languageName, "code"));
+    /**
+     * Lexes the text from the given offset and adds the tokens to the builder.
+     * If a previous result is given, stops when the tokens of the previous
+     * result can be reused, and adds them instead.
+     *
+     * @param damageEnd End offset of the edited region in the new text
+     * @param delta     Difference in length between the new text and the previous one
+     */
+    private void lex(String text, int from, HighlightedText.Builder builder, @Nullable HighlightedText previous, int damageEnd, int delta) {
+        JflexLexer lexer;
         try {
+            StringReader source = new StringReader(text);
+            source.skip(from);
+            CountingReader reader = new CountingReader(source, from);
+            lexer = newLexer(reader, setOf(languageName, "code"));
+
+            int offset = from;
+            int oldIdx = 0;
+            boolean restartable = lexer.isRestartable();
             Set<String> classes = lexer.nextSpan();
             while (classes != null) {
-                builder.add(classes, lexer.yylength());
+                if (previous != null && restartable && offset >= damageEnd) {
+                    // the text after the damaged region is unchanged, so the tokens
+                    // are the same as before if the lexer is in the same state
+                    oldIdx = previous.getTokenAtOrAfter(oldIdx, offset - delta);
+                    if (oldIdx < previous.getTokenCount()
+                        && previous.getTokenStart(oldIdx) == offset - delta
+                        && previous.isRestartPoint(oldIdx)) {
+                        builder.addAll(previous, oldIdx, previous.getTokenCount(), delta);
+                        return;
+                    }
+                }
+
+                builder.add(classes, lexer.yylength(), restartable, reader.position);
+                offset += lexer.yylength();
+                restartable = lexer.isRestartable();
                 classes = lexer.nextSpan();
             }
         } catch (IOException ignored) {
             throw new RuntimeException(ignored); // shouldn't occur
         }
-
-        return builder.create();
     }
 
     @Override
@@ -57,6 +136,53 @@ public abstract class LexerBasedHighlighter implements SyntaxHighlighter {
     }
 
 
+    /**
+     * Records the offset up to which the text has been read, and reads at
+     * most a few chars at a time so that the lexer doesn't read much more
+     * than it needs.
+     */
+    private static final class CountingReader extends FilterReader {
+
+        private static final int MAX_CHUNK = 64;
+
+        private int position;
+
+
+        CountingReader(Reader in, int position) {
+            super(in);
+            this.position = position;
+        }
+
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                position++;
+            }
+            return c;
+        }
+
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = super.read(cbuf, off, Math.min(len, MAX_CHUNK));
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+
+
     /** Generated lexers should implement this interface. */
     public interface JflexLexer {
 
@@ -66,5 +192,20 @@ public abstract class LexerBasedHighlighter implements SyntaxHighlighter {
 
         int yylength();
 
+
+        /** Current lexical state, generated by JFlex. */
+        int yystate();
+
+
+        /**
+         * Returns true if the lexer is in its initial state, that is, if
+         * lexing with a new lexer from the current position would produce
+         * the same tokens. Lexers that keep additional state beside their
+         * lexical state should override this.
+         */
+        default boolean isRestartable() {
+            return yystate() == 0; // YYINITIAL
+        }
+
     }
 }
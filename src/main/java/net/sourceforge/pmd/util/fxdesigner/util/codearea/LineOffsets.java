@@ -0,0 +1,143 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea;
+
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.TextPos2D;
+
+
+/**
+ * Table of the start offsets of the lines of a text, which converts
+ * PMD positions (line, column) to and from absolute offsets without
+ * going through the document model of a code area. It's computed once
+ * per version of a text, and is immutable, so conversions can be done
+ * on any thread.
+ *
+ * <p>The conversions follow the same conventions as {@link PmdCoordinatesSystem},
+ * i.e. lines and columns start at 1, and a tab counts as 1 column.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class LineOffsets {
+
+    /** Offset of the first char of each line, indexed by PMD line - 1. */
+    private final int[] lineStarts;
+    private final String text;
+    private final int textLength;
+
+
+    private LineOffsets(int[] lineStarts, String text) {
+        this.lineStarts = lineStarts;
+        this.text = text;
+        this.textLength = text.length();
+    }
+
+
+    /**
+     * Computes the table for the given text. A line ends with {@code \n},
+     * {@code \r\n}, or a lone {@code \r}.
+     */
+    public static LineOffsets of(String text) {
+        int numLines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (isLineStart(text, i + 1)) {
+                numLines++;
+            }
+        }
+
+        int[] starts = new int[numLines];
+        int line = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (isLineStart(text, i + 1)) {
+                starts[line++] = i + 1;
+            }
+        }
+        return new LineOffsets(starts, text);
+    }
+
+
+    private static boolean isLineStart(String text, int idx) {
+        char prev = text.charAt(idx - 1);
+        return prev == '\n' || prev == '\r' && (idx == text.length() || text.charAt(idx) != '\n');
+    }
+
+
+    /** Returns the text this table was computed for. */
+    public String getText() {
+        return text;
+    }
+
+
+    public int getNumLines() {
+        return lineStarts.length;
+    }
+
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+
+    /**
+     * Returns the length of the given line, without its line terminator.
+     *
+     * @throws IndexOutOfBoundsException If the line is not in the text
+     */
+    public int getLineLength(int line) {
+        if (line < 1 || line > lineStarts.length) {
+            throw new IndexOutOfBoundsException("Line " + line + " is not in [1, " + lineStarts.length + "]");
+        }
+        int start = lineStarts[line - 1];
+        if (line == lineStarts.length) {
+            return textLength - start;
+        }
+        int end = lineStarts[line] - 1;
+        if (text.charAt(end) == '\n' && end > start && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return end - start;
+    }
+
+
+    /**
+     * Returns the absolute offset of the given PMD position. Out of
+     * bounds positions are clipped to the text, like in
+     * {@link PmdCoordinatesSystem#getOffsetFromPmdPosition(org.fxmisc.richtext.CodeArea, int, int)}.
+     */
+    public int offsetOf(int line, int column) {
+        int lineIdx = Math.max(0, Math.min(line - 1, lineStarts.length - 1));
+        int raw = lineStarts[lineIdx] + Math.max(column, 1) - 1;
+        return Math.max(0, Math.min(raw, textLength - 1));
+    }
+
+
+    /** Returns the PMD line of the given offset. */
+    public int lineOf(int offset) {
+        int low = 0;
+        int high = lineStarts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(high, 0) + 1;
+    }
+
+
+    /** Returns the PMD column of the given offset. */
+    public int columnOf(int offset) {
+        return offset - lineStarts[lineOf(offset) - 1] + 1;
+    }
+
+
+    /** Inverse of {@link #offsetOf(int, int)}. */
+    public TextPos2D positionOf(int offset) {
+        int line = lineOf(offset);
+        return new TextPos2D(line, offset - lineStarts[line - 1] + 1);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+
+/**
+ * Index of the text ranges of the nodes of a tree, which answers "deepest
+ * node at this offset" and "node covering this range" queries in logarithmic
+ * time, without allocating. It's built once per parse by the AST manager,
+ * and attached to the root of the tree, see {@link #forRoot(Node)}.
+ *
+ * <p>Ranges are stored as absolute offsets in the source text. The end
+ * offset is inclusive, like PMD's end column. This makes the same assumptions
+ * about text bounds as {@link UniformStyleCollection#toSpans()}, i.e. that the
+ * ranges of the children of a node are disjoint, ordered, and contained in
+ * the range of their parent.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class NodeIntervalIndex {
+
+    private static final SimpleDataKey<NodeIntervalIndex> INDEX_KEY = DataMap.simpleDataKey("designer.interval.index");
+
+    private final Node root;
+    private final LineOffsets lineOffsets;
+
+    // the nodes in pre-order, so sorted by start offset
+    private final Node[] nodes;
+    private final int[] starts;
+    private final int[] ends;
+    /** Index of the parent of each node, -1 for the root. */
+    private final int[] parents;
+    private int size;
+
+
+    private NodeIntervalIndex(Node root, String sourceText) {
+        this.root = root;
+        this.lineOffsets = LineOffsets.of(sourceText);
+
+        int numNodes = countNodes(root);
+        this.nodes = new Node[numNodes];
+        this.starts = new int[numNodes];
+        this.ends = new int[numNodes];
+        this.parents = new int[numNodes];
+        addRec(root, -1);
+    }
+
+
+    /**
+     * Builds the index of the given tree, and attaches it to the root, so
+     * that it may be retrieved with {@link #forRoot(Node)}.
+     *
+     * @param root       Root of the tree
+     * @param sourceText Text that was parsed
+     */
+    public static NodeIntervalIndex build(Node root, String sourceText) {
+        NodeIntervalIndex index = new NodeIntervalIndex(root, sourceText);
+        root.getUserMap().set(INDEX_KEY, index);
+        return index;
+    }
+
+
+    /** Returns the index that was built for the given root, or null if there is none. */
+    public static @Nullable NodeIntervalIndex forRoot(Node root) {
+        return root.getUserMap().get(INDEX_KEY);
+    }
+
+
+    public Node getRoot() {
+        return root;
+    }
+
+
+    /** Returns the line offsets of the text that was parsed. */
+    public LineOffsets getLineOffsets() {
+        return lineOffsets;
+    }
+
+
+    /**
+     * Returns the offset of the given PMD position (1-based line and column)
+     * in the source text. Out of bounds positions are clipped to the text.
+     */
+    public int offsetOf(int line, int column) {
+        return lineOffsets.offsetOf(line, column);
+    }
+
+
+    /**
+     * Returns the innermost node whose range contains the given offset,
+     * or null if the offset is outside of the root.
+     */
+    public @Nullable Node findNodeAt(int offset) {
+        int idx = indexOfNodeAt(offset);
+        return idx < 0 ? null : nodes[idx];
+    }
+
+
+    /**
+     * Returns the innermost node that covers the entire given range.
+     *
+     * @param start Start offset of the range
+     * @param end   End offset of the range, inclusive
+     * @param exact If true, only a node whose range is exactly the
+     *              given range may be returned
+     */
+    public @Nullable Node findNodeCovering(int start, int end, boolean exact) {
+        for (int i = indexOfNodeAt(start); i >= 0; i = parents[i]) {
+            boolean contains = starts[i] <= start && ends[i] >= end;
+            if (!exact && contains) {
+                return nodes[i];
+            } else if (exact && starts[i] == start && ends[i] == end) {
+                return nodes[i];
+            } else if (exact && contains) {
+                // if it isn't the same, then we can't find better so better stop looking
+                return null;
+            }
+        }
+        return null;
+    }
+
+
+    private int indexOfNodeAt(int offset) {
+        // the last node that starts before the offset, if it doesn't
+        // contain the offset then one of its parents may
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int idx = high;
+        while (idx >= 0 && ends[idx] < offset) {
+            idx = parents[idx];
+        }
+        return idx;
+    }
+
+
+    private void addRec(Node node, int parentIdx) {
+        int idx = size++;
+        nodes[idx] = node;
+        starts[idx] = offsetOf(node.getBeginLine(), node.getBeginColumn());
+        ends[idx] = offsetOf(node.getEndLine(), node.getEndColumn());
+        parents[idx] = parentIdx;
+
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            addRec(node.getChild(i), idx);
+        }
+    }
+
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            count += countNodes(node.getChild(i));
+        }
+        return count;
+    }
+}
@@ -26,11 +26,14 @@ class NodeStyleSpan {
     private static final Comparator<NodeStyleSpan> COMPARATOR = Comparator.comparing(NodeStyleSpan::getNode, Comparator.comparingInt(Node::getBeginLine).thenComparing(Node::getBeginColumn));
     private final Node node;
     private final SyntaxHighlightingCodeArea codeArea;
+    /** Line offsets of the text of the code area when this span was created. */
+    private final LineOffsets lineOffsets;
 
 
     private NodeStyleSpan(Node node, SyntaxHighlightingCodeArea codeArea) {
         this.node = node;
         this.codeArea = codeArea;
+        this.lineOffsets = codeArea.getLineOffsets();
     }
 
 
@@ -56,7 +59,7 @@ class NodeStyleSpan {
     }
 
     private int getAbsolutePosition(int line, int column) {
-        return PmdCoordinatesSystem.getOffsetFromPmdPosition(codeArea, line, column);
+        return lineOffsets.offsetOf(line, column);
     }
 
 
@@ -51,6 +51,9 @@ public final class PmdCoordinatesSystem {
      * it.
      */
     public static TextPos2D getPmdLineAndColumnFromOffset(CodeArea codeArea, int absoluteOffset) {
+        if (codeArea instanceof SyntaxHighlightingCodeArea) {
+            return ((SyntaxHighlightingCodeArea) codeArea).getLineOffsets().positionOf(absoluteOffset);
+        }
 
         Position pos = codeArea.offsetToPosition(absoluteOffset, Bias.Forward);
 
@@ -69,8 +72,14 @@ public final class PmdCoordinatesSystem {
      * same for columns.
      * <li>PMD's end column is inclusive and not exclusive.
      * </ul>
+     *
+     * <p>If the code area is a {@link SyntaxHighlightingCodeArea}, this uses
+     * its {@link LineOffsets} instead of the document model.
      */
     public static int getOffsetFromPmdPosition(CodeArea codeArea, int line, int column) {
+        if (codeArea instanceof SyntaxHighlightingCodeArea) {
+            return ((SyntaxHighlightingCodeArea) codeArea).getLineOffsets().offsetOf(line, column);
+        }
         line = max(line, 1);
         column = max(column, 1);
 
@@ -87,9 +96,14 @@ public final class PmdCoordinatesSystem {
 
     /**
      * Locates the innermost node in the given [root] that contains the
-     * position at [textOffset] in the [codeArea].
+     * position at [textOffset] in the [codeArea]. This uses the
+     * {@link NodeIntervalIndex} of the root if it has one.
      */
     public static Optional<Node> findNodeAt(Node root, TextPos2D target) {
+        NodeIntervalIndex index = NodeIntervalIndex.forRoot(root);
+        if (index != null) {
+            return Optional.ofNullable(index.findNodeAt(index.offsetOf(target.line, target.column)));
+        }
         return Optional.ofNullable(findNodeRec(root, target)).filter(it -> contains(it, target));
     }
 
@@ -145,6 +159,12 @@ public final class PmdCoordinatesSystem {
      *              is *exactly* the given text range, otherwise it may be larger.
      */
     public static Optional<Node> findNodeCovering(Node root, TextRange range, boolean exact) {
+        NodeIntervalIndex index = NodeIntervalIndex.forRoot(root);
+        if (index != null) {
+            int start = index.offsetOf(range.startPos.line, range.startPos.column);
+            int end = index.offsetOf(range.endPos.line, range.endPos.column);
+            return Optional.ofNullable(index.findNodeCovering(start, end, exact));
+        }
         return findNodeAt(root, range.startPos).map(innermost -> {
             for (Node parent : toIterable(parentIterator(innermost, true))) {
                 TextRange parentRange = rangeOf(parent);
@@ -215,6 +235,15 @@ public final class PmdCoordinatesSystem {
             return startPos.compareTo(pos) <= 0 && endPos.compareTo(pos) >= 0;
         }
 
+        /** Same as {@link #contains(TextPos2D)}, without allocating a position. */
+        public boolean contains(int line, int column) {
+            return comparePos(startPos, line, column) <= 0 && comparePos(endPos, line, column) >= 0;
+        }
+
+        private static int comparePos(TextPos2D pos, int line, int column) {
+            return pos.line != line ? Integer.compare(pos.line, line) : Integer.compare(pos.column, column);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -7,7 +7,6 @@ package net.sourceforge.pmd.util.fxdesigner.util.codearea;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -26,6 +25,9 @@ import org.fxmisc.richtext.model.StyleSpansBuilder;
  * specific CSS class to every found token. The whole text also receives a style class named after the language of the
  * tokenizer (e.g. "xml" or "java"). Styling of each class is then done in stylesheets.
  *
+ * <p>The built-in languages use a {@link LexerBasedHighlighter} instead, which is
+ * faster, can't overflow the stack on large inputs, and supports incremental updates.
+ *
  * @author Clément Fournier
  * @since 6.0.0
  */
@@ -56,7 +58,7 @@ public abstract class SimpleRegexSyntaxHighlighter implements SyntaxHighlighter
         Matcher matcher = grammar.getMatcher(text);
         int lastKwEnd = 0;
 
-        final Set<String> onlyLang = Collections.singleton(languageName);
+        final Set<String> onlyLang = StyleSet.of(languageName);
         try {
             while (matcher.find()) {
                 Set<String> styleClasses = grammar.getCssClassesOfLastGroup(matcher);
@@ -145,7 +147,7 @@ public abstract class SimpleRegexSyntaxHighlighter implements SyntaxHighlighter
         public RegexHighlightGrammarBuilder or(Collection<String> cssClass, String regex) {
             String groupName = RandomStringUtils.randomAlphabetic(8);
             groupNameToRegex.put(groupName, regex);
-            groupNameToCssClasses.put(groupName, new HashSet<>(cssClass));
+            groupNameToCssClasses.put(groupName, StyleSet.of(cssClass));
             return this;
         }
 
@@ -0,0 +1,184 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Interned, immutable set of style classes. Each style class is assigned
+ * an id in a global registry, and a set is identified by the bitset of
+ * the ids of its classes, so there is only ever one instance for a given
+ * set of style classes. Unions and differences of interned sets are cached,
+ * which makes overlaying style spans allocation free once the combinations
+ * that appear in the text have been seen.
+ *
+ * <p>Style sets are safe to use from several threads.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+public final class StyleSet extends AbstractSet<String> {
+
+    private static final Map<String, Integer> CLASS_IDS = new ConcurrentHashMap<>();
+    private static final Map<BitSet, StyleSet> INTERNED = new ConcurrentHashMap<>();
+
+    /** The empty style set. */
+    public static final StyleSet EMPTY = intern(new BitSet(), Collections.emptyList());
+
+    /** Never mutated. */
+    private final BitSet bits;
+    /** In the order of their ids. */
+    private final List<String> classes;
+    private final int hash;
+    private final Map<StyleSet, StyleSet> unions = new ConcurrentHashMap<>();
+    private final Map<StyleSet, StyleSet> differences = new ConcurrentHashMap<>();
+
+
+    private StyleSet(BitSet bits, List<String> classes) {
+        this.bits = bits;
+        this.classes = classes;
+        // consistent with AbstractSet#hashCode
+        this.hash = classes.stream().mapToInt(String::hashCode).sum();
+    }
+
+
+    /**
+     * Returns the interned set containing the given style classes. This
+     * returns the argument if it's already a style set.
+     */
+    public static StyleSet of(Collection<String> styleClasses) {
+        if (styleClasses instanceof StyleSet) {
+            return (StyleSet) styleClasses;
+        } else if (styleClasses.isEmpty()) {
+            return EMPTY;
+        }
+
+        BitSet bits = new BitSet();
+        for (String styleClass : styleClasses) {
+            bits.set(idOf(styleClass));
+        }
+        StyleSet set = INTERNED.get(bits);
+        return set != null ? set : intern(bits, styleClasses);
+    }
+
+
+    /** Returns the interned set containing the given style classes. */
+    public static StyleSet of(String... styleClasses) {
+        return of(Arrays.asList(styleClasses));
+    }
+
+
+    /** Returns the union of both collections, as a style set. */
+    public static StyleSet union(Collection<String> styles1, Collection<String> styles2) {
+        return of(styles1).union(of(styles2));
+    }
+
+
+    private static StyleSet intern(BitSet bits, Collection<String> styleClasses) {
+        return INTERNED.computeIfAbsent(bits, b -> {
+            String[] sorted = styleClasses.stream().distinct().toArray(String[]::new);
+            Arrays.sort(sorted, Comparator.comparingInt(StyleSet::idOf));
+            return new StyleSet(b, Collections.unmodifiableList(Arrays.asList(sorted)));
+        });
+    }
+
+
+    private static int idOf(String styleClass) {
+        Integer id = CLASS_IDS.get(styleClass);
+        if (id != null) {
+            return id;
+        }
+        synchronized (CLASS_IDS) {
+            id = CLASS_IDS.get(styleClass);
+            if (id == null) {
+                id = CLASS_IDS.size();
+                CLASS_IDS.put(styleClass, id);
+            }
+            return id;
+        }
+    }
+
+
+    /** Returns the set containing the classes of this set and of the other. */
+    public StyleSet union(StyleSet other) {
+        if (other == this || other.isEmpty()) {
+            return this;
+        } else if (this.isEmpty()) {
+            return other;
+        }
+
+        StyleSet result = unions.get(other);
+        if (result == null) {
+            List<String> all = new ArrayList<>(classes);
+            all.addAll(other.classes);
+            result = of(all);
+            unions.put(other, result);
+        }
+        return result;
+    }
+
+
+    /** Returns the set containing the classes of this set that are not in the other. */
+    public StyleSet minus(StyleSet other) {
+        if (other.isEmpty() || this.isEmpty()) {
+            return this;
+        }
+
+        StyleSet result = differences.get(other);
+        if (result == null) {
+            List<String> remaining = new ArrayList<>(classes);
+            remaining.removeAll(other.classes);
+            result = of(remaining);
+            differences.put(other, result);
+        }
+        return result;
+    }
+
+
+    @Override
+    public boolean contains(Object o) {
+        Integer id = o instanceof String ? CLASS_IDS.get(o) : null;
+        return id != null && bits.get(id);
+    }
+
+
+    @Override
+    public Iterator<String> iterator() {
+        return classes.iterator();
+    }
+
+
+    @Override
+    public int size() {
+        return classes.size();
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof StyleSet) {
+            // interned
+            return this == o;
+        }
+        return super.equals(o);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
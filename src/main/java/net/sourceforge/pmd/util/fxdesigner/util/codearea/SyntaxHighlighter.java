@@ -36,4 +36,33 @@ public interface SyntaxHighlighter {
     StyleSpans<Collection<String>> computeHighlighting(String text);
 
 
+    /**
+     * Computes the syntax highlighting on the given text, keeping
+     * enough information to update it incrementally later on with
+     * {@link #updateHighlighting(HighlightedText, String)}.
+     *
+     * @param text The text
+     *
+     * @return The highlighted text
+     */
+    default HighlightedText highlight(String text) {
+        return HighlightedText.fromSpans(text, computeHighlighting(text));
+    }
+
+
+    /**
+     * Updates the highlighting after the text was edited. Highlighters
+     * that support it only recompute the highlighting of the region that
+     * was edited, and reuse the rest from the previous result. By default,
+     * the whole text is highlighted again.
+     *
+     * @param previous Result of this highlighter on a previous version of the text
+     * @param text     The new text
+     *
+     * @return The highlighted text
+     */
+    default HighlightedText updateHighlighting(HighlightedText previous, String text) {
+        return highlight(text);
+    }
+
 }
@@ -6,10 +6,7 @@ package net.sourceforge.pmd.util.fxdesigner.util.codearea;
 
 import java.time.Duration;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -66,6 +63,15 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
 
     private final EventSource<?> synchronousUpdateTicks = new EventSource<>();
 
+    /**
+     * Last result of the current highlighter, from which the next one is computed
+     * incrementally. Only accessed on the FX thread.
+     */
+    private @Nullable HighlightedText lastHighlightedText;
+
+    /** Line offsets of the current text, null if the text changed since they were computed. */
+    private @Nullable LineOffsets lineOffsets;
+
     public SyntaxHighlightingCodeArea() {
         // captured in the closure
         final EventHandler<WindowEvent> autoCloseHandler = e -> syntaxAutoRefresh.ifPresent(Subscription::unsubscribe);
@@ -95,6 +101,21 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
         );
 
         Nodes.addInputMap(this, im);
+
+        plainTextChanges().subscribe(change -> lineOffsets = null);
+    }
+
+
+    /**
+     * Returns the line offsets of the current text. They're computed
+     * once per version of the text, and can be used on another thread
+     * to convert PMD positions into offsets in that version.
+     */
+    public LineOffsets getLineOffsets() {
+        if (lineOffsets == null) {
+            lineOffsets = LineOffsets.of(getText());
+        }
+        return lineOffsets;
     }
 
 
@@ -111,6 +132,7 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
         syntaxAutoRefresh.ifPresent(Subscription::unsubscribe);
 
         syntaxHighlighter.setValue(highlighter);
+        lastHighlightedText = null;
 
         if (highlighter == null) {
             syntaxAutoRefresh.setValue(null);
@@ -123,8 +145,8 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
         syntaxAutoRefresh.setValue(subscribeSyntaxHighlighting(defaultHighlightingTicks(), synchronousUpdateTicks, highlighter));
 
         try { // refresh the highlighting once.
-            Task<StyleSpans<Collection<String>>> t = computeHighlightingAsync(Executors.newSingleThreadExecutor(), highlighter, getText());
-            t.setOnSucceeded(e -> this.setCurrentSyntaxHighlight(t.getValue()));
+            Task<HighlightedText> t = computeHighlightingAsync(Executors.newSingleThreadExecutor(), highlighter, null, getText());
+            t.setOnSucceeded(e -> this.setCurrentSyntaxHighlight(highlighter, t.getValue()));
         } catch (Exception ignored) {
             // nevermind
         }
@@ -149,22 +171,25 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
             r -> new Thread(r, "Code-area-" + this.hashCode() + "-"
                 + highlighter.getLanguageTerseName() + "-highlighter"));
         return ticks.successionEnds(TEXT_CHANGE_DELAY)
-                    .supplyTask(() -> computeHighlightingAsync(executorService, highlighter, this.getText()))
+                    .supplyTask(() -> computeHighlightingAsync(executorService, highlighter, lastHighlightedText, this.getText()))
                     .awaitLatest(ticks.or(canceller))
                     .filterMap(t -> {
                         t.ifFailure(Throwable::printStackTrace);
                         return t.toOptional();
                     })
-                    .subscribe(this::setCurrentSyntaxHighlight)
+                    .subscribe(h -> setCurrentSyntaxHighlight(highlighter, h))
                     .and(executorService::shutdownNow);
     }
 
 
-    private static Task<StyleSpans<Collection<String>>> computeHighlightingAsync(ExecutorService service, SyntaxHighlighter highlighter, String text) {
-        Task<StyleSpans<Collection<String>>> task = new Task<StyleSpans<Collection<String>>>() {
+    private static Task<HighlightedText> computeHighlightingAsync(ExecutorService service,
+                                                                  SyntaxHighlighter highlighter,
+                                                                  @Nullable HighlightedText previous,
+                                                                  String text) {
+        Task<HighlightedText> task = new Task<HighlightedText>() {
             @Override
-            protected StyleSpans<Collection<String>> call() {
-                return highlighter.computeHighlighting(text);
+            protected HighlightedText call() {
+                return computeHighlighting(highlighter, previous, text);
             }
         };
         if (!service.isShutdown()) {
@@ -174,10 +199,16 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
     }
 
 
+    private static HighlightedText computeHighlighting(SyntaxHighlighter highlighter, @Nullable HighlightedText previous, String text) {
+        return previous == null ? highlighter.highlight(text) : highlighter.updateHighlighting(previous, text);
+    }
+
+
     /**
      * Removes the current syntax highlighting span.
      */
     protected void clearSyntaxHighlighting() {
+        lastHighlightedText = null;
         setCurrentSyntaxHighlight(null);
     }
 
@@ -187,6 +218,14 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
         }
     }
 
+    private void setCurrentSyntaxHighlight(SyntaxHighlighter highlighter, HighlightedText highlightedText) {
+        if (highlighter != syntaxHighlighter.getValue()) {
+            return; // outdated
+        }
+        lastHighlightedText = highlightedText;
+        setCurrentSyntaxHighlight(highlightedText.getSpans());
+    }
+
     /**
      * Update the syntax highlighting to the specified value.
      * If null, syntax highlighting is stripped off.
@@ -195,7 +234,17 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
         StyleSpans<Collection<String>> oldSyntaxHighlight = currentSyntaxHighlight.getValue();
         this.currentSyntaxHighlight.setValue(newSyntax);
 
-        setStyleSpans(0, styleSyntaxHighlightChange(oldSyntaxHighlight, newSyntax));
+        applySyntaxHighlightChange(oldSyntaxHighlight, newSyntax);
+    }
+
+
+    /**
+     * Applies a change of the syntax highlighting to the code area. By default
+     * the whole text is restyled with the result of {@link #styleSyntaxHighlightChange(StyleSpans, StyleSpans)}.
+     */
+    protected void applySyntaxHighlightChange(@Nullable StyleSpans<Collection<String>> oldSyntax,
+                                              @Nullable StyleSpans<Collection<String>> newSyntax) {
+        setStyleSpans(0, styleSyntaxHighlightChange(oldSyntax, newSyntax));
     }
 
     @Override
@@ -225,26 +274,30 @@ public class SyntaxHighlightingCodeArea extends CodeArea {
      */
     protected void updateSyntaxHighlightingSynchronously() {
         synchronousUpdateTicks.push(null);
-        syntaxHighlighter.getOpt().map(h -> h.computeHighlighting(getText())).ifPresent(currentSyntaxHighlight::setValue);
+        syntaxHighlighter.ifPresent(h -> {
+            lastHighlightedText = computeHighlighting(h, lastHighlightedText, getText());
+            currentSyntaxHighlight.setValue(lastHighlightedText.getSpans());
+        });
     }
 
 
     protected StyleSpans<Collection<String>> emptySpan() {
-        return StyleSpans.singleton(Collections.emptyList(), getLength());
+        return StyleSpans.singleton(StyleSet.EMPTY, getLength());
     }
 
 
-    /** Overlay operation that stacks up the style classes of the two overlaid spans. */
+    /**
+     * Overlay operation that stacks up the style classes of the two overlaid spans.
+     * The result is an interned {@link StyleSet}, so this doesn't allocate if the
+     * styles are style sets whose union was already computed.
+     */
     protected static Collection<String> additiveOverlay(Collection<String> style1, Collection<String> style2) {
-        // todo using persistent collections here may be beneficial
         if (style1.isEmpty()) {
             return style2;
         } else if (style2.isEmpty()) {
             return style1;
         }
-        Set<String> styles = new HashSet<>(style1);
-        styles.addAll(style2);
-        return styles;
+        return StyleSet.union(style1, style2);
     }
 
 
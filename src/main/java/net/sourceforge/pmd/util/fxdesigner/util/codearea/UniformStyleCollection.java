@@ -9,13 +9,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.fxmisc.richtext.model.StyleSpan;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
 
@@ -34,12 +35,14 @@ import net.sourceforge.pmd.util.fxdesigner.util.codearea.NodeStyleSpan.PositionS
  */
 public class UniformStyleCollection {
 
-    private static final Map<Set<String>, Map<Integer, Map<Boolean, Set<String>>>> DEPTH_STYLE_CACHE = new HashMap<>();
+    /** Spans are computed on a background thread, see {@link HighlightLayerCodeArea#updateStyling(Runnable)}. */
+    private static final Map<Set<String>, Map<Integer, Map<Boolean, Set<String>>>> DEPTH_STYLE_CACHE = new ConcurrentHashMap<>();
 
     private final Set<String> style;
     // sorted in document order
     private final List<NodeStyleSpan> nodes;
-    private StyleSpans<Collection<String>> spanCache;
+    private volatile StyleSpans<Collection<String>> spanCache;
+    private volatile NestingIndex nestingIndex;
 
     public UniformStyleCollection(Set<String> style, Collection<NodeStyleSpan> ns) {
         this.style = style;
@@ -87,29 +90,25 @@ public class UniformStyleCollection {
     private Set<String> styleForDepth(int depth, boolean inlineHighlight) {
         if (depth < 0) {
             // that's the style when we're outside any node
-            return Collections.emptySet();
+            return StyleSet.EMPTY;
         } else {
             // Caching reduces the number of sets used by this step of the overlaying routine to
-            // only a few. The number is probably blowing up during the actual spans overlaying
-            // in StyleContext#recomputePainting
-            DEPTH_STYLE_CACHE.putIfAbsent(style, new HashMap<>());
-            Map<Integer, Map<Boolean, Set<String>>> depthToStyle = DEPTH_STYLE_CACHE.get(style);
-
-            depthToStyle.putIfAbsent(depth, new HashMap<>());
-            Map<Boolean, Set<String>> isInlineToStyle = depthToStyle.get(depth);
-
-            if (isInlineToStyle.containsKey(inlineHighlight)) {
-                return isInlineToStyle.get(inlineHighlight);
-            }
-
-            Set<String> s = new HashSet<>(style);
-            s.add("depth-" + depth);
-            if (inlineHighlight) {
-                // inline highlight can be used to add boxing around a node if it wouldn't be ugly
-                s.add("inline-highlight");
-            }
-            isInlineToStyle.put(inlineHighlight, s);
-            return s;
+            // only a few. The sets are interned, so that overlaying them with the other layers
+            // is cached too, see HighlightLayerCodeArea#overlayAll
+            Map<Integer, Map<Boolean, Set<String>>> depthToStyle =
+                DEPTH_STYLE_CACHE.computeIfAbsent(style, k -> new ConcurrentHashMap<>());
+
+            Map<Boolean, Set<String>> isInlineToStyle = depthToStyle.computeIfAbsent(depth, k -> new ConcurrentHashMap<>());
+
+            return isInlineToStyle.computeIfAbsent(inlineHighlight, inline -> {
+                Set<String> s = new HashSet<>(style);
+                s.add("depth-" + depth);
+                if (inline) {
+                    // inline highlight can be used to add boxing around a node if it wouldn't be ugly
+                    s.add("inline-highlight");
+                }
+                return StyleSet.of(s);
+            });
         }
     }
 
@@ -138,13 +137,86 @@ public class UniformStyleCollection {
         return spanCache;
     }
 
+    /**
+     * Returns the spans of this collection on the range [from, to[ of the
+     * text. Only the nodes that overlap the range are overlaid, and they're
+     * found by binary search, so the cost is bounded by the size of the
+     * range (and the depth of the nodes). The returned spans have length
+     * {@code to - from} and start at offset {@code from}. This isn't cached.
+     */
+    public StyleSpans<Collection<String>> toSpans(int from, int to) {
+        NestingIndex index = nestingIndex();
+
+        Deque<NodeStyleSpan> overlapping = new ArrayDeque<>();
+        int first = index.firstStartingAtOrAfter(from);
+        int last = index.firstStartingAtOrAfter(to);
+        for (int i = first; i < last; i++) {
+            if (index.ends[i] > from) {
+                overlapping.addLast(nodes.get(i));
+            }
+        }
+
+        // The nodes that start before the range and overlap it contain its start.
+        // Since the nodes nest, those are the last node starting before the range,
+        // and its enclosing nodes.
+        for (int i = first - 1; i >= 0; i = index.parents[i]) {
+            if (index.ends[i] > from) {
+                overlapping.addFirst(nodes.get(i));
+            }
+        }
+
+        return restrict(buildSpans(new ArrayList<>(overlapping)), from, to);
+    }
+
+
+    private NestingIndex nestingIndex() {
+        NestingIndex index = nestingIndex;
+        if (index == null) {
+            // this may be computed twice concurrently, which is harmless
+            index = new NestingIndex(nodes);
+            nestingIndex = index;
+        }
+        return index;
+    }
+
+
+    /**
+     * Returns the part of the given spans on the range [from, to[. The result
+     * has length {@code to - from}, and is padded with unstyled text if needed.
+     */
+    static StyleSpans<Collection<String>> restrict(StyleSpans<Collection<String>> spans, int from, int to) {
+        int length = spans.length();
+        if (from >= length) {
+            return StyleSpans.singleton(StyleSet.EMPTY, to - from);
+        } else if (from == 0 && to == length) {
+            return spans;
+        }
+
+        StyleSpans<Collection<String>> sub = spans.subView(from, Math.min(to, length));
+        if (to <= length) {
+            return sub;
+        }
+        StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>(sub.getSpanCount() + 1);
+        for (StyleSpan<Collection<String>> span : sub) {
+            builder.add(span.getStyle(), span.getLength());
+        }
+        return builder.add(StyleSet.EMPTY, to - length).create();
+    }
+
+
     public StyleSpans<Collection<String>> buildSpans() {
+        return buildSpans(nodes);
+    }
+
+
+    /** Overlays the given spans, which are sorted in document order. */
+    private StyleSpans<Collection<String>> buildSpans(List<NodeStyleSpan> nodes) {
 
         if (nodes.isEmpty()) {
-            return StyleSpans.singleton(Collections.emptyList(), 0);
+            return StyleSpans.singleton(StyleSet.EMPTY, 0);
         } else if (nodes.size() == 1) {
             PositionSnapshot snapshot = nodes.get(0).snapshot();
-            return new StyleSpansBuilder<Collection<String>>().add(Collections.emptyList(), snapshot.getBeginIndex())
+            return new StyleSpansBuilder<Collection<String>>().add(StyleSet.EMPTY, snapshot.getBeginIndex())
                                                               .add(styleForDepth(0, snapshot), snapshot.getLength())
                                                               // we don't bother adding the remainder
                                                               .create();
@@ -167,7 +239,7 @@ public class UniformStyleCollection {
             // first iteration
             if (previous == null) {
                 previous = current;
-                builder.add(Collections.emptyList(), previous.getBeginIndex());
+                builder.add(StyleSet.EMPTY, previous.getBeginIndex());
                 lastSpanEnd = previous.getBeginIndex();
                 continue;
             }
@@ -233,6 +305,59 @@ public class UniformStyleCollection {
     }
 
 
+    /**
+     * Offsets of the nodes of a collection, in document order, and the
+     * index of the node that encloses each node. Node positions are
+     * snapshots, so this can be computed once.
+     */
+    private static final class NestingIndex {
+
+        private final int[] begins;
+        private final int[] ends;
+        /** Index of the closest enclosing node, -1 if there's none. */
+        private final int[] parents;
+
+
+        NestingIndex(List<NodeStyleSpan> nodes) {
+            int n = nodes.size();
+            begins = new int[n];
+            ends = new int[n];
+            parents = new int[n];
+
+            int[] stack = new int[n];
+            int top = 0;
+            for (int i = 0; i < n; i++) {
+                PositionSnapshot snapshot = nodes.get(i).snapshot();
+                begins[i] = snapshot.getBeginIndex();
+                ends[i] = snapshot.getEndIndex();
+
+                // pop the nodes that end before this one starts
+                while (top > 0 && ends[stack[top - 1]] <= begins[i]) {
+                    top--;
+                }
+                parents[i] = top > 0 ? stack[top - 1] : -1;
+                stack[top++] = i;
+            }
+        }
+
+
+        /** Index of the first node that starts at or after the offset, the number of nodes if there is none. */
+        int firstStartingAtOrAfter(int offset) {
+            int lo = 0;
+            int hi = begins.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (begins[mid] < offset) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+
     /** Returns an empty style collection. */
     public static UniformStyleCollection empty() {
         return new UniformStyleCollection(Collections.emptySet(), Collections.emptySet());
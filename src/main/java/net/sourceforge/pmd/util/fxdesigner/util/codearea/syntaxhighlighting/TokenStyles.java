@@ -0,0 +1,36 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.StyleSet;
+
+
+/**
+ * Style classes of the tokens produced by a lexer, so that a lexer
+ * doesn't create a new set for each token. The sets are {@linkplain StyleSet interned}.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class TokenStyles {
+
+    private final Map<HighlightClasses, Set<String>> byClass = new EnumMap<>(HighlightClasses.class);
+    private final Set<String> baseClasses;
+
+
+    TokenStyles(Set<String> baseClasses) {
+        this.baseClasses = baseClasses;
+    }
+
+
+    /** Returns the css classes of the given token type, plus the base classes of the lexer. */
+    Set<String> get(HighlightClasses type) {
+        return byClass.computeIfAbsent(type, t -> StyleSet.union(t.css, baseClasses));
+    }
+}
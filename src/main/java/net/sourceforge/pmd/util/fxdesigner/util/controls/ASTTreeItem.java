@@ -9,13 +9,19 @@ import static net.sourceforge.pmd.util.fxdesigner.util.DesignerIteratorUtil.reve
 import static net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil.attrToXpathString;
 import static net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil.makeStyledText;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
-import org.apache.commons.lang3.mutable.MutableInt;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reactfx.value.Var;
 
 import net.sourceforge.pmd.lang.ast.Node;
@@ -24,33 +30,52 @@ import net.sourceforge.pmd.util.designerbindings.DesignerBindings;
 import net.sourceforge.pmd.util.designerbindings.DesignerBindings.DefaultDesignerBindings;
 import net.sourceforge.pmd.util.fxdesigner.app.ApplicationComponent;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.LineOffsets;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.NodeIntervalIndex;
 import net.sourceforge.pmd.util.fxdesigner.util.controls.SearchableTreeView.SearchableTreeItem;
 
+import javafx.collections.ObservableList;
 import javafx.scene.control.TreeItem;
 import javafx.scene.text.TextFlow;
 
 /**
  * Represents a tree item (data, not UI) in the ast TreeView.
  *
+ * <p>The children of an item are only created when they're first
+ * requested, e.g. when the item is expanded, so that a tree item is
+ * not created for every node of a big AST. To keep it that way, only
+ * the first {@value #MAX_EXPANDED_BY_DEFAULT} items created since the tree
+ * was built or last patched are expanded by default. Items found with {@link #findItem(Node)} are still created
+ * on demand.
+ *
  * @author Clément Fournier
  * @since 6.0.0
  */
 public final class ASTTreeItem extends SearchableTreeItem<Node> implements ApplicationComponent {
 
+    /**
+     * Maximum number of items of a tree that are expanded by default. The
+     * TreeView creates the children of all expanded items, so if all were
+     * expanded, all items would be created.
+     */
+    static final int MAX_EXPANDED_BY_DEFAULT = 5000;
 
     /**
      * Latent style classes are style classes that logically belong to this tree item (i.e. the node it wraps).
      * The TreeItem must sync them to the TreeCell that currently displays it. The value is never null.
      */
     private final Var<Collection<String>> latentStyleClasses = Var.newSimpleVar(Collections.emptyList());
-    private final DesignerRoot designerRoot;
+    private final TreeContext context;
+    private String searchableText;
+    private boolean childrenBuilt;
 
 
-    private ASTTreeItem(Node n, int treeIndex, DesignerRoot designerRoot) {
-        super(n, treeIndex);
-        this.designerRoot = designerRoot;
+    private ASTTreeItem(Node n, TreeContext context) {
+        super(n, -1);
+        this.context = context;
         DesignerBindings bindings = languageBindingsProperty().getOrElse(DefaultDesignerBindings.getInstance());
-        setExpanded(bindings.isExpandedByDefaultInTree(n));
+        setExpanded(bindings.isExpandedByDefaultInTree(n) && context.expandedCount++ < MAX_EXPANDED_BY_DEFAULT);
+        latentStyleClasses.setValue(context.styleClasses.apply(n));
 
         treeCellProperty().changes().subscribe(change -> {
             if (change.getOldValue() != null) {
@@ -129,37 +154,247 @@ public final class ASTTreeItem extends SearchableTreeItem<Node> implements Appli
 
     @Override
     public String getSearchableText() {
-        return getValue() != null ? nodePresentableText(getValue()) : null;
+        if (searchableText == null && getValue() != null) {
+            // reset when the item is patched
+            searchableText = nodePresentableText(getValue());
+        }
+        return searchableText;
     }
 
 
     @Override
     public DesignerRoot getDesignerRoot() {
-        return designerRoot;
+        return context.designerRoot;
+    }
+
+
+    @Override
+    public boolean isLeaf() {
+        // don't build the children to answer that
+        return getValue().getNumChildren() == 0;
+    }
+
+
+    @Override
+    public ObservableList<TreeItem<Node>> getChildren() {
+        if (!childrenBuilt) {
+            childrenBuilt = true;
+            Node node = getValue();
+            List<ASTTreeItem> children = new ArrayList<>(node.getNumChildren());
+            for (int i = 0; i < node.getNumChildren(); i++) {
+                children.add(new ASTTreeItem(node.getChild(i), context));
+            }
+            super.getChildren().setAll(children);
+        }
+        return super.getChildren();
+    }
+
+
+    /** Visits the nodes of the subtree, without creating the items that were not created yet. */
+    @Override
+    protected void visitSearchableValues(BiConsumer<? super Node, String> visitor) {
+        DesignerBindings bindings = languageBindingsProperty().getOrElse(DefaultDesignerBindings.getInstance());
+        visitNodes(getValue(), bindings, visitor);
+    }
+
+
+    private static void visitNodes(Node node, DesignerBindings bindings, BiConsumer<? super Node, String> visitor) {
+        visitor.accept(node, nodePresentableText(node, bindings));
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            visitNodes(node.getChild(i), bindings, visitor);
+        }
+    }
+
+
+    /** Only creates the items on the path to the node. This method assumes this item is the root node. */
+    @Override
+    protected ASTTreeItem findItemForValue(Node value) {
+        return findItem(value);
     }
 
 
     /**
-     * Builds an ASTTreeItem recursively from a node.
+     * Updates this tree to display the given AST, which is usually a
+     * new version of the AST this item displays. Items whose node has
+     * a counterpart in the new AST are kept, with their expansion state.
+     * Their style classes are recomputed for their new node. Only the
+     * items that have been built are patched.
+     *
+     * <p>The edit is found by comparing the source texts of both trees
+     * (see {@link NodeIntervalIndex}). Nodes that are outside of the edit
+     * are matched if they have the same kind and the same text range, once
+     * shifted by the length of the edit. The children of those nodes are
+     * matched by index. Otherwise, children are matched by aligning the
+     * common prefix and suffix of the old and new children. In between,
+     * children with the same kind and text are matched first, which
+     * handles moved nodes, then the remaining children with the same kind,
+     * in order. If the trees have no index, the image of the nodes is
+     * used instead of their text range.
+     *
+     * @param newRoot Root of the new AST
+     *
+     * @return False if the new root doesn't match the node of this item,
+     *     in which case nothing was done, and the tree should be rebuilt
      */
-    static ASTTreeItem buildRoot(Node n, DesignerRoot designerRoot) {
-        return buildRootImpl(n, new MutableInt(0), designerRoot);
+    boolean patchTo(Node newRoot) {
+        if (!isSameKind(getValue(), newRoot)) {
+            return false;
+        }
+        // the items created by the patch may be expanded, as in a new tree
+        context.expandedCount = 0;
+        patchMatched(newRoot, PatchContext.between(getValue(), newRoot));
+        return true;
+    }
+
+
+    private void patchMatched(Node newNode, PatchContext patch) {
+        boolean unchanged = patch.isUnchanged(getValue(), newNode);
+
+        searchableText = null;
+        setValue(newNode);
+        // the style classes depend on the node, e.g. if it's an XPath result
+        setStyleClasses(context.styleClasses.apply(newNode));
+
+        if (!childrenBuilt) {
+            // they'll be built from the new node
+            return;
+        }
+
+        List<TreeItem<Node>> items = super.getChildren();
+        if (unchanged && items.size() == newNode.getNumChildren()) {
+            // same text, so the children are the same
+            for (int i = 0; i < items.size(); i++) {
+                ((ASTTreeItem) items.get(i)).patchMatched(newNode.getChild(i), patch);
+            }
+        } else {
+            patchChildren(items, newNode, patch);
+        }
+    }
+
+
+    private void patchChildren(List<TreeItem<Node>> items, Node newNode, PatchContext patch) {
+        int oldSize = items.size();
+        int newSize = newNode.getNumChildren();
+
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize
+            && patch.isUnchanged(items.get(prefix).getValue(), newNode.getChild(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+            && patch.isUnchanged(items.get(oldSize - 1 - suffix).getValue(), newNode.getChild(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        // the children in between overlap the edit
+        List<TreeItem<Node>> oldMiddle = new ArrayList<>(items.subList(prefix, oldSize - suffix));
+        ASTTreeItem[] matched = new ASTTreeItem[newSize - suffix - prefix];
+        boolean[] used = new boolean[oldMiddle.size()];
+        matchMiddle(oldMiddle, used, matched, newNode, prefix, patch::hasSameText);
+        matchMiddle(oldMiddle, used, matched, newNode, prefix, ASTTreeItem::isSameKind);
+
+        List<ASTTreeItem> kept = new ArrayList<>();
+        List<TreeItem<Node>> removed = new ArrayList<>();
+        for (int i = 0; i < oldMiddle.size(); i++) {
+            if (!used[i]) {
+                removed.add(oldMiddle.get(i));
+            }
+        }
+        for (ASTTreeItem item : matched) {
+            if (item != null) {
+                kept.add(item);
+            }
+        }
+
+        // apply the minimal edits, each one fires its own modification event
+        items.removeAll(removed);
+        if (!kept.equals(items.subList(prefix, prefix + kept.size()))) {
+            // some nodes were moved
+            items.subList(prefix, prefix + kept.size()).clear();
+            items.addAll(prefix, kept);
+        }
+        for (int i = 0; i < matched.length; i++) {
+            if (matched[i] == null) {
+                items.add(prefix + i, new ASTTreeItem(newNode.getChild(prefix + i), context));
+            }
+        }
+
+        // assert items.size() == newSize
+        for (int i = 0; i < newSize; i++) {
+            ASTTreeItem item = (ASTTreeItem) items.get(i);
+            if (item.getValue() != newNode.getChild(i)) {
+                // the new items already have the right node
+                item.patchMatched(newNode.getChild(i), patch);
+            }
+        }
+    }
+
+
+    /**
+     * Matches the new children that were not matched yet with the first
+     * old item that was not used yet, and whose node satisfies the predicate.
+     */
+    private static void matchMiddle(List<TreeItem<Node>> oldMiddle,
+                                    boolean[] used,
+                                    ASTTreeItem[] matched,
+                                    Node newNode,
+                                    int offset,
+                                    BiPredicate<Node, Node> matches) {
+        for (int i = 0; i < matched.length; i++) {
+            if (matched[i] != null) {
+                continue;
+            }
+            Node child = newNode.getChild(offset + i);
+            for (int j = 0; j < used.length; j++) {
+                if (!used[j] && matches.test(oldMiddle.get(j).getValue(), child)) {
+                    used[j] = true;
+                    matched[i] = (ASTTreeItem) oldMiddle.get(j);
+                    break;
+                }
+            }
+        }
+    }
+
+
+    private static boolean isSameKind(Node oldNode, Node newNode) {
+        return oldNode.getClass() == newNode.getClass()
+            && oldNode.getXPathNodeName().equals(newNode.getXPathNodeName());
     }
 
 
     /**
-     * Builds an ASTTreeItem recursively from a node.
+     * Calls the function on this item and the descendants that have
+     * been created, without creating the others.
      */
-    private static ASTTreeItem buildRootImpl(Node n, MutableInt idx, DesignerRoot designerRoot) {
-        ASTTreeItem item = new ASTTreeItem(n, idx.getAndIncrement(), designerRoot);
-        if (n.getNumChildren() > 0) {
-            for (int i = 0; i < n.getNumChildren(); i++) {
-                item.getChildren().add(buildRootImpl(n.getChild(i), idx, designerRoot));
+    void foreachBuilt(Consumer<? super ASTTreeItem> fun) {
+        fun.accept(this);
+        if (childrenBuilt) {
+            for (TreeItem<Node> child : super.getChildren()) {
+                ((ASTTreeItem) child).foreachBuilt(fun);
             }
         }
-        return item;
     }
 
+
+    /**
+     * Sets the function that gives the style classes of the items
+     * of this tree, which is used for items that are not built yet.
+     */
+    void setStyleClassesForTree(Function<Node, Collection<String>> styleClasses) {
+        context.styleClasses = styleClasses;
+        foreachBuilt(it -> it.setStyleClasses(styleClasses.apply(it.getValue())));
+    }
+
+
+    /**
+     * Builds the root item of a tree. Its descendants are built lazily.
+     */
+    static ASTTreeItem buildRoot(Node n, DesignerRoot designerRoot) {
+        return new ASTTreeItem(n, new TreeContext(designerRoot));
+    }
+
+
     public static <T, N extends TreeItem<T>> void foreach(N root, Consumer<? super N> fun) {
 
         if (root == null) {
@@ -178,7 +413,11 @@ public final class ASTTreeItem extends SearchableTreeItem<Node> implements Appli
 
     private String nodePresentableText(Node node) {
         DesignerBindings bindings = languageBindingsProperty().getOrElse(DefaultDesignerBindings.getInstance());
+        return nodePresentableText(node, bindings);
+    }
+
 
+    private static String nodePresentableText(Node node, DesignerBindings bindings) {
         Attribute attr = bindings.getMainAttribute(node);
         if (attr == null || attr.getStringValue() == null) {
             return node.getXPathNodeName();
@@ -212,4 +451,122 @@ public final class ASTTreeItem extends SearchableTreeItem<Node> implements Appli
     }
 
 
+    /**
+     * Edit between the source texts of two versions of an AST. It's
+     * found by trimming the common prefix and suffix of the texts.
+     */
+    private static final class PatchContext {
+
+        private final @Nullable LineOffsets oldText;
+        private final @Nullable LineOffsets newText;
+        /** Start offset of the edit, in both texts. */
+        private final int editStart;
+        /** End offset of the edit in the old text, exclusive. */
+        private final int oldEditEnd;
+        /** Difference between the lengths of the texts. */
+        private final int delta;
+
+
+        private PatchContext(@Nullable LineOffsets oldText,
+                             @Nullable LineOffsets newText,
+                             int editStart,
+                             int oldEditEnd,
+                             int delta) {
+            this.oldText = oldText;
+            this.newText = newText;
+            this.editStart = editStart;
+            this.oldEditEnd = oldEditEnd;
+            this.delta = delta;
+        }
+
+
+        static PatchContext between(Node oldRoot, Node newRoot) {
+            NodeIntervalIndex oldIndex = NodeIntervalIndex.forRoot(oldRoot);
+            NodeIntervalIndex newIndex = NodeIntervalIndex.forRoot(newRoot);
+            if (oldIndex == null || newIndex == null) {
+                return new PatchContext(null, null, 0, 0, 0);
+            }
+
+            String oldStr = oldIndex.getLineOffsets().getText();
+            String newStr = newIndex.getLineOffsets().getText();
+            int oldLen = oldStr.length();
+            int newLen = newStr.length();
+            int max = Math.min(oldLen, newLen);
+
+            int suffix = 0;
+            while (suffix < max && oldStr.charAt(oldLen - 1 - suffix) == newStr.charAt(newLen - 1 - suffix)) {
+                suffix++;
+            }
+            int prefix = 0;
+            while (prefix < max - suffix && oldStr.charAt(prefix) == newStr.charAt(prefix)) {
+                prefix++;
+            }
+            return new PatchContext(oldIndex.getLineOffsets(), newIndex.getLineOffsets(),
+                                    prefix, oldLen - suffix, newLen - oldLen);
+        }
+
+
+        /**
+         * Returns true if the new node is the old node, shifted by the
+         * edit. Only nodes that don't overlap the edit may be unchanged.
+         */
+        boolean isUnchanged(Node oldNode, Node newNode) {
+            if (!isSameKind(oldNode, newNode)) {
+                return false;
+            } else if (oldText == null || newText == null) {
+                return Objects.equals(oldNode.getImage(), newNode.getImage());
+            }
+
+            int oldStart = startOf(oldText, oldNode);
+            int oldEnd = endOf(oldText, oldNode);
+            if (oldEnd >= editStart && oldStart < oldEditEnd) {
+                return false;
+            }
+            return shift(oldStart) == startOf(newText, newNode) && shift(oldEnd) == endOf(newText, newNode);
+        }
+
+
+        /** Returns true if the nodes have the same kind and the same text, wherever they are. */
+        boolean hasSameText(Node oldNode, Node newNode) {
+            if (oldText == null || newText == null || !isSameKind(oldNode, newNode)) {
+                return false;
+            }
+            int oldStart = startOf(oldText, oldNode);
+            int newStart = startOf(newText, newNode);
+            int length = endOf(oldText, oldNode) - oldStart;
+            return length == endOf(newText, newNode) - newStart
+                && oldText.getText().regionMatches(oldStart, newText.getText(), newStart, length + 1);
+        }
+
+
+        private int shift(int oldOffset) {
+            return oldOffset < editStart ? oldOffset : oldOffset + delta;
+        }
+
+
+        private static int startOf(LineOffsets text, Node node) {
+            return text.offsetOf(node.getBeginLine(), node.getBeginColumn());
+        }
+
+
+        /** Inclusive, like the end column. */
+        private static int endOf(LineOffsets text, Node node) {
+            return text.offsetOf(node.getEndLine(), node.getEndColumn());
+        }
+    }
+
+
+    /** State shared by the items of a tree. */
+    private static final class TreeContext {
+
+        private final DesignerRoot designerRoot;
+        private Function<Node, Collection<String>> styleClasses = n -> Collections.emptyList();
+        /** Number of items expanded by default since the tree was built or last patched. */
+        private int expandedCount;
+
+
+        TreeContext(DesignerRoot designerRoot) {
+            this.designerRoot = designerRoot;
+        }
+    }
 }
@@ -96,25 +96,42 @@ public class AstTreeView extends SearchableTreeView<Node> implements NodeSelecti
                     .subscribe(fun -> {
                         TreeItem<Node> rootNode = getRoot();
                         if (rootNode != null && fun != null) {
-                            ((ASTTreeItem) rootNode).foreach(it -> ((ASTTreeItem) it).setStyleClasses(fun.apply(it.getValue())));
+                            // doesn't build the items that were not built yet
+                            ((ASTTreeItem) rootNode).setStyleClassesForTree(fun);
                         }
                     });
 
     }
 
+    /**
+     * Displays a new AST. If it's a new version of the current AST, the
+     * current tree items are patched, which preserves expansion state
+     * and scroll position, and the selection if possible.
+     */
     public void setAstRoot(Node root) {
         // fetch the selected item before setting the root
         ASTTreeItem selectedTreeItem = (ASTTreeItem) getSelectionModel().getSelectedItem();
+        // the node may be changed by the patch
+        Node oldSelection = selectedTreeItem == null ? null : selectedTreeItem.getValue();
+        ASTTreeItem currentRoot = (ASTTreeItem) getRoot();
 
-        setRealRoot(root == null ? null : ASTTreeItem.buildRoot(root, getDesignerRoot()));
+        boolean patched = root != null && currentRoot != null && currentRoot.patchTo(root);
+        if (!patched) {
+            setRealRoot(root == null ? null : ASTTreeItem.buildRoot(root, getDesignerRoot()));
+        }
 
         if (getDebugName().contains("old")) {
             // prevent the old treeview from shooting back selection recovery events
             return;
         }
 
-        if (root != null && selectedTreeItem != null && selectedTreeItem.getValue() != null) {
-            Node newSelection = findOldNodeInNewAst(selectedTreeItem.getValue(), root).orElse(null);
+        if (patched && selectedTreeItem != null && isInTree(selectedTreeItem, currentRoot)) {
+            // the selected item was kept, and now displays the new node
+            Node newSelection = selectedTreeItem.getValue();
+            baseSelectionEvents.push(NodeSelectionEvent.of(newSelection, new DataHolder().withData(SELECTION_RECOVERY, true)));
+            setFocusNode(newSelection, new DataHolder()); // rehandle
+        } else if (root != null && oldSelection != null) {
+            Node newSelection = findOldNodeInNewAst(oldSelection, root).orElse(null);
             if (newSelection != null) {
                 baseSelectionEvents.push(NodeSelectionEvent.of(newSelection, new DataHolder().withData(SELECTION_RECOVERY, true)));
                 setFocusNode(newSelection, new DataHolder()); // rehandle
@@ -124,6 +141,14 @@ public class AstTreeView extends SearchableTreeView<Node> implements NodeSelecti
         }
     }
 
+    private static boolean isInTree(TreeItem<Node> item, TreeItem<Node> root) {
+        TreeItem<Node> current = item;
+        while (current.getParent() != null) {
+            current = current.getParent();
+        }
+        return current == root;
+    }
+
     /**
      * Focus the given node, handling scrolling if needed.
      */
@@ -138,6 +163,10 @@ public class AstTreeView extends SearchableTreeView<Node> implements NodeSelecti
         mapToMyTree(getRoot().getValue(), node, options.getData(CARET_POSITION))
             .map(((ASTTreeItem) getRoot())::findItem)
             .ifPresent(found -> {
+                // the item may be under a collapsed item
+                for (TreeItem<Node> parent = found.getParent(); parent != null; parent = parent.getParent()) {
+                    parent.setExpanded(true);
+                }
                 // don't fire any selection event while itself setting the selected item
                 suppressibleSelectionEvents.suspendWhile(() -> selectionModel.select(found));
 
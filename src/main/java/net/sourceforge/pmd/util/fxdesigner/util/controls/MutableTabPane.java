@@ -26,6 +26,7 @@ import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.reactfx.ReactfxUtil;
 
 import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.beans.NamedArg;
 import javafx.beans.binding.Binding;
 import javafx.beans.binding.Bindings;
@@ -64,6 +65,8 @@ public final class MutableTabPane<T extends AbstractController & TitleOwner> ext
     /** Supplier of controllers for each tab. */
     private final Var<Supplier<T>> controllerSupplier = Var.newSimpleVar(() -> null);
     private final Var<@Nullable Function<? super T, ? extends T>> deepCopyFun = Var.newSimpleVar(null);
+    /** Whether selecting a tab whose content is not loaded loads it. */
+    private boolean lazyLoadingSuspended;
 
 
     public MutableTabPane(@NamedArg("tabFxmlContent") String tabFxmlContent) {
@@ -85,6 +88,17 @@ public final class MutableTabPane<T extends AbstractController & TitleOwner> ext
 
         getChildren().addAll(tabPane);
 
+        // This must be the first listener, so that the tab is loaded
+        // before the selection is seen by anyone else
+        getSelectionModel().selectedItemProperty().addListener(
+            (InvalidationListener) obs -> {
+                Tab tab = getSelectionModel().getSelectedItem();
+                if (!lazyLoadingSuspended && tab != null && tab.getContent() == null && loadContent(tab, controllerFromTab(tab))) {
+                    controllerFromTab(tab).afterParentInit();
+                }
+            }
+        );
+
         initAddButton();
     }
 
@@ -204,6 +218,45 @@ public final class MutableTabPane<T extends AbstractController & TitleOwner> ext
     }
 
 
+    /**
+     * Adds a tab for each of the given controllers, and selects the one at
+     * the given index. Only the content of the selected tab is loaded now,
+     * the content of the others is loaded when they're first selected.
+     *
+     * @param controllers   Controllers of the new tabs
+     * @param selectedIndex Index of the tab to select in the given list
+     */
+    public void addTabsLazily(List<? extends T> controllers, int selectedIndex) {
+        if (controllers.isEmpty()) {
+            return;
+        }
+
+        List<Tab> tabs = new ArrayList<>(controllers.size());
+        for (T controller : controllers) {
+            Tab tab = newTab();
+            tab.setUserData(Objects.requireNonNull(controller));
+            tab.textProperty().bind(uniqueNameBinding(controller.titleProperty(), getTabs().size() + tabs.size()));
+            tabs.add(tab);
+        }
+
+        Tab selected = tabs.get(Math.max(0, Math.min(selectedIndex, tabs.size() - 1)));
+        if (!loadContent(selected, controllerFromTab(selected))) {
+            // like addTabWithController, fail before adding anything
+            throw new IllegalStateException("Cannot load the content of the selected tab from " + tabFxmlResource);
+        }
+
+        lazyLoadingSuspended = true;
+        try {
+            // adding the tabs may select the first one
+            getTabs().addAll(tabs);
+            getSelectionModel().select(selected);
+        } finally {
+            lazyLoadingSuspended = false;
+        }
+        controllerFromTab(selected).afterParentInit();
+    }
+
+
     private void addTabAndFocus(Tab tab) {
         tab.textProperty().bind(uniqueNameBinding(controllerFromTab(tab).titleProperty(), getTabs().size()));
 
@@ -272,47 +325,63 @@ public final class MutableTabPane<T extends AbstractController & TitleOwner> ext
      */
     private Function<T, Tab> tabMaker() {
         return controller -> {
-            URL url = DesignerUtil.getFxml(tabFxmlResource);
+            Tab newTab = newTab();
+            return loadContent(newTab, controller) ? newTab : null;
+        };
+    }
 
-            if (url == null) {
-                System.err.println("Unresolved FXML resource " + tabFxmlResource);
-                return null;
-            }
-            FXMLLoader loader = new FXMLLoader(url);
 
-            if (controller != null) {
-                List<AbstractController> lst = new ArrayList<>(controller.getChildren());
-                lst.add(0, controller);
-                // TODO this adds the children but not descendants
-                loader.setControllerFactory(DesignerUtil.controllerFactoryKnowing(lst.toArray()));
+    /** Returns a new tab without content. Its controller is closed with it if it was loaded. */
+    private Tab newTab() {
+        Tab newTab = new Tab();
+        newTab.setOnClosed(evt -> {
+            T controller = controllerFromTab(newTab);
+            if (newTab.getContent() != null && controller instanceof CloseableService) {
+                try {
+                    ((CloseableService) controller).close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
             }
+        });
+        return newTab;
+    }
 
-            Parent root;
-            try {
-                root = loader.load();
-            } catch (IOException e) {
-                System.err.println("Error loading FXML " + tabFxmlResource);
-                e.printStackTrace();
-                return null;
-            }
-            Tab newTab = new Tab();
-            newTab.setContent(root);
-
-            T realController = loader.getController();
-            newTab.setUserData(realController);
-            newTab.setOnClosed(evt -> {
-                if (realController instanceof CloseableService) {
-                    try {
-                        ((CloseableService) realController).close();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            });
-            return newTab;
-        };
 
+    /**
+     * Loads the content of the tab from the FXML resource, and sets
+     * the controller as the tab's userdata. If the controller is null
+     * the FXML loader creates one.
+     *
+     * @return Whether the content was loaded
+     */
+    private boolean loadContent(Tab tab, @Nullable T controller) {
+        URL url = DesignerUtil.getFxml(tabFxmlResource);
+
+        if (url == null) {
+            System.err.println("Unresolved FXML resource " + tabFxmlResource);
+            return false;
+        }
+        FXMLLoader loader = new FXMLLoader(url);
+
+        if (controller != null) {
+            List<AbstractController> lst = new ArrayList<>(controller.getChildren());
+            lst.add(0, controller);
+            // TODO this adds the children but not descendants
+            loader.setControllerFactory(DesignerUtil.controllerFactoryKnowing(lst.toArray()));
+        }
+
+        Parent root;
+        try {
+            root = loader.load();
+        } catch (IOException e) {
+            System.err.println("Error loading FXML " + tabFxmlResource);
+            e.printStackTrace();
+            return false;
+        }
+        tab.setContent(root);
+        tab.setUserData(loader.getController());
+        return true;
     }
 
-
 }
@@ -8,7 +8,6 @@ import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
-import static net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.findNodeAt;
 import static net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.getPmdLineAndColumnFromOffset;
 import static net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.getRtfxParIndexFromPmdLine;
 
@@ -48,6 +47,7 @@ import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.RichRunnable;
 import net.sourceforge.pmd.util.fxdesigner.util.codearea.AvailableSyntaxHighlighters;
 import net.sourceforge.pmd.util.fxdesigner.util.codearea.HighlightLayerCodeArea;
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.NodeIntervalIndex;
 import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.TextPos2D;
 import net.sourceforge.pmd.util.fxdesigner.util.controls.NodeEditionCodeArea.StyleLayerIds;
 import net.sourceforge.pmd.util.fxdesigner.util.reactfx.ReactfxUtil;
@@ -82,6 +82,11 @@ public class NodeEditionCodeArea extends HighlightLayerCodeArea<StyleLayerIds> i
      */
     private static final Duration NODE_SELECTION_HOVER_DELAY = Duration.ofMillis(100);
 
+    /**
+     * Number of lines above which only the visible part of the text is styled.
+     */
+    private static final int VIEWPORT_LIMITED_THRESHOLD = 2000;
+
     private final Var<Node> currentFocusNode = Var.newSimpleVar(null);
     private final Var<List<Node>> currentRuleResults = Var.newSimpleVar(Collections.emptyList());
     private final Var<List<Node>> currentErrorNodes = Var.newSimpleVar(Collections.emptyList());
@@ -110,6 +115,9 @@ public class NodeEditionCodeArea extends HighlightLayerCodeArea<StyleLayerIds> i
 
         setParagraphGraphicFactory(defaultLineNumberFactory());
 
+        // restyling big files is slow, only style the visible part
+        viewportLimitedProperty().bind(LiveList.sizeOf(getParagraphs()).map(n -> n > VIEWPORT_LIMITED_THRESHOLD));
+
         currentRuleResultsProperty().values().map(this::highlightXPathResults).subscribe(this::updateStyling);
         currentErrorNodesProperty().values().map(this::highlightErrorNodes).subscribe(this::updateStyling);
         currentRelatedNodesProperty().values().map(this::highlightRelatedNodes).subscribe(this::updateStyling);
@@ -134,16 +142,14 @@ public class NodeEditionCodeArea extends HighlightLayerCodeArea<StyleLayerIds> i
                 if (!isNodeSelectionMode.getValue()) {
                     return;
                 }
-                Node currentRoot = getService(DesignerRoot.AST_MANAGER).compilationUnitProperty().getValue();
-                if (currentRoot == null) {
+                NodeIntervalIndex index = getService(DesignerRoot.AST_MANAGER).nodeIndexProperty().getValue();
+                Node node = index == null ? null : index.findNodeAt(ev.getCharacterIndex());
+                if (node == null) {
                     return;
                 }
 
                 TextPos2D target = getPmdLineAndColumnFromOffset(this, ev.getCharacterIndex());
-
-                findNodeAt(currentRoot, target)
-                    .map(n -> NodeSelectionEvent.of(n, new DataHolder().withData(CARET_POSITION, target)))
-                    .ifPresent(selectionEvts::push);
+                selectionEvts.push(NodeSelectionEvent.of(node, new DataHolder().withData(CARET_POSITION, target)));
             }
         );
 
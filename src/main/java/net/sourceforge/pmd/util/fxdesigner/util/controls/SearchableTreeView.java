@@ -4,15 +4,14 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.controls;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -22,10 +21,7 @@ import org.reactfx.value.Val;
 import org.reactfx.value.Var;
 
 import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
-import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.CamelCaseMatcher;
 import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchResult;
-import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchSelector;
-import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.StringMatchUtil;
 import net.sourceforge.pmd.util.fxdesigner.util.reactfx.ReactfxUtil;
 
 import javafx.beans.value.ObservableValue;
@@ -56,6 +52,11 @@ public class SearchableTreeView<T> extends TreeView<T> {
 
     @Nullable
     private TextField openSearchField;
+    /** Built lazily for the current root. */
+    @Nullable
+    private TreeSearchIndex<T> searchIndex;
+    /** Results of the current search, by value. The cells display them. */
+    private final Var<Map<T, MatchResult<T>>> currentResults = Var.newSimpleVar(Collections.emptyMap());
 
     public SearchableTreeView() {
 
@@ -154,35 +155,37 @@ public class SearchableTreeView<T> extends TreeView<T> {
     private Subscription bindSearchQuery(ObservableValue<String> query, Var<Integer> numResults, javafx.scene.Node eventSource) {
 
 
-        Val<List<SearchableTreeItem<T>>> allItems = Val.wrap(rootProperty())
-                                                       .map(it1 -> getRealRoot())
-                                                       .map(it1 -> {
-                                                           List<SearchableTreeItem<T>> tmp = new ArrayList<>();
-                                                           it1.foreach(tmp::add);
-                                                           return tmp;
-                                                       })
-                                                       .orElseConst(Collections.emptyList());
+        Val<TreeSearchIndex<T>> index = Val.wrap(rootProperty()).map(it -> getSearchIndex());
 
         return ReactfxUtil.subscribeDisposable(
             query,
             q -> {
 
-                Val<List<MatchResult<SearchableTreeItem<T>>>> selectedResults =
-                    allItems.map(it -> selectMatches(q, it));
+                Val<List<MatchResult<T>>> selectedResults =
+                    index.map(it -> it.search(q)).orElseConst(Collections.emptyList());
 
                 return ReactfxUtil.subscribeDisposable(
                     selectedResults,
                     newRes -> {
                         numResults.setValue(newRes.size());
                         // the values are never null, at most empty, because of orElseConst above
-                        newRes.forEach(res -> res.getData().currentSearchResult.setValue(res));
+                        Map<T, MatchResult<T>> byValue = new HashMap<>();
+                        newRes.forEach(res -> byValue.putIfAbsent(res.getData(), res));
+                        currentResults.setValue(byValue);
                         Subscription sub = Subscription.EMPTY;
                         if (!newRes.isEmpty()) {
 
                             Var<Integer> curIdx = Var.newSimpleVar(0);
                             curIdx.values()
                                   .subscribe(idx -> {
-                                      SearchableTreeItem<T> item = newRes.get(idx).getData();
+                                      // the item is only created when the result is revealed
+                                      SearchableTreeItem<T> item = getRealRoot().findItemForValue(newRes.get(idx).getData());
+                                      if (item == null) {
+                                          return;
+                                      }
+                                      for (TreeItem<T> parent = item.getParent(); parent != null; parent = parent.getParent()) {
+                                          parent.setExpanded(true);
+                                      }
                                       int row = getRow(item);
                                       getSelectionModel().select(row);
 
@@ -197,7 +200,7 @@ public class SearchableTreeView<T> extends TreeView<T> {
                         refresh();
                         return sub;
                     }).and(() -> {
-                        selectedResults.ifPresent(lst -> lst.forEach(it -> it.getData().currentSearchResult.setValue(null)));
+                        currentResults.setValue(Collections.emptyMap());
                         refresh();
                     });
             }
@@ -219,24 +222,20 @@ public class SearchableTreeView<T> extends TreeView<T> {
 
     }
 
-    private List<MatchResult<SearchableTreeItem<T>>> selectMatches(String query, List<SearchableTreeItem<T>> items) {
-        MatchSelector<SearchableTreeItem<T>> limiter =
-            CamelCaseMatcher.<SearchableTreeItem<T>>allQueryStarts()
-                .andThen(c -> c.filter(it -> it.getScore() > 0))
-                .andThen(Stream::parallel)
-                .andThen(CamelCaseMatcher.onlyWordStarts())
-                .andThen(MatchSelector.selectBestTies());
-
-        return StringMatchUtil.filterResults(items, SearchableTreeItem::getSearchableText, query, limiter)
-                              .sorted(Comparator.comparingInt(res -> res.getData().getTreeIndex()))
-                              .collect(Collectors.toList());
+    private TreeSearchIndex<T> getSearchIndex() {
+        if (searchIndex == null || searchIndex.getRoot() != getRoot()) {
+            if (searchIndex != null) {
+                searchIndex.dispose();
+            }
+            searchIndex = new TreeSearchIndex<>(getRealRoot());
+        }
+        return searchIndex;
     }
 
 
     public abstract static class SearchableTreeItem<T> extends TreeItem<T> {
 
         private final Var<SearchableTreeCell<T>> treeCell = Var.newSimpleVar(null);
-        private final Var<MatchResult<SearchableTreeItem<T>>> currentSearchResult = Var.newSimpleVar(null);
         private final int treeIndex;
 
 
@@ -256,11 +255,6 @@ public class SearchableTreeView<T> extends TreeView<T> {
         }
 
 
-        public Val<MatchResult<SearchableTreeItem<T>>> currentSearchResultProperty() {
-            return currentSearchResult;
-        }
-
-
         /**
          * Text used to match search queries. This must be the
          * same text as is displayed on the cell in normal mode.
@@ -268,6 +262,35 @@ public class SearchableTreeView<T> extends TreeView<T> {
         public abstract String getSearchableText();
 
 
+        /**
+         * Calls the visitor on the value of each item of the subtree of
+         * this item, in preorder, with the text that is searched for this
+         * value. Subclasses that create their children lazily should override
+         * this to visit the values without creating the items.
+         */
+        protected void visitSearchableValues(BiConsumer<? super T, String> visitor) {
+            foreach(item -> visitor.accept(item.getValue(), item.getSearchableText()));
+        }
+
+
+        /**
+         * Returns the item of the subtree of this item that displays the
+         * given value, creating it if needed. Returns null if there is none.
+         */
+        protected @Nullable SearchableTreeItem<T> findItemForValue(T value) {
+            if (getValue() == value) {
+                return this;
+            }
+            for (TreeItem<T> child : getChildren()) {
+                SearchableTreeItem<T> found = ((SearchableTreeItem<T>) child).findItemForValue(value);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+
         public int getTreeIndex() {
             return treeIndex;
         }
@@ -300,8 +323,11 @@ public class SearchableTreeView<T> extends TreeView<T> {
         }
 
 
-        protected Val<MatchResult<SearchableTreeItem<T>>> searchResultProperty() {
-            return realItemProperty().flatMap(SearchableTreeItem::currentSearchResultProperty);
+        @SuppressWarnings("unchecked")
+        protected Val<MatchResult<T>> searchResultProperty() {
+            Val<Map<T, MatchResult<T>>> results =
+                Val.wrap(treeViewProperty()).flatMap(tv -> ((SearchableTreeView<T>) tv).currentResults);
+            return Val.combine(itemProperty(), results, (item, byValue) -> byValue.get(item));
         }
 
 
@@ -313,7 +339,7 @@ public class SearchableTreeView<T> extends TreeView<T> {
                 setGraphic(null);
             } else {
 
-                Optional<MatchResult<SearchableTreeItem<T>>> completionResult = searchResultProperty().getOpt();
+                Optional<MatchResult<T>> completionResult = searchResultProperty().getOpt();
 
                 if (completionResult.isPresent()) {
                     setGraphic(completionResult.get().getTextFlow());
@@ -8,25 +8,16 @@ import static java.lang.Double.max;
 import static java.lang.Math.abs;
 import static java.lang.Math.min;
 
-import java.util.List;
-
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.kordamp.ikonli.javafx.FontIcon;
-import org.reactfx.EventStream;
 import org.reactfx.Subscription;
 import org.reactfx.value.Val;
 import org.reactfx.value.Var;
 
 import net.sourceforge.pmd.util.fxdesigner.TestCollectionController;
-import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
-import net.sourceforge.pmd.util.fxdesigner.app.XPathUpdateSubscriber;
-import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager;
-import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManagerImpl;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.LiveTestCase;
-import net.sourceforge.pmd.util.fxdesigner.model.testing.TestCaseUtil;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.TestResult;
 import net.sourceforge.pmd.util.fxdesigner.model.testing.TestStatus;
-import net.sourceforge.pmd.util.fxdesigner.util.DesignerUtil;
 
 import javafx.animation.Animation;
 import javafx.animation.Interpolator;
@@ -74,23 +65,17 @@ public class TestCaseListCell extends SmartTextFieldListCell<LiveTestCase> {
         statusLabel.getStyleClass().addAll("status-label");
         // todo subscription
 
+        // statuses are updated by the test collection, which may have
+        // run the tests before this cell was created
         Subscription sub = testCase.statusProperty()
-                                   .changes()
-                                   .subscribe(ch -> {
-                                       TestResult st = ch.getNewValue();
+                                   .values()
+                                   .subscribe(st -> {
                                        statusIcon.getStyleClass().setAll(st.getStatus().getStyleClass());
                                        statusIcon.setIconLiteral(st.getStatus().getIcon());
 
                                        this.getStyleClass().removeAll(TestStatus.allStyleClasses());
                                        this.getStyleClass().addAll(st.getStatus().getStyleClass());
 
-                                       if (ch.getOldValue() != null
-                                           && st.getStatus() != ch.getOldValue().getStatus()
-                                           && st.getStatus() == TestStatus.FAIL) {
-                                           getStatusTransition(st.getStatus()).play();
-                                       }
-
-
                                        String message = st.getMessage();
                                        if (message != null) {
                                            statusLabel.setTooltip(new Tooltip(message));
@@ -99,6 +84,19 @@ public class TestCaseListCell extends SmartTextFieldListCell<LiveTestCase> {
                                        }
                                    });
 
+        sub = sub.and(
+            testCase.statusProperty()
+                    .changes()
+                    .subscribe(ch -> {
+                        TestResult st = ch.getNewValue();
+                        if (ch.getOldValue() != null
+                            && st.getStatus() != ch.getOldValue().getStatus()
+                            && st.getStatus() == TestStatus.FAIL) {
+                            getStatusTransition(st.getStatus()).play();
+                        }
+                    })
+        );
+
 
         Label descriptionLabel = new Label();
 
@@ -161,10 +159,6 @@ public class TestCaseListCell extends SmartTextFieldListCell<LiveTestCase> {
         hBox.setAlignment(Pos.CENTER_LEFT);
 
 
-        MyXPathSubscriber subscriber = new MyXPathSubscriber(testCase, collection.getDesignerRoot());
-        sub = sub.and(subscriber.init(getManagerOf(testCase)));
-
-
         if (!testCase.isFrozen() && !load.isSelected()) {
             load.setSelected(true);
             load.getOnAction().handle(new ActionEvent());
@@ -186,16 +180,6 @@ public class TestCaseListCell extends SmartTextFieldListCell<LiveTestCase> {
     }
 
 
-    private ASTManager getManagerOf(LiveTestCase testCase) {
-
-        ASTManagerImpl manager = new ASTManagerImpl(collection.getDesignerRoot());
-        manager.sourceCodeProperty().bind(testCase.sourceProperty());
-        manager.languageVersionProperty().bind(testCase.languageVersionProperty().orElse(collection.getDefaultLanguageVersion()));
-        manager.ruleProperties().bind(testCase.nonDefaultProperties());
-
-        return manager;
-    }
-
     private Animation getStatusTransition(TestStatus newStatus) {
 
         return new Transition() {
@@ -222,41 +206,4 @@ public class TestCaseListCell extends SmartTextFieldListCell<LiveTestCase> {
             }
         };
     }
-
-    private class MyXPathSubscriber extends XPathUpdateSubscriber {
-
-        private final LiveTestCase testCase;
-
-        MyXPathSubscriber(LiveTestCase testCase, DesignerRoot root) {
-            super(root);
-            this.testCase = testCase;
-        }
-
-        @Override
-        public EventStream<?> additionalTicks() {
-            return testCase.modificationTicks();
-        }
-
-        @Override
-        public void handleNoCompilationUnit() {
-            testCase.setStatus(new TestResult(TestStatus.UNKNOWN, "No source code"));
-        }
-
-
-        @Override
-        public void handleNoXPath() {
-            testCase.setStatus(new TestResult(TestStatus.UNKNOWN, "No XPath query"));
-        }
-
-        @Override
-        public void handleXPathSuccess(List<net.sourceforge.pmd.lang.ast.Node> results) {
-            TestResult result = TestCaseUtil.doTest(testCase, results);
-            testCase.setStatus(result);
-        }
-
-        @Override
-        public void handleXPathError(Exception e) {
-            testCase.setStatus(new TestResult(TestStatus.ERROR, DesignerUtil.sanitizeExceptionMessage(e)));
-        }
-    }
 }
@@ -0,0 +1,180 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.controls;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.CamelCaseIndex;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.CamelCaseMatcher;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchResult;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.MatchSelector;
+import net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers.StringMatchUtil;
+import net.sourceforge.pmd.util.fxdesigner.util.controls.SearchableTreeView.SearchableTreeItem;
+
+import javafx.event.EventHandler;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeItem.TreeModificationEvent;
+
+
+/**
+ * Search index of the values of a {@link SearchableTreeView}. The values
+ * are indexed directly, with {@link SearchableTreeItem#visitSearchableValues(java.util.function.BiConsumer)},
+ * so that searching doesn't create the tree items that were not created
+ * yet. Items are only created for the results that are revealed.
+ *
+ * <p>Many values have the same searchable text (e.g. all the nodes without
+ * a main attribute), so the values are grouped by text, and each distinct
+ * text is only scored once per query. If a query extends the previous one,
+ * only the texts that matched the previous query are searched.
+ *
+ * <p>The index is rebuilt lazily when the values of the tree change.
+ * This is not incremental: when an AST is reparsed, all of its nodes are
+ * new values, including those whose item was not created yet, so the next
+ * search visits all the values again and recomputes their text. Only the
+ * index of the distinct texts is kept if those didn't change, which is
+ * usually the case for small edits.
+ *
+ * @author Clément Fournier
+ * @since 6.28.0
+ */
+final class TreeSearchIndex<T> {
+
+    private final SearchableTreeItem<T> root;
+    /** Values grouped by text, in tree order. */
+    private final Map<String, List<Entry<T>>> entriesByText = new HashMap<>();
+    /** Values that are indexed, compared by identity. */
+    private final Set<T> indexedValues = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** Whether the values of the tree changed since the index was built. */
+    private boolean stale = true;
+    private final EventHandler<TreeModificationEvent<T>> modificationHandler = this::handleModification;
+    private final EventHandler<TreeModificationEvent<T>> valueHandler = e -> stale = true;
+
+    /** Index of the keys of {@link #entriesByText}, null if the set of texts changed. */
+    private @Nullable CamelCaseIndex<String> textIndex;
+    private @Nullable String lastQuery;
+    /** Indices in the text index of the texts matching the last query. */
+    private @Nullable BitSet lastMatches;
+
+
+    TreeSearchIndex(SearchableTreeItem<T> root) {
+        this.root = root;
+        root.addEventHandler(TreeItem.childrenModificationEvent(), modificationHandler);
+        root.addEventHandler(TreeItem.valueChangedEvent(), valueHandler);
+    }
+
+
+    SearchableTreeItem<T> getRoot() {
+        return root;
+    }
+
+
+    /** Stops following the modifications of the tree. */
+    void dispose() {
+        root.removeEventHandler(TreeItem.childrenModificationEvent(), modificationHandler);
+        root.removeEventHandler(TreeItem.valueChangedEvent(), valueHandler);
+    }
+
+
+    /**
+     * Returns the values whose text best match the query, in tree order.
+     * All the values whose text contains the chars of the query in order
+     * are considered, and those that tie for the best score are returned.
+     */
+    List<MatchResult<T>> search(String query) {
+        CamelCaseIndex<String> index = getTextIndex();
+
+        boolean refines = lastQuery != null && lastMatches != null && query.startsWith(lastQuery);
+        BitSet matches = index.findSubsequenceMatches(query, refines ? lastMatches : null);
+        lastQuery = query;
+        lastMatches = matches;
+
+        MatchSelector<String> limiter =
+            CamelCaseMatcher.<String>allQueryStarts()
+                .andThen(CamelCaseMatcher.onlyWordStarts())
+                .andThen(MatchSelector.selectBestTies());
+
+        List<MatchResult<Entry<T>>> result = new ArrayList<>();
+        StringMatchUtil.filterResults(index, matches, query, limiter)
+                       .forEach(textMatch -> {
+                           for (Entry<T> entry : entriesByText.get(textMatch.getData())) {
+                               result.add(textMatch.withData(entry));
+                           }
+                       });
+        result.sort(Comparator.comparingInt(res -> res.getData().treeIndex));
+        return result.stream().map(res -> res.withData(res.getData().value)).collect(Collectors.toList());
+    }
+
+
+    private CamelCaseIndex<String> getTextIndex() {
+        if (stale) {
+            rebuild();
+        }
+        if (textIndex == null) {
+            textIndex = new CamelCaseIndex<>(new ArrayList<>(entriesByText.keySet()), Function.identity());
+            // the indices of the previous matches are meaningless now
+            lastQuery = null;
+            lastMatches = null;
+        }
+        return textIndex;
+    }
+
+
+    private void rebuild() {
+        stale = false;
+        Set<String> oldTexts = new HashSet<>(entriesByText.keySet());
+        entriesByText.clear();
+        indexedValues.clear();
+
+        int[] treeIndex = {0};
+        root.visitSearchableValues((value, text) -> {
+            indexedValues.add(value);
+            if (text != null) {
+                entriesByText.computeIfAbsent(text, t -> new ArrayList<>(2)).add(new Entry<>(value, treeIndex[0]));
+            }
+            treeIndex[0]++;
+        });
+
+        if (!entriesByText.keySet().equals(oldTexts)) {
+            textIndex = null;
+        }
+    }
+
+
+    private void handleModification(TreeModificationEvent<T> event) {
+        if (stale) {
+            return;
+        }
+        // items that are created lazily display values that are already indexed
+        stale = event.wasRemoved()
+            || event.getAddedChildren().stream().anyMatch(item -> !indexedValues.contains(item.getValue()));
+    }
+
+
+    private static final class Entry<T> {
+
+        private final T value;
+        /** Index of the value in a preorder traversal of the tree. */
+        private final int treeIndex;
+
+
+        Entry(T value, int treeIndex) {
+            this.value = value;
+            this.treeIndex = treeIndex;
+        }
+    }
+}
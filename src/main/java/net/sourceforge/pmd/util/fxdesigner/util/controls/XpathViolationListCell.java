@@ -10,6 +10,7 @@ import java.util.Collection;
 import org.fxmisc.richtext.model.StyleSpan;
 import org.fxmisc.richtext.model.StyledDocument;
 
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.util.fxdesigner.app.ApplicationComponent;
 import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot;
 import net.sourceforge.pmd.util.fxdesigner.util.TextAwareNodeWrapper;
@@ -21,11 +22,14 @@ import javafx.scene.text.TextFlow;
 
 /**
  * Represents an XPath result in the list view of the XPath panel.
+ * The node is only wrapped into a {@link TextAwareNodeWrapper} when
+ * the cell displays it, so that results that are never scrolled into
+ * view cost nothing.
  *
  * @author Clément Fournier
  * @since 6.0.0
  */
-public class XpathViolationListCell extends ListCell<TextAwareNodeWrapper> implements ApplicationComponent {
+public class XpathViolationListCell extends ListCell<Node> implements ApplicationComponent {
 
     private final DesignerRoot root;
 
@@ -39,17 +43,19 @@ public class XpathViolationListCell extends ListCell<TextAwareNodeWrapper> imple
     }
 
     @Override
-    protected void updateItem(TextAwareNodeWrapper item, boolean empty) {
+    protected void updateItem(Node item, boolean empty) {
         super.updateItem(item, empty);
 
         if (empty || item == null) {
             setText(null);
             setGraphic(null);
         } else {
-            // Use the first line of the rich text of the node
-            setGraphic(richTextForNode(item));
+            // Use the first line of the rich text of the node. The styles are those
+            // of the code area when the cell is rendered, if they're outdated the
+            // results are replaced anyway on the next reparse
+            setGraphic(richTextForNode(getService(DesignerRoot.RICH_TEXT_MAPPER).wrapNode(item)));
 
-            DragAndDropUtil.registerAsNodeDragSource(this, item.getNode(), getDesignerRoot());
+            DragAndDropUtil.registerAsNodeDragSource(this, item, getDesignerRoot());
         }
     }
 
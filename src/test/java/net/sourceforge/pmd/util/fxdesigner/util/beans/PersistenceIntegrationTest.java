@@ -4,15 +4,23 @@
 
 package net.sourceforge.pmd.util.fxdesigner.util.beans;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 
 import org.junit.jupiter.api.Test;
 
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.SettingsFormat;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.testdata.DeferredBean;
 import net.sourceforge.pmd.util.fxdesigner.util.beans.testdata.SomeBean;
 
 public class PersistenceIntegrationTest {
@@ -43,8 +51,115 @@ public class PersistenceIntegrationTest {
     }
 
 
+    @Test
+    public void testSerializedBytesRoundTrip() throws IOException {
+
+        SomeBean bean = new SomeBean();
+        // whitespace other than spaces must survive attribute value normalization
+        bean.setStr("a \"quoted\" <string> & more\nclass Foo {\n\tint x;\r\n}\t");
+        bean.setI(42);
+
+        byte[] serialized = SettingsPersistenceUtil.serializeProperties(bean);
+        assertEquals(new String(serialized, StandardCharsets.UTF_8),
+                     new String(SettingsPersistenceUtil.serializeProperties(bean), StandardCharsets.UTF_8));
+
+        File tmp = Files.createTempFile("pmd-ui-test", "").toFile();
+        Files.write(tmp.toPath(), serialized);
+
+        SomeBean other = new SomeBean();
+        SettingsPersistenceUtil.restoreProperties(other, tmp);
+
+        assertEquals(bean, other);
+    }
+
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+
+        SomeBean bean = new SomeBean();
+        bean.setK(IOException.class);
+        bean.setStr("a \"quoted\" <string> & more");
+        bean.setI(42);
+
+        byte[] serialized = SettingsPersistenceUtil.serializeProperties(bean, SettingsFormat.BINARY);
+
+        File tmp = Files.createTempFile("pmd-ui-test", ".bin").toFile();
+        Files.write(tmp.toPath(), serialized);
+
+        assertTrue(BinarySnapshotFormat.isSnapshot(tmp));
+
+        SomeBean other = new SomeBean();
+        SettingsPersistenceUtil.restoreProperties(other, tmp);
+
+        assertEquals(bean, other);
+    }
+
+
+    @Test
+    public void testCorruptedBinarySnapshot() throws IOException {
 
+        byte[] corrupted = {
+            'P', 'M', 'D', 'S', BinarySnapshotFormat.FORMAT_VERSION, 0,
+            // payload length
+            5,
+            // number of strings, way more than the rest of the file
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07,
+        };
 
+        File tmp = Files.createTempFile("pmd-ui-test", ".bin").toFile();
+        Files.write(tmp.toPath(), corrupted);
+
+        SomeBean bean = new SomeBean();
+        assertThrows(IOException.class, () -> SettingsPersistenceUtil.restoreProperties(bean, tmp));
+        assertEquals(new SomeBean(), bean);
+    }
+
+
+    @Test
+    public void testBinaryRoundTripCompressed() throws IOException {
+
+        SomeBean bean = new SomeBean();
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            str.append("line ").append(i).append('\n');
+        }
+        bean.setStr(str.toString());
+
+        byte[] serialized = SettingsPersistenceUtil.serializeProperties(bean, SettingsFormat.BINARY);
+
+        assertTrue(serialized.length < str.length() / 2);
+
+        File tmp = Files.createTempFile("pmd-ui-test", ".bin").toFile();
+        Files.write(tmp.toPath(), serialized);
+
+        SomeBean other = new SomeBean();
+        SettingsPersistenceUtil.restoreProperties(other, tmp);
+
+        assertEquals(bean, other);
+    }
+
+
+    @Test
+    public void testDeferredRestoration() throws IOException {
+
+        DeferredBean bean = new DeferredBean();
+        bean.setStr("hahahaha");
+
+        byte[] serialized = SettingsPersistenceUtil.serializeProperties(bean);
+
+        File tmp = Files.createTempFile("pmd-ui-test", "").toFile();
+        Files.write(tmp.toPath(), serialized);
+
+        DeferredBean other = new DeferredBean();
+        SettingsPersistenceUtil.restoreProperties(other, tmp);
+
+        assertNotNull(other.getDeferredModel());
+        // persisted as is before it's restored
+        assertArrayEquals(serialized, SettingsPersistenceUtil.serializeProperties(other));
+
+        assertEquals("hahahaha", other.getStr());
+        assertNull(other.getDeferredModel());
+    }
 
 
 }
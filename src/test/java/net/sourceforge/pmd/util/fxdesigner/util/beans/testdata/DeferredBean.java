@@ -0,0 +1,36 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.beans.testdata;
+
+import net.sourceforge.pmd.util.fxdesigner.util.beans.DeferredSettingsOwner;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SettingsPersistenceUtil.PersistentProperty;
+import net.sourceforge.pmd.util.fxdesigner.util.beans.SimpleBeanModelNode;
+
+public class DeferredBean implements DeferredSettingsOwner {
+
+    private String str = "";
+    private SimpleBeanModelNode deferredModel;
+
+    @PersistentProperty
+    public String getStr() {
+        SettingsPersistenceUtil.restoreDeferredSettings(this);
+        return str;
+    }
+
+    public void setStr(String str) {
+        this.str = str;
+    }
+
+    @Override
+    public void setDeferredModel(SimpleBeanModelNode model) {
+        this.deferredModel = model;
+    }
+
+    @Override
+    public SimpleBeanModelNode getDeferredModel() {
+        return deferredModel;
+    }
+}
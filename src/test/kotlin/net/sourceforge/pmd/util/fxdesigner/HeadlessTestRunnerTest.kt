@@ -0,0 +1,76 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits
+import java.io.ByteArrayOutputStream
+import java.io.PrintStream
+import java.nio.file.Files
+import java.nio.file.Path
+
+class HeadlessTestRunnerTest : FunSpec({
+
+    fun tempFile(name: String, content: String): Path =
+            Files.createTempDirectory("designer").resolve(name).also {
+                Files.write(it, content.toByteArray())
+                it.toFile().deleteOnExit()
+            }
+
+    val ruleFile = tempFile("rule.xml", """
+        <rule name="NoBar" language="java" message="No bar" class="net.sourceforge.pmd.lang.rule.XPathRule">
+           <properties>
+              <property name="version" value="2.0"/>
+              <property name="xpath">
+                 <value><![CDATA[ //MethodDeclaration[@Name = 'bar'] ]]></value>
+              </property>
+           </properties>
+        </rule>
+    """.trimIndent())
+
+    fun tests(expectedProblems: Int) = tempFile("NoBar.xml", """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <test-data xmlns="http://pmd.sourceforge.net/rule-tests"
+                   xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                   xsi:schemaLocation="http://pmd.sourceforge.net/rule-tests http://pmd.sourceforge.net/rule-tests_1_0_0.xsd">
+            <test-code>
+                <description>bar</description>
+                <expected-problems>$expectedProblems</expected-problems>
+                <code><![CDATA[
+        class Foo {
+            void bar() {}
+        }
+                ]]></code>
+            </test-code>
+        </test-data>
+    """.trimIndent())
+
+    fun run(testFile: Path, limits: XPathEvaluationLimits = XPathEvaluationLimits.NONE): Pair<Int, String> {
+        val bytes = ByteArrayOutputStream()
+        val code = HeadlessTestRunner(PrintStream(bytes, true), false, limits).run(ruleFile, testFile)
+        return code to bytes.toString()
+    }
+
+    test("Passing tests exit with zero") {
+        val (code, output) = run(tests(1))
+        code shouldBe HeadlessTestRunner.ALL_PASSED
+        output shouldContain "tests/s"
+    }
+
+    test("Failing tests exit with non-zero") {
+        val (code, output) = run(tests(0))
+        code shouldBe HeadlessTestRunner.SOME_FAILED
+        output shouldContain "FAIL"
+    }
+
+    test("Incomplete evaluations are errors") {
+        val (code, output) = run(tests(1), XPathEvaluationLimits.NONE.withMaxResults(1))
+        code shouldBe HeadlessTestRunner.SOME_FAILED
+        output shouldContain "truncated at 1"
+    }
+
+})
@@ -0,0 +1,31 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.app
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits
+import java.time.Duration
+
+class DesignerParamsTest : FunSpec({
+
+    test("XPath limits are read from the parameters") {
+        val params = DesignerParams("--xpath-max-results=100", "--xpath-timeout-ms=500")
+
+        params.xPathLimits shouldBe XPathEvaluationLimits.of(100, Duration.ofMillis(500))
+        // unset limits are taken from the given defaults
+        DesignerParams("--xpath-max-results=100").getXPathLimits(XPathEvaluationLimits.NONE) shouldBe
+                XPathEvaluationLimits.of(100, null)
+    }
+
+    test("Invalid XPath limits are ignored") {
+        DesignerParams("--xpath-max-results=lots", "--xpath-timeout-ms=-5").xPathLimits shouldBe
+                XPathEvaluationLimits.DEFAULT
+
+        DesignerParams("--xpath-max-results=0", "--xpath-timeout-ms=500").xPathLimits shouldBe
+                XPathEvaluationLimits.DEFAULT.withTimeout(Duration.ofMillis(500))
+    }
+
+})
@@ -0,0 +1,65 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.app.services
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.haveSize
+import io.kotest.matchers.should
+import io.kotest.matchers.shouldBe
+import java.nio.file.Files
+import java.nio.file.StandardOpenOption
+
+class AppStateHistoryTest : FunSpec({
+
+    fun tempHistory(maxBytes: Long = 1 shl 20) =
+            AppStateHistory(Files.createTempDirectory("pmd-designer-test").resolve("appstate.xml.history"), maxBytes)
+
+    test("Entries are read back in order") {
+        val history = tempHistory()
+
+        history.append(1, "6.28.0", "<a>\n</a>".toByteArray())
+        history.append(2, "6.28.0", "".toByteArray())
+        history.append(3, "6.29.0", "<b/>".toByteArray())
+
+        val entries = history.readEntries()
+        entries.map { it.timestamp } shouldBe listOf(1L, 2L, 3L)
+        entries.map { it.version } shouldBe listOf("6.28.0", "6.28.0", "6.29.0")
+        entries.map { String(it.snapshot) } shouldBe listOf("<a>\n</a>", "", "<b/>")
+    }
+
+    test("A truncated last entry is ignored") {
+        val history = tempHistory()
+
+        history.append(1, "6.28.0", "<a/>".toByteArray())
+        Files.write(history.file, "2 6.28.0 40\n<b".toByteArray(), StandardOpenOption.APPEND)
+
+        history.readEntries() should haveSize(1)
+    }
+
+    test("Appending after a truncated entry drops it and keeps the new entry readable") {
+        val history = tempHistory()
+
+        history.append(1, "6.28.0", "<a/>".toByteArray())
+        Files.write(history.file, "2 6.28.0 40\n<b".toByteArray(), StandardOpenOption.APPEND)
+        history.append(3, "6.28.0", "<c/>".toByteArray())
+
+        val entries = history.readEntries()
+        entries.map { it.timestamp } shouldBe listOf(1L, 3L)
+        entries.map { String(it.snapshot) } shouldBe listOf("<a/>", "<c/>")
+    }
+
+    test("The history is compacted to the most recent entries") {
+        val history = tempHistory(maxBytes = 200)
+
+        for (i in 1..20L) {
+            history.append(i, "6.28.0", ByteArray(20) { 'x'.toByte() })
+        }
+
+        val entries = history.readEntries()
+        entries.last().timestamp shouldBe 20L
+        (Files.size(history.file) <= 200) shouldBe true
+        entries.map { it.timestamp } shouldBe entries.map { it.timestamp }.sorted()
+    }
+})
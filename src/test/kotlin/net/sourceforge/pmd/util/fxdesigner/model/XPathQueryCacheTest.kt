@@ -0,0 +1,98 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.haveSize
+import io.kotest.matchers.ints.shouldBeLessThan
+import io.kotest.matchers.should
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.lang.ast.Node
+import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery
+import net.sourceforge.pmd.util.fxdesigner.util.javaVersion
+import net.sourceforge.pmd.util.fxdesigner.util.parse
+import java.time.Duration
+
+class XPathQueryCacheTest : FunSpec({
+
+    fun Node.eval(query: String, props: Map<String, String> = emptyMap(), specs: List<PropertyDescriptorSpec> = emptyList()) =
+            XPathEvaluator.evaluateQuery(this, javaVersion, XPathRuleQuery.XPATH_2_0, query, props, specs)
+
+    val cache = XPathEvaluator.getQueryCache()
+
+    beforeTest {
+        cache.clear()
+    }
+
+    test("Prepared queries are reused across evaluations") {
+
+        val acu = "class Foo { void bar() {} void baz() {} }".parse()
+
+        acu.eval("//MethodDeclaration") should haveSize(2)
+        cache.missCount shouldBe 1
+        cache.hitCount shouldBe 0
+
+        acu.eval("//MethodDeclaration") should haveSize(2)
+        cache.missCount shouldBe 1
+        cache.hitCount shouldBe 1
+
+        // results don't leak from one evaluation to the next
+        "class Foo { void bar() {} }".parse().eval("//MethodDeclaration") should haveSize(1)
+        cache.hitCount shouldBe 2
+    }
+
+    test("Different property values are cached separately") {
+
+        val acu = "class Foo { void bar() {} void baz() {} }".parse()
+
+        val spec = PropertyDescriptorSpec().apply {
+            name = "name"
+            value = "bar"
+        }
+
+        acu.eval("//MethodDeclaration[@Name = \$name]", specs = listOf(spec)) should haveSize(1)
+        acu.eval("//MethodDeclaration[@Name = \$name]", mapOf("name" to "baz"), listOf(spec)) should haveSize(1)
+        acu.eval("//MethodDeclaration[@Name = \$name]", mapOf("name" to "qux"), listOf(spec)) should haveSize(0)
+
+        cache.missCount shouldBe 3
+        cache.hitCount shouldBe 0
+    }
+
+    test("Evaluations that hit the result cap are truncated") {
+
+        val acu = "class Foo { void bar() {} void baz() {} void qux() {} }".parse()
+        val limits = XPathEvaluationLimits.DEFAULT.withMaxResults(2)
+
+        val truncated = XPathEvaluator.evaluateQuery(acu, javaVersion, XPathRuleQuery.XPATH_2_0, "//MethodDeclaration", emptyMap(), emptyList(), limits)
+        truncated should haveSize(2)
+        truncated.isComplete shouldBe false
+        truncated.stopReason shouldBe "truncated at 2"
+
+        // the query is still usable
+        val complete = acu.eval("//MethodDeclaration")
+        complete should haveSize(3)
+        complete.isComplete shouldBe true
+        cache.hitCount shouldBe 1
+    }
+
+    test("Evaluations that hit the timeout are stopped") {
+
+        val acu = "class Foo { void bar() {} void baz() {} void qux() {} }".parse()
+        // the deadline is passed when the first candidate node is checked
+        val limits = XPathEvaluationLimits.NONE.withTimeout(Duration.ZERO)
+
+        val timedOut = XPathEvaluator.evaluateQuery(acu, javaVersion, XPathRuleQuery.XPATH_2_0, "//MethodDeclaration", emptyMap(), emptyList(), limits)
+        timedOut.isComplete shouldBe false
+        timedOut.stopReason shouldBe "timed out after 0 ms"
+        timedOut.size shouldBeLessThan 3
+
+        // the query is still usable, and the deadline is not kept
+        val complete = acu.eval("//MethodDeclaration")
+        complete should haveSize(3)
+        complete.isComplete shouldBe true
+        cache.hitCount shouldBe 1
+    }
+
+})
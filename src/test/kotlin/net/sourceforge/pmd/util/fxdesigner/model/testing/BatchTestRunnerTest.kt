@@ -0,0 +1,83 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.model.testing
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.lang.LanguageRegistry
+import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery
+import net.sourceforge.pmd.util.fxdesigner.model.VersionedXPathQuery
+import net.sourceforge.pmd.util.fxdesigner.model.XPathEvaluationLimits
+import java.util.concurrent.ForkJoinPool
+
+class BatchTestRunnerTest : FunSpec({
+
+    val java = LanguageRegistry.getLanguage("Java").defaultVersion
+
+    fun query(expr: String) = VersionedXPathQuery(XPathRuleQuery.XPATH_2_0, expr, emptyList())
+
+    fun testCase(source: String, vararg lines: Int) = LiveTestCase().apply {
+        this.source = source
+        lines.forEach { expectedViolations += LiveViolationRecord(it) }
+    }
+
+    test("Unchanged tests are neither reparsed nor re-evaluated") {
+
+        val runner = BatchTestRunner()
+        val tests = listOf(
+                testCase("class Foo {\n void bar() {}\n}", 2),
+                testCase("class Foo {}")
+        )
+
+        fun run(expr: String) = runner.run(BatchTestRunner.snapshot(tests, query(expr), java, null)) { false }
+
+        run("//MethodDeclaration").run {
+            count(TestStatus.PASS) shouldBe 2
+            countReparsed() shouldBe 2
+            countReevaluated() shouldBe 2
+        }
+
+        run("//MethodDeclaration").run {
+            count(TestStatus.PASS) shouldBe 2
+            countReparsed() shouldBe 0
+            countReevaluated() shouldBe 0
+        }
+
+        // a query edit only re-evaluates
+        run("//ClassOrInterfaceDeclaration").run {
+            count(TestStatus.FAIL) shouldBe 2
+            countReparsed() shouldBe 0
+            countReevaluated() shouldBe 2
+        }
+
+        // a source edit only reparses the edited test
+        tests[1].source = "class Foo {\n void bar() {}\n}"
+        run("//ClassOrInterfaceDeclaration").run {
+            count(TestStatus.FAIL) shouldBe 2
+            countReparsed() shouldBe 1
+            countReevaluated() shouldBe 1
+        }
+    }
+
+    test("Evaluations stopped by the limits are not cached") {
+
+        val runner = BatchTestRunner(ForkJoinPool.commonPool(), XPathEvaluationLimits.of(1, null))
+        val tests = listOf(testCase("class Foo {\n void bar() {}\n void baz() {}\n}", 2, 3))
+
+        fun run() = runner.run(BatchTestRunner.snapshot(tests, query("//MethodDeclaration"), java, null)) { false }
+
+        run().run {
+            count(TestStatus.ERROR) shouldBe 1
+            countReevaluated() shouldBe 1
+        }
+
+        run().run {
+            count(TestStatus.ERROR) shouldBe 1
+            countReparsed() shouldBe 0
+            countReevaluated() shouldBe 1
+        }
+    }
+
+})
@@ -0,0 +1,23 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util
+
+import net.sourceforge.pmd.lang.LanguageRegistry
+import net.sourceforge.pmd.lang.LanguageVersion
+import net.sourceforge.pmd.lang.ast.Node
+import java.io.StringReader
+
+/** Default version of Java, which most tests parse. */
+val javaVersion: LanguageVersion = LanguageRegistry.getLanguage("Java").defaultVersion
+
+/** Parses this source with the parser of the given language version. No analysis pass is run. */
+fun String.parse(version: LanguageVersion = javaVersion): Node {
+    val handler = version.languageVersionHandler
+    return handler.getParser(handler.defaultParserOptions).parse(":dummy:", StringReader(this))
+}
+
+/** This node and its descendants, in pre-order. */
+fun Node.descendantsOrSelf(): List<Node> =
+        listOf(this) + (0 until numChildren).flatMap { getChild(it).descendantsOrSelf() }
@@ -0,0 +1,46 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.autocomplete
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContain
+import io.kotest.matchers.collections.shouldNotContain
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.util.fxdesigner.util.AuxLanguageRegistry
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.stream.Stream
+
+class AstNodeNameIndexTest : FunSpec({
+
+    val java = AuxLanguageRegistry.findLanguageByTerseName("java")
+
+    test("Classpath exploration finds the concrete AST classes") {
+        val names = AstNodeNameIndex.scanClasspath("java")
+
+        names shouldContain "ClassOrInterfaceDeclaration"
+        // interface
+        names shouldNotContain "AnyTypeDeclaration"
+        names shouldBe names.sorted()
+    }
+
+    test("The index contains the same names as the classpath") {
+        val out = ByteArrayOutputStream()
+        AstNodeNameIndex.writeIndex(out, Stream.of(java), "6.0.0")
+
+        val index = AstNodeNameIndex.readIndex(ByteArrayInputStream(out.toByteArray()), "6.0.0")
+
+        index.getProperty("java").split(",") shouldBe AstNodeNameIndex.scanClasspath("java")
+    }
+
+    test("An index built for another PMD version is ignored") {
+        val out = ByteArrayOutputStream()
+        AstNodeNameIndex.writeIndex(out, Stream.of(java), "6.0.0")
+
+        val index = AstNodeNameIndex.readIndex(ByteArrayInputStream(out.toByteArray()), "6.1.0")
+
+        index.isEmpty shouldBe true
+    }
+})
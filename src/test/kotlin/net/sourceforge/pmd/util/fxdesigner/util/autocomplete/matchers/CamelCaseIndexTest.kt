@@ -0,0 +1,57 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.autocomplete.matchers
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import java.util.function.Function
+import kotlin.streams.toList
+
+class CamelCaseIndexTest : FunSpec({
+
+    val names = listOf(
+            "ClassOrInterfaceType",
+            "ClassOrInterfaceDeclaration",
+            "ClassOrInterfaceBodyDeclaration",
+            "MethodDeclaration",
+            "PrimaryPrefix",
+            "Name"
+    )
+
+    val index = CamelCaseIndex(names, Function.identity())
+
+    fun selector(): MatchSelector<String> =
+            CamelCaseMatcher.allQueryStarts<String>()
+                    .andThen(CamelCaseMatcher.onlyWordStarts())
+
+    fun MatchResult<String>.pair() = stringMatch to score
+
+    test("Index results have the same scores as unindexed results") {
+        for (query in listOf("coit", "cOID", "meth", "pp", "n", "decl")) {
+            val indexed = StringMatchUtil.filterResults(index, query, selector()).toList().map { it.pair() }
+            val unindexed = StringMatchUtil.filterResults(names, Function.identity(), query, selector())
+                    .toList()
+                    .filter { it.score != StringMatchUtil.WORST_SCORE }
+                    .map { it.pair() }
+
+            indexed shouldBe unindexed
+        }
+    }
+
+    test("Candidates without the first char of the query are skipped") {
+        StringMatchUtil.filterResults(index, "z", selector()).toList().shouldBeEmpty()
+        StringMatchUtil.filterResults(index, "m", selector()).toList().map { it.stringMatch } shouldBe
+                listOf("MethodDeclaration", "PrimaryPrefix", "Name")
+    }
+
+    test("The tie breaker prefers word starts") {
+        val best = StringMatchUtil.filterResults(index, "coit", selector())
+                .toList()
+                .maxByOrNull { it.score }!!
+
+        best.stringMatch shouldBe "ClassOrInterfaceType"
+    }
+})
@@ -93,4 +93,30 @@ class CoordinateMappingTest : FunSpec({
         }
     }
 
+    test("Line offsets agree with the code area") {
+
+        for (text in listOf("fof foo", "123456\n12345", "\tfof\n\n\tfoo\n", "\t\t\t")) {
+            val codeArea = CodeArea(text)
+            val table = LineOffsets.of(text)
+
+            for (offset in text.indices) {
+                val pos = codeArea.toPmd(offset)
+                table.positionOf(offset) shouldBe pos
+                table.offsetOf(pos.line, pos.column) shouldBe codeArea.fromPmd(pos.line, pos.column)
+            }
+        }
+    }
+
+    test("Line lengths don't include the terminator") {
+
+        val table = LineOffsets.of("abc\r\nde\rf\n\n")
+
+        table.numLines shouldBe 5
+        table.getLineLength(1) shouldBe 3
+        table.getLineLength(2) shouldBe 2
+        table.getLineLength(3) shouldBe 1
+        table.getLineLength(4) shouldBe 0
+        table.getLineLength(5) shouldBe 0
+    }
+
 })
@@ -0,0 +1,69 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import javafx.scene.control.IndexRange
+import org.fxmisc.richtext.model.StyleSpansBuilder
+
+class HighlightLayerCodeAreaTest : FunSpec({
+
+    test("Limiting the painting to the viewport without a syntax highlighter terminates") {
+        val area = HighlightLayerCodeArea(TestLayer::class.java)
+        area.replaceText("class Foo {}\n".repeat(50))
+
+        // this used to recurse through the clearing of the syntax highlighting
+        area.viewportLimitedProperty().value = true
+
+        area.viewportLimitedProperty().value shouldBe true
+    }
+
+    test("Outdated paintings are dropped") {
+        val area = HighlightLayerCodeArea(TestLayer::class.java)
+        area.replaceText("class Foo {}")
+
+        val window = IndexRange(0, area.length)
+        val focus = StyleSpansBuilder<Collection<String>>().add(setOf("focus"), area.length).create()
+
+        val superseded = area.newPaintingRequest(window)
+        val current = area.newPaintingRequest(window)
+
+        // a newer painting was requested
+        area.applyPainting(superseded, focus) shouldBe false
+        area.getStyleOfChar(0).shouldBeEmpty()
+
+        area.applyPainting(current, focus) shouldBe true
+        area.getStyleOfChar(0) shouldBe setOf("focus")
+
+        // the text changed since the request
+        val beforeEdit = area.newPaintingRequest(window)
+        area.replaceText("class Bar {}")
+        area.applyPainting(beforeEdit, focus) shouldBe false
+        area.getStyleOfChar(0).shouldBeEmpty()
+    }
+
+    test("Outdated syntax highlighting is dropped from ranged paintings") {
+        val textLength = 12
+        val layers = listOf(UniformStyleCollection.empty())
+
+        fun syntax(length: Int) = StyleSpansBuilder<Collection<String>>().add(setOf("keyword"), length).create()
+
+        fun styles(length: Int) =
+                HighlightLayerCodeArea.recomputePainting(layers, syntax(length), textLength, 2, 8)
+                        .flatMap { span -> List(span.length) { span.style.toSet() } }
+
+        styles(textLength) shouldBe List(6) { setOf("keyword") }
+        // computed for a longer text
+        styles(textLength + 4) shouldBe List(6) { emptySet<String>() }
+    }
+})
+
+private enum class TestLayer : HighlightLayerCodeArea.LayerId {
+    FOCUS;
+
+    override fun getStyleClass(): String = "focus"
+}
@@ -0,0 +1,84 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.ScalaSyntaxHighlighter
+
+class IncrementalHighlightingTest : FunSpec({
+
+    val highlighter = ScalaSyntaxHighlighter()
+
+    val source = """
+        object Foo {
+          // a comment
+          def bar(x: Int): String = s"value ${'$'}x and ${'$'}{x + 1}"
+          /* block
+             comment */
+          val y = "str" + 'c' + 0x1F
+        }
+    """.trimIndent()
+
+    fun HighlightedText.spanList() = spans.toList()
+
+    fun checkEdit(before: String, after: String) {
+        val incremental = highlighter.updateHighlighting(highlighter.highlight(before), after)
+        incremental.text shouldBe after
+        incremental.spanList() shouldBe highlighter.highlight(after).spanList()
+    }
+
+    test("Unchanged text reuses the previous result") {
+        val h = highlighter.highlight(source)
+        highlighter.updateHighlighting(h, source) shouldBe h
+    }
+
+    test("Incremental highlighting is the same as highlighting from scratch") {
+        checkEdit(source, source.replace("bar", "barbaz"))
+        checkEdit(source, source.replace("// a comment", "// a comment */"))
+        // opening a block comment changes everything after it
+        checkEdit(source, source.replace("// a comment", "/* a comment"))
+        checkEdit(source, source.replace("/* block", "block"))
+        checkEdit(source, source.replace("\"str\"", "\"str"))
+        checkEdit(source, source.replace("{x + 1}", "{x + \"1\"}"))
+        checkEdit(source, source + "\n")
+        checkEdit(source, "val z = 2\n" + source)
+        checkEdit(source, "")
+        checkEdit("", source)
+    }
+
+    test("Closing a block comment after the edit that opened it") {
+        val noBlock = source.replace("/* block\n     comment */\n  ", "")
+        val unclosed = noBlock.replace("// a comment", "/* a comment")
+        val closeAt = unclosed.indexOf("0x1F") + 4
+
+        checkEdit(noBlock, unclosed)
+        checkEdit(unclosed, unclosed.substring(0, closeAt) + " */" + unclosed.substring(closeAt))
+        checkEdit(unclosed.substring(0, closeAt) + " */" + unclosed.substring(closeAt), unclosed)
+
+        // typed char by char, each result is reused for the next edit
+        var text = noBlock
+        var h = highlighter.highlight(text)
+        val edits = listOf<(String) -> Pair<Int, String>>(
+            { it.indexOf("// a comment") to "/*" },
+            { it.indexOf("0x1F") + 4 to " */" }
+        )
+        for (edit in edits) {
+            val (offset, insert) = edit(text)
+            for (i in insert.indices) {
+                text = text.substring(0, offset + i) + insert[i] + text.substring(offset + i)
+                h = highlighter.updateHighlighting(h, text)
+                h.spanList() shouldBe highlighter.highlight(text).spanList()
+            }
+        }
+    }
+
+    test("Every single-character deletion") {
+        for (i in source.indices) {
+            checkEdit(source, source.removeRange(i, i + 1))
+        }
+    }
+
+})
@@ -0,0 +1,136 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.syntaxhighlighting.*
+
+/**
+ * Checks that incremental highlighting gives the same result as highlighting
+ * from scratch, for every lexer. The [Fixture.delimiters] are the constructs
+ * that the lexer matches with a lookahead of arbitrary length.
+ */
+class LexerIncrementalHighlightingTest : FunSpec({
+
+    data class Fixture(val highlighter: SyntaxHighlighter, val source: String, val delimiters: List<Pair<String, String>>)
+
+    val fixtures = listOf(
+            Fixture(
+                    JavaSyntaxHighlighter(),
+                    """
+                        package foo;
+
+                        /** Doc of Foo. */
+                        public class Foo {
+                            // a comment
+                            String s = "str" + 'c' + 0x1F;
+                            String block = ""${'"'}
+                                text block
+                                ""${'"'};
+                            @Override
+                            public String toString() { return s; }
+                        }
+                    """.trimIndent(),
+                    listOf("/*" to "*/", "\"\"\"" to "\"\"\"")
+            ),
+            Fixture(
+                    ApexSyntaxHighlighter(),
+                    """
+                        public class Foo {
+                            // a comment
+                            List<Account> accs = [SELECT Id FROM Account WHERE Name = :name];
+                            /* block
+                               comment */
+                            public String bar() { return 'str' + 2; }
+                        }
+                    """.trimIndent(),
+                    listOf("/*" to "*/")
+            ),
+            Fixture(
+                    ModelicaSyntaxHighlighter(),
+                    """
+                        model Foo "A model"
+                          // a comment
+                          parameter Real k = 2.5e3 "gain";
+                          /* block
+                             comment */
+                          Real x(start = 0);
+                        equation
+                          der(x) = -k * x;
+                        end Foo;
+                    """.trimIndent(),
+                    listOf("/*" to "*/")
+            ),
+            Fixture(
+                    XPathSyntaxHighlighter(),
+                    """
+                        //MethodDeclaration[@Name = 'foo']
+                          (: a
+                             comment :)
+                          | //ClassOrInterfaceType[pmd-java:typeIs("java.util.List")]
+                          [count(.//ForStatement) > 2]
+                    """.trimIndent(),
+                    listOf("(:" to ":)")
+            ),
+            Fixture(
+                    XmlSyntaxHighlighter(),
+                    """
+                        <?xml version="1.0" encoding="UTF-8"?>
+                        <root xmlns="http://example.com">
+                            <!-- a
+                                 comment -->
+                            <element id="e" kind='leaf'>text &amp; more</element>
+                            <![CDATA[ some <cdata> ]]>
+                            <empty/>
+                        </root>
+                    """.trimIndent(),
+                    listOf("<!--" to "-->", "<?xml" to "?>")
+            )
+    )
+
+    fun SyntaxHighlighter.checkEdit(before: HighlightedText, after: String): HighlightedText {
+        val incremental = updateHighlighting(before, after)
+        incremental.text shouldBe after
+        incremental.spans.toList() shouldBe highlight(after).spans.toList()
+        return incremental
+    }
+
+    for ((highlighter, source, delimiters) in fixtures) {
+
+        val lang = highlighter.languageTerseName
+
+        test("$lang: every single-character deletion") {
+            val h = highlighter.highlight(source)
+            for (i in source.indices) {
+                highlighter.checkEdit(h, source.removeRange(i, i + 1))
+            }
+        }
+
+        for ((open, close) in delimiters) {
+            test("$lang: $open typed, then closed with $close further down") {
+                // open on the second line and close on the before-last one
+                val openAt = source.indexOf('\n') + 1
+                val closeAt = source.lastIndexOf('\n')
+
+                var text = source
+                var h = highlighter.highlight(text)
+                for ((offset, insert) in listOf(openAt to "$open ", closeAt + open.length + 1 to " $close")) {
+                    for (i in insert.indices) {
+                        text = text.substring(0, offset + i) + insert[i] + text.substring(offset + i)
+                        h = highlighter.checkEdit(h, text)
+                    }
+                }
+
+                // and the other way around
+                for (i in close.length + 1 downTo 1) {
+                    text = text.removeRange(closeAt + open.length + i, closeAt + open.length + i + 1)
+                    h = highlighter.checkEdit(h, text)
+                }
+            }
+        }
+    }
+
+})
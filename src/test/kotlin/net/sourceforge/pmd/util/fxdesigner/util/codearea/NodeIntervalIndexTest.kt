@@ -0,0 +1,78 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.PmdCoordinatesSystem.*
+import net.sourceforge.pmd.util.fxdesigner.util.descendantsOrSelf
+import net.sourceforge.pmd.util.fxdesigner.util.parse
+
+class NodeIntervalIndexTest : FunSpec({
+
+    /** PMD positions of each offset of the text. */
+    fun String.positions(): List<TextPos2D> {
+        var line = 1
+        var col = 1
+        return map { c ->
+            TextPos2D(line, col).also {
+                if (c == '\n') {
+                    line++
+                    col = 1
+                } else {
+                    col++
+                }
+            }
+        }
+    }
+
+    val source = """
+        class Foo {
+            int x = 2;
+
+            void bar(int y) {
+                if (y > x) { bar(y - 1); }
+            }
+        }
+    """.trimIndent()
+
+    test("Offsets are computed from PMD positions") {
+        val index = NodeIntervalIndex.build("class Foo {\r\n\tint x;\n}".parse(), "class Foo {\r\n\tint x;\n}")
+
+        index.offsetOf(1, 1) shouldBe 0
+        index.offsetOf(2, 1) shouldBe 13
+        index.offsetOf(2, 2) shouldBe 14
+        index.offsetOf(3, 1) shouldBe 21
+        // clipped
+        index.offsetOf(0, 0) shouldBe 0
+        index.offsetOf(40, 1) shouldBe 21
+        index.offsetOf(3, 40) shouldBe 21
+    }
+
+    test("The node at each offset is the same as with the recursive search") {
+        val root = source.parse()
+        val positions = source.positions()
+        // before the index is built, this uses the recursive search
+        val expected = positions.map { findNodeAt(root, it).orElse(null) }
+
+        val index = NodeIntervalIndex.build(root, source)
+        NodeIntervalIndex.forRoot(root) shouldBe index
+
+        positions.indices.map { index.findNodeAt(it) } shouldBe expected
+        positions.map { findNodeAt(root, it).orElse(null) } shouldBe expected
+    }
+
+    test("The node covering the range of a node is found") {
+        val root = source.parse()
+        val nodes = root.descendantsOrSelf()
+        val expectedExact = nodes.map { findNodeCovering(root, rangeOf(it), true).orElse(null) }
+        val expectedInexact = nodes.map { findNodeCovering(root, rangeOf(it), false).orElse(null) }
+
+        NodeIntervalIndex.build(root, source)
+
+        nodes.map { findNodeCovering(root, rangeOf(it), true).orElse(null) } shouldBe expectedExact
+        nodes.map { findNodeCovering(root, rangeOf(it), false).orElse(null) } shouldBe expectedInexact
+    }
+})
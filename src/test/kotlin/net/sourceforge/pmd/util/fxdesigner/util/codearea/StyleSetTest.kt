@@ -0,0 +1,60 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.fxmisc.richtext.model.StyleSpans
+import org.fxmisc.richtext.model.StyleSpansBuilder
+
+class StyleSetTest : FunSpec({
+
+    fun spans(vararg spans: Pair<Set<String>, Int>): StyleSpans<Collection<String>> =
+            StyleSpansBuilder<Collection<String>>().apply {
+                for ((style, length) in spans) add(style, length)
+            }.create()
+
+    fun StyleSpans<Collection<String>>.toList() = map { it.style.toSet() to it.length }
+
+    test("Style sets are interned") {
+        val set = StyleSet.of("keyword", "java")
+
+        StyleSet.of(listOf("java", "keyword", "java")) shouldBeSameInstanceAs set
+        StyleSet.of(setOf("java")).union(StyleSet.of("keyword")) shouldBeSameInstanceAs set
+        StyleSet.of(emptyList()) shouldBeSameInstanceAs StyleSet.EMPTY
+
+        set shouldBe hashSetOf("keyword", "java")
+        set.hashCode() shouldBe hashSetOf("keyword", "java").hashCode()
+    }
+
+    test("Union and difference") {
+        val a = StyleSet.of("a", "b")
+        val b = StyleSet.of("b", "c")
+
+        a.union(b) shouldBe setOf("a", "b", "c")
+        a.union(b) shouldBeSameInstanceAs b.union(a)
+        a.minus(b) shouldBe setOf("a")
+        a.minus(StyleSet.EMPTY) shouldBeSameInstanceAs a
+        a.contains("c") shouldBe false
+        a.contains(null) shouldBe false
+    }
+
+    test("Overlaying all layers in one pass is the same as overlaying them pairwise") {
+        val layers = listOf(
+                spans(setOf("java") to 20),
+                spans(emptySet<String>() to 2, setOf("xpath-result") to 5, emptySet<String>() to 3, setOf("xpath-result") to 4),
+                spans(emptySet<String>() to 4, setOf("focus") to 0, setOf("focus") to 8),
+                spans(setOf("error") to 1)
+        )
+
+        val pairwise = layers.drop(1).fold(layers[0]) { acc, spans ->
+            acc.overlay(spans) { s1, s2 -> StyleSet.union(s1, s2) }
+        }
+
+        HighlightLayerCodeArea.overlayAll(layers).toList() shouldBe pairwise.toList()
+        HighlightLayerCodeArea.overlayAll(layers).length() shouldBe 20
+    }
+})
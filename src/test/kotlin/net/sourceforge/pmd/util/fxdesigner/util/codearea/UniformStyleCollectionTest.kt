@@ -0,0 +1,111 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.codearea
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import net.sourceforge.pmd.util.fxdesigner.util.descendantsOrSelf
+import net.sourceforge.pmd.util.fxdesigner.util.parse
+import org.fxmisc.richtext.model.StyleSpans
+import org.fxmisc.richtext.model.StyleSpansBuilder
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class UniformStyleCollectionTest : FunSpec({
+
+    fun spans(vararg spans: Pair<Set<String>, Int>): StyleSpans<Collection<String>> =
+            StyleSpansBuilder<Collection<String>>().apply {
+                for ((style, length) in spans) add(style, length)
+            }.create()
+
+    /** Style of each offset covered by the spans. */
+    fun StyleSpans<Collection<String>>.styleAt(): List<Set<String>> =
+            flatMap { span -> List(span.length) { span.style.toSet() } }
+
+    val source = """
+        class Foo {
+            int x = 2;
+
+            void bar(int y) {
+                if (y > x) { bar(y - 1); }
+            }
+        }
+    """.trimIndent()
+
+    fun collectionOf(text: String): UniformStyleCollection {
+        val area = SyntaxHighlightingCodeArea().apply { replaceText(text) }
+        val nodes = text.parse().descendantsOrSelf().map { NodeStyleSpan.fromNode(it, area) }
+        return UniformStyleCollection(StyleSet.of("xpath-result"), nodes)
+    }
+
+    test("Restricting spans to a range pads them with unstyled text") {
+        val a = setOf("a")
+        val b = setOf("b")
+        val spans = spans(a to 3, b to 4)
+
+        UniformStyleCollection.restrict(spans, 0, 7) shouldBeSameInstanceAs spans
+        UniformStyleCollection.restrict(spans, 2, 5).styleAt() shouldBe listOf(a, b, b)
+        UniformStyleCollection.restrict(spans, 5, 9).styleAt() shouldBe listOf(b, b, emptySet(), emptySet())
+        UniformStyleCollection.restrict(spans, 8, 10).styleAt() shouldBe listOf(emptySet(), emptySet())
+    }
+
+    test("The spans of a range are the spans of the whole text restricted to the range") {
+        val collection = collectionOf(source)
+        val whole = collection.toSpans()
+
+        for (from in 0 until source.length step 3) {
+            for (to in from + 1..source.length + 2 step 7) {
+                collection.toSpans(from, to).styleAt() shouldBe UniformStyleCollection.restrict(whole, from, to).styleAt()
+            }
+        }
+    }
+
+    test("A range inside a single node is styled with the enclosing nodes") {
+        val collection = collectionOf(source)
+        val from = source.indexOf("bar(y - 1)")
+
+        collection.toSpans(from, from + 3).styleAt() shouldBe
+                UniformStyleCollection.restrict(collection.toSpans(), from, from + 3).styleAt()
+    }
+
+    test("An empty collection has unstyled spans on any range") {
+        UniformStyleCollection.empty().toSpans(4, 10).styleAt() shouldBe List(6) { emptySet<String>() }
+    }
+
+    test("The spans are the same when computed concurrently") {
+        val area = SyntaxHighlightingCodeArea().apply { replaceText(source) }
+        val nodes = source.parse().descendantsOrSelf().map { NodeStyleSpan.fromNode(it, area) }
+        val expected = UniformStyleCollection(StyleSet.of("xpath-result"), nodes)
+        val whole = expected.toSpans().styleAt()
+        val range = expected.toSpans(10, 60).styleAt()
+
+        val pool = Executors.newFixedThreadPool(4)
+        try {
+            repeat(20) {
+                // a fresh collection, so that the threads race to fill its caches
+                val collection = UniformStyleCollection(StyleSet.of("xpath-result"), nodes)
+                val start = CountDownLatch(1)
+                val results = List(8) { i ->
+                    pool.submit(Callable {
+                        start.await()
+                        if (i % 2 == 0) collection.toSpans().styleAt() to whole
+                        else collection.toSpans(10, 60).styleAt() to range
+                    })
+                }
+                start.countDown()
+
+                for (result in results) {
+                    val (actual, expectedStyles) = result.get(10, TimeUnit.SECONDS)
+                    actual shouldBe expectedStyles
+                }
+            }
+        } finally {
+            pool.shutdownNow()
+        }
+    }
+})
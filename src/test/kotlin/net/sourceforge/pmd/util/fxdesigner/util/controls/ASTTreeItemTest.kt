@@ -0,0 +1,104 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.controls
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import javafx.scene.control.TreeItem
+import net.sourceforge.pmd.lang.ast.Node
+import net.sourceforge.pmd.util.fxdesigner.app.DesignerRoot
+import net.sourceforge.pmd.util.fxdesigner.app.services.ASTManager
+import net.sourceforge.pmd.util.fxdesigner.util.codearea.NodeIntervalIndex
+import net.sourceforge.pmd.util.fxdesigner.util.descendantsOrSelf
+import net.sourceforge.pmd.util.fxdesigner.util.javaVersion
+import net.sourceforge.pmd.util.fxdesigner.util.parse
+import org.reactfx.value.Var
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Proxy
+
+class ASTTreeItemTest : FunSpec({
+
+    /** Only provides the AST manager, whose language version is used for the bindings of the tree. */
+    val designerRoot: DesignerRoot = run {
+        val astManager = proxy<ASTManager> { name, _ ->
+            if (name == "languageVersionProperty") Var.newSimpleVar(javaVersion) else null
+        }
+        proxy<DesignerRoot> { name, args ->
+            if (name == "getService" && args[0] == DesignerRoot.AST_MANAGER) astManager else null
+        }
+    }
+
+    fun String.parseIndexed(): Node = parse().also { NodeIntervalIndex.build(it, this) }
+
+    fun Node.classBody(): Node = descendantsOrSelf().first { it.xPathNodeName == "ClassOrInterfaceBody" }
+
+    /** Builds the tree of the source, and the items of the members of the class. */
+    fun treeOf(source: String): Pair<ASTTreeItem, List<TreeItem<Node>>> {
+        val root = source.parseIndexed()
+        val item = ASTTreeItem.buildRoot(root, designerRoot)
+        return item to item.findItem(root.classBody()).children.toList()
+    }
+
+    fun ASTTreeItem.patchMembers(source: String): List<TreeItem<Node>> {
+        val newRoot = source.parseIndexed()
+        patchTo(newRoot) shouldBe true
+        value shouldBeSameInstanceAs newRoot
+
+        val body = newRoot.classBody()
+        val members = findItem(body).children
+        members.map { it.value } shouldContainExactly (0 until body.numChildren).map { body.getChild(it) }
+        return members
+    }
+
+    test("Inserting a member keeps the items of the following members") {
+        val (root, members) = treeOf("class Foo {\n  int a;\n  int b;\n}")
+        members[0].isExpanded = false
+        members[1].isExpanded = true
+
+        val patched = root.patchMembers("class Foo {\n  int z;\n  int a;\n  int b;\n}")
+
+        patched[1] shouldBeSameInstanceAs members[0]
+        patched[2] shouldBeSameInstanceAs members[1]
+        patched[1].isExpanded shouldBe false
+        patched[2].isExpanded shouldBe true
+    }
+
+    test("Removing a member keeps the items of the other members") {
+        val (root, members) = treeOf("class Foo {\n  int a;\n  int b;\n  int c;\n}")
+
+        val patched = root.patchMembers("class Foo {\n  int a;\n  int c;\n}")
+
+        patched shouldContainExactly listOf(members[0], members[2])
+    }
+
+    test("Moved members keep their item") {
+        val (root, members) = treeOf("class Foo {\n  int a;\n  int b;\n  int c;\n}")
+
+        val patched = root.patchMembers("class Foo {\n  int c;\n  int b;\n  int a;\n}")
+
+        patched shouldContainExactly listOf(members[2], members[1], members[0])
+    }
+
+    test("An edited member keeps its item") {
+        val (root, members) = treeOf("class Foo {\n  int a = 1;\n  int b;\n}")
+
+        val patched = root.patchMembers("class Foo {\n  int a = 12;\n  int b;\n}")
+
+        patched shouldContainExactly members
+    }
+
+    test("A root of another kind is not patched") {
+        val (root, _) = treeOf("class Foo {}")
+
+        root.patchTo("class Foo {}".parseIndexed().classBody()) shouldBe false
+    }
+})
+
+private inline fun <reified T> proxy(crossinline answer: (String, Array<out Any?>) -> Any?): T =
+        Proxy.newProxyInstance(T::class.java.classLoader, arrayOf(T::class.java), InvocationHandler { _, method, args ->
+            answer(method.name, args ?: emptyArray())
+        }) as T
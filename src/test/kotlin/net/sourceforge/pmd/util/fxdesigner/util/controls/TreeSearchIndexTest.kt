@@ -0,0 +1,133 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.util.fxdesigner.util.controls
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import javafx.collections.ObservableList
+import javafx.scene.control.TreeItem
+import net.sourceforge.pmd.util.fxdesigner.util.controls.SearchableTreeView.SearchableTreeItem
+import java.util.function.BiConsumer
+
+class TreeSearchIndexTest : FunSpec({
+
+    class Item(text: String, idx: Int) : SearchableTreeItem<String>(text, idx) {
+        override fun getSearchableText(): String = value
+    }
+
+    var count = 0
+    fun item(text: String, vararg children: Item) =
+            Item(text, count++).also { it.children.addAll(children) }
+
+    fun TreeSearchIndex<String>.find(query: String) =
+            search(query).map { it.data }
+
+    test("Items with the same text are all found, in tree order") {
+        count = 0
+        val root = item("CompilationUnit",
+                item("MethodDeclaration", item("Name"), item("Block")),
+                item("MethodDeclaration", item("Name"), item("Block"))
+        )
+
+        val index = TreeSearchIndex(root)
+
+        index.find("methdecl") shouldBe listOf("MethodDeclaration", "MethodDeclaration")
+        index.find("name") shouldBe listOf("Name", "Name")
+        index.find("n") shouldBe listOf("Name", "Name")
+        index.find("xyz").shouldBeEmpty()
+    }
+
+    test("A query is refined when extended") {
+        count = 0
+        val root = item("CompilationUnit", item("MethodDeclaration"), item("Name"))
+
+        val index = TreeSearchIndex(root)
+
+        index.find("n") shouldBe listOf("Name")
+        index.find("na") shouldBe listOf("Name")
+        index.find("nam") shouldBe listOf("Name")
+        // not an extension
+        index.find("m") shouldBe listOf("MethodDeclaration")
+    }
+
+    test("The index follows modifications of the tree") {
+        count = 0
+        val method = item("MethodDeclaration")
+        val root = item("CompilationUnit", method)
+
+        val index = TreeSearchIndex(root)
+        index.find("block").shouldBeEmpty()
+
+        method.children.add(item("Block"))
+        index.find("block") shouldBe listOf("Block")
+
+        root.children.remove(method)
+        index.find("block").shouldBeEmpty()
+        index.find("method").shouldBeEmpty()
+
+        index.dispose()
+        root.children.add(item("Block"))
+        index.find("block").shouldBeEmpty()
+    }
+
+    test("The index follows changes of the values of the items") {
+        count = 0
+        val name = item("Name")
+        val root = item("CompilationUnit", item("Block", name))
+
+        val index = TreeSearchIndex(root)
+        index.find("name") shouldBe listOf("Name")
+
+        name.value = "VariableDeclaratorId"
+        index.find("name").shouldBeEmpty()
+        index.find("vdi") shouldBe listOf("VariableDeclaratorId")
+    }
+
+    test("Values are searched without creating the items, which are created when revealed") {
+        class Value(val text: String, vararg val children: Value)
+
+        var created = 0
+
+        class LazyItem(v: Value) : SearchableTreeItem<Value>(v, -1) {
+            private var built = false
+
+            init {
+                created++
+            }
+
+            override fun getSearchableText(): String = value.text
+
+            override fun getChildren(): ObservableList<TreeItem<Value>> {
+                if (!built) {
+                    built = true
+                    super.getChildren().setAll(value.children.map { LazyItem(it) })
+                }
+                return super.getChildren()
+            }
+
+            override fun visitSearchableValues(visitor: BiConsumer<in Value, String>) {
+                fun visit(v: Value) {
+                    visitor.accept(v, v.text)
+                    v.children.forEach { visit(it) }
+                }
+                visit(value)
+            }
+        }
+
+        val name = Value("Name")
+        val root = LazyItem(Value("CompilationUnit", Value("MethodDeclaration", Value("Block", name)), Value("Name")))
+
+        val index = TreeSearchIndex(root)
+        index.search("name").map { it.data.text } shouldBe listOf("Name", "Name")
+        index.search("name").first().data shouldBe name
+        created shouldBe 1
+
+        // revealing creates the path to the value, which doesn't invalidate the index
+        root.findItemForValue(name)!!.value shouldBe name
+        created shouldBe 5
+        index.search("block").map { it.data.text } shouldBe listOf("Block")
+    }
+})